@@ -0,0 +1,141 @@
+# PowerShell load test for the image upload path (POST /api/transformers/{id}/images)
+#
+# Compares platform-thread and virtual-thread request handling. Run it once per mode
+# against a freshly started backend; each run appends a row to the results CSV and the
+# table of all runs so far is printed at the end.
+#
+#   ./mvnw spring-boot:run "-Dspring-boot.run.arguments=--spring.threads.virtual.enabled=false --app.admission.enabled=false"
+#   ./load_test_upload.ps1 -ImagePath .\sample.jpg -Label platform
+#
+#   ./mvnw spring-boot:run "-Dspring-boot.run.arguments=--spring.threads.virtual.enabled=true --app.admission.enabled=false"
+#   ./load_test_upload.ps1 -ImagePath .\sample.jpg -Label virtual
+#
+# Virtual threads need the backend running on Java 21+. Admission control is turned off
+# above so the thread model, not the adaptive limit, decides throughput; leave it on to
+# measure the limiter instead (429s are counted separately). Use -Maintenance to upload
+# maintenance images, which also queue anomaly detection against a baseline.
+
+param(
+    [Parameter(Mandatory = $true)][string]$ImagePath,
+    [string]$Label = "run",
+    [string]$BaseUrl = "http://localhost:8080/api",
+    [int]$Concurrency = 200,
+    [int]$Requests = 2000,
+    [string]$Token = "",
+    [switch]$Maintenance,
+    [string]$OutFile = "load_test_results.csv"
+)
+
+$ErrorActionPreference = "Stop"
+Add-Type -AssemblyName System.Net.Http
+
+if (-not (Test-Path $ImagePath)) {
+    Write-Host "Image not found: $ImagePath" -ForegroundColor Red
+    exit 1
+}
+$imageBytes = [System.IO.File]::ReadAllBytes((Resolve-Path $ImagePath))
+$imageName = [System.IO.Path]::GetFileName($ImagePath)
+$headers = @{}
+if ($Token) { $headers["X-Auth-Token"] = $Token }
+
+Write-Host "=== Upload load test: $Label ===" -ForegroundColor Green
+
+# 1. Fixtures: a transformer (and, for maintenance uploads, a baseline and an inspection)
+$suffix = Get-Random
+$transformer = Invoke-RestMethod -Uri "$BaseUrl/transformers" -Method POST -Headers $headers -ContentType "application/json" -Body (@{
+    transformerNo = "LOAD-$suffix"
+    poleNo = "P-$suffix"
+    region = "Load Test"
+    transformerType = "DISTRIBUTION"
+} | ConvertTo-Json)
+Write-Host "Transformer ID: $($transformer.id)"
+
+$meta = @{ imageType = "BASELINE"; uploader = "load-test"; envCondition = @{ weather = "SUNNY" } }
+$client = New-Object System.Net.Http.HttpClient
+$client.Timeout = [TimeSpan]::FromMinutes(5)
+if ($Token) { $client.DefaultRequestHeaders.Add("X-Auth-Token", $Token) }
+
+function New-UploadContent($metaJson) {
+    $content = New-Object System.Net.Http.MultipartFormDataContent
+    $file = New-Object System.Net.Http.ByteArrayContent(, $imageBytes)
+    $file.Headers.ContentType = [System.Net.Http.Headers.MediaTypeHeaderValue]::Parse("image/jpeg")
+    $content.Add($file, "file", $imageName)
+    $metaPart = New-Object System.Net.Http.StringContent($metaJson, [System.Text.Encoding]::UTF8, "application/json")
+    $content.Add($metaPart, "meta")
+    return $content
+}
+
+$uploadUri = "$BaseUrl/transformers/$($transformer.id)/images"
+if ($Maintenance) {
+    $baseline = $client.PostAsync($uploadUri, (New-UploadContent ($meta | ConvertTo-Json -Compress))).Result
+    if (-not $baseline.IsSuccessStatusCode) {
+        Write-Host "Baseline upload failed: $($baseline.StatusCode)" -ForegroundColor Red
+        exit 1
+    }
+    $inspection = Invoke-RestMethod -Uri "$BaseUrl/transformers/$($transformer.id)/inspections" -Method POST -Headers $headers -ContentType "application/json" -Body (@{
+        title = "Load test"
+        inspector = "load-test"
+        status = "OPEN"
+    } | ConvertTo-Json)
+    $meta = @{ imageType = "MAINTENANCE"; uploader = "load-test"; inspectionId = $inspection.id }
+}
+$metaJson = $meta | ConvertTo-Json -Compress
+
+# 2. Warm-up so JIT, connection pools and Hibernate caches are primed before timing
+Write-Host "Warming up..." -ForegroundColor Yellow
+for ($i = 0; $i -lt 20; $i++) {
+    $null = $client.PostAsync($uploadUri, (New-UploadContent $metaJson)).Result
+}
+
+# 3. Closed-loop load: keep $Concurrency uploads in flight until $Requests have completed
+Write-Host "Running $Requests uploads with $Concurrency in flight..." -ForegroundColor Yellow
+$latencies = New-Object System.Collections.Generic.List[double]
+$ok = 0; $rejected = 0; $failed = 0; $started = 0
+$inFlight = @{}
+$clock = [System.Diagnostics.Stopwatch]::StartNew()
+
+while ($started -lt $Requests -or $inFlight.Count -gt 0) {
+    while ($started -lt $Requests -and $inFlight.Count -lt $Concurrency) {
+        $task = $client.PostAsync($uploadUri, (New-UploadContent $metaJson))
+        $inFlight[$task] = $clock.Elapsed.TotalMilliseconds
+        $started++
+    }
+    $tasks = [System.Threading.Tasks.Task[]]@($inFlight.Keys)
+    $index = [System.Threading.Tasks.Task]::WaitAny($tasks)
+    $done = $tasks[$index]
+    $latencies.Add($clock.Elapsed.TotalMilliseconds - $inFlight[$done])
+    $inFlight.Remove($done)
+    if ($done.IsFaulted) {
+        $failed++
+    } elseif ([int]$done.Result.StatusCode -eq 429) {
+        $rejected++
+    } elseif ($done.Result.IsSuccessStatusCode) {
+        $ok++
+    } else {
+        $failed++
+    }
+    if (-not $done.IsFaulted) { $done.Result.Dispose() }
+}
+$clock.Stop()
+
+# 4. Summary
+$sorted = $latencies.ToArray(); [Array]::Sort($sorted)
+function Get-Percentile($p) { $sorted[[Math]::Min($sorted.Length - 1, [int][Math]::Floor($sorted.Length * $p))] }
+$seconds = $clock.Elapsed.TotalSeconds
+$row = [PSCustomObject]@{
+    label       = $Label
+    concurrency = $Concurrency
+    requests    = $Requests
+    ok          = $ok
+    rejected429 = $rejected
+    failed      = $failed
+    seconds     = [Math]::Round($seconds, 2)
+    okPerSec    = [Math]::Round($ok / $seconds, 1)
+    p50ms       = [Math]::Round((Get-Percentile 0.50), 1)
+    p95ms       = [Math]::Round((Get-Percentile 0.95), 1)
+    p99ms       = [Math]::Round((Get-Percentile 0.99), 1)
+}
+$row | Export-Csv -Path $OutFile -Append -NoTypeInformation
+
+Write-Host "`nResults so far ($OutFile):" -ForegroundColor Cyan
+Import-Csv $OutFile | Format-Table -AutoSize
@@ -13,6 +13,8 @@ NOTE: This is for testing only. In production, use the actual Flask API at port
 from flask import Flask, request, jsonify
 import random
 import json
+import hashlib
+from datetime import datetime
 from flask_cors import CORS
 
 app = Flask(__name__)
@@ -154,6 +156,70 @@ def update_config():
     
     return jsonify(response), 200
 
+def mock_detection(baseline_bytes, candidate_bytes):
+    """
+    Deterministic stand-in for the real detector: the same candidate bytes always
+    yield the same fault regions, so backend result caching can be exercised.
+    """
+    digest = hashlib.sha256(baseline_bytes + candidate_bytes).digest()
+    regions = []
+    for i in range(digest[0] % 3):
+        x, y = 40 + digest[1 + i] * 2, 30 + digest[4 + i] * 2
+        w, h = 20 + digest[7 + i] % 40, 20 + digest[10 + i] % 40
+        faulty = digest[13 + i] % 2 == 0
+        regions.append({
+            "id": i + 1,
+            "type": "Point Overload (Faulty)" if faulty else "Point Overload (Potential)",
+            "dominant_color": "red" if faulty else "yellow",
+            "color_rgb": [255, 0, 0] if faulty else [255, 255, 0],
+            "bounding_box": {"x": x, "y": y, "width": w, "height": h, "area_px": w * h},
+            "centroid": {"x": x + w // 2, "y": y + h // 2},
+            "aspect_ratio": round(w / h, 2),
+            "elongated": False,
+            "connected_to_wire": False,
+            "tag": "FAULT" if faulty else "POTENTIAL",
+            "confidence": round(0.6 + (digest[16 + i] % 40) / 100, 2)
+        })
+    return {
+        "fault_regions": regions,
+        "display_metadata": {
+            "box_colors": {"FAULT": [255, 0, 0], "POTENTIAL": [255, 255, 0], "NORMAL": [0, 255, 0]}
+        },
+        "timestamp": datetime.now().replace(microsecond=0).isoformat()
+    }
+
+@app.route('/detect-anomalies', methods=['POST'])
+def detect_anomalies():
+    """
+    Mock single-image detection: baseline + candidate + config files
+    """
+    baseline = request.files.get('baseline')
+    candidate = request.files.get('candidate')
+    if not baseline or not candidate:
+        return jsonify({"status": "error", "message": "baseline and candidate files are required"}), 400
+    return jsonify(mock_detection(baseline.read(), candidate.read())), 200
+
+@app.route('/detect-anomalies-batch', methods=['POST'])
+def detect_anomalies_batch():
+    """
+    Mock batch detection: one baseline, many 'candidates' files, one config.
+    Returns {"results": [...]} with one entry per candidate, in request order.
+    """
+    baseline = request.files.get('baseline')
+    candidates = request.files.getlist('candidates')
+    if not baseline or not candidates:
+        return jsonify({"status": "error", "message": "baseline and at least one candidate are required"}), 400
+
+    baseline_bytes = baseline.read()
+    print(f"\nBATCH DETECTION: {len(candidates)} candidates against one baseline")
+    results = []
+    for candidate in candidates:
+        try:
+            results.append(mock_detection(baseline_bytes, candidate.read()))
+        except Exception as e:
+            results.append({"error": str(e)})
+    return jsonify({"results": results}), 200
+
 @app.route('/health', methods=['GET'])
 def health():
     """Health check endpoint"""
@@ -171,7 +237,8 @@ def index():
         "version": "1.0.0",
         "endpoints": {
             "/update-config": "POST - Train classification model and update config",
-            "/detect-anomalies": "POST - Detect anomalies (not implemented in mock)",
+            "/detect-anomalies": "POST - Detect anomalies (deterministic mock)",
+            "/detect-anomalies-batch": "POST - Detect anomalies for many candidates against one baseline",
             "/health": "GET - Health check"
         },
         "status": "running"
@@ -184,6 +251,8 @@ if __name__ == '__main__':
     print("\nStarting server on http://localhost:5000")
     print("\nAvailable endpoints:")
     print("  POST /update-config  - Train classification model and update config")
+    print("  POST /detect-anomalies        - Mock single-image detection")
+    print("  POST /detect-anomalies-batch  - Mock batch detection (one baseline, many candidates)")
     print("  GET  /health         - Health check")
     print("\nNOTE: This runs on port 5000, same as the actual Flask API")
     print("      Stop the actual Flask API before running this mock server")
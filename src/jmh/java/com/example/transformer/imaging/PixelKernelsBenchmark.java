@@ -0,0 +1,89 @@
+package com.example.transformer.imaging;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scalar against Vector API pixel kernels over one whole frame. The vector
+ * variant fails in setup rather than silently measuring the scalar fallback
+ * when the module is missing or the CPU vectors are too narrow.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+public class PixelKernelsBenchmark {
+
+    @Param({ "scalar", "vector" })
+    public String kernels;
+
+    // 640x480 thermal camera frame and a 1080p upload
+    @Param({ "307200", "2073600" })
+    public int pixels;
+
+    private PixelKernels impl;
+    private int[] rgb;
+    private byte[] h;
+    private byte[] s;
+    private byte[] v;
+    private byte[] other;
+    private byte[] diff;
+    private final int[] counts = new int[36];
+
+    @Setup
+    public void setUp() {
+        impl = "vector".equals(kernels) ? PixelKernels.best() : new ScalarPixelKernels();
+        if (!impl.name().startsWith(kernels)) {
+            throw new IllegalStateException("Vector kernels unavailable, got " + impl.name());
+        }
+        Random random = new Random(42);
+        rgb = new int[pixels];
+        for (int i = 0; i < pixels; i++) {
+            rgb[i] = random.nextInt(0x1000000);
+        }
+        h = new byte[pixels];
+        s = new byte[pixels];
+        v = new byte[pixels];
+        other = new byte[pixels];
+        diff = new byte[pixels];
+        random.nextBytes(other);
+        impl.rgbToHsv(rgb, h, s, v, 0, pixels);
+    }
+
+    @Benchmark
+    public byte[] rgbToHsv() {
+        impl.rgbToHsv(rgb, h, s, v, 0, pixels);
+        return v;
+    }
+
+    @Benchmark
+    public byte[] absDiff() {
+        impl.absDiff(v, other, diff, 0, pixels);
+        return diff;
+    }
+
+    @Benchmark
+    public long sum() {
+        return impl.sum(v, 0, pixels);
+    }
+
+    @Benchmark
+    public int[] hueHistogram() {
+        impl.hueHistogram(h, s, v, 40, 35, counts, 0, pixels);
+        return counts;
+    }
+}
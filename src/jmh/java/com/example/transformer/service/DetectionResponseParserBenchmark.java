@@ -0,0 +1,67 @@
+package com.example.transformer.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streaming {@link DetectionResponseParser} against the JsonNode tree walk it
+ * replaced, on the recorded Flask mock response with its region list repeated
+ * up to {@code regions} entries.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DetectionResponseParserBenchmark {
+
+    @Param({ "2", "50", "500" })
+    public int regions;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private String json;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectNode root;
+        try (InputStream in = getClass().getResourceAsStream("/detection/flask-mock-response.json")) {
+            root = (ObjectNode) objectMapper.readTree(in);
+        }
+        ArrayNode recorded = (ArrayNode) root.get("fault_regions");
+        ArrayNode repeated = objectMapper.createArrayNode();
+        for (int i = 0; i < regions; i++) {
+            ObjectNode region = recorded.get(i % recorded.size()).deepCopy();
+            region.put("id", i + 1);
+            repeated.add(region);
+        }
+        root.set("fault_regions", repeated);
+        json = objectMapper.writeValueAsString(root);
+    }
+
+    @Benchmark
+    public DetectionResponseParser.Parsed streaming() throws IOException {
+        return DetectionResponseParser.parse(objectMapper.getFactory(), json);
+    }
+
+    @Benchmark
+    public TreeModelDetectionParser.Parsed treeModel() throws IOException {
+        return TreeModelDetectionParser.parse(objectMapper, json);
+    }
+}
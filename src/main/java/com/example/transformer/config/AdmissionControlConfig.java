@@ -0,0 +1,130 @@
+package com.example.transformer.config;
+
+import com.example.transformer.service.AimdConcurrencyLimit;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adaptive admission control for the endpoints that start detection or
+ * training work. Each endpoint gets its own {@link AimdConcurrencyLimit};
+ * requests over the limit are turned away with 429 and a Retry-After of about
+ * one call's latency instead of queueing on request threads, DB connections
+ * and Flask capacity. Registered as an MVC interceptor rather than a servlet
+ * filter so rejections still carry CORS headers.
+ */
+@Configuration
+public class AdmissionControlConfig implements WebMvcConfigurer {
+
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int initialLimit;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoff;
+    private final double tolerance;
+
+    public AdmissionControlConfig(MeterRegistry meterRegistry,
+            @Value("${app.admission.enabled:true}") boolean enabled,
+            @Value("${app.admission.initial-limit:20}") int initialLimit,
+            @Value("${app.admission.min-limit:2}") int minLimit,
+            @Value("${app.admission.max-limit:200}") int maxLimit,
+            @Value("${app.admission.backoff:0.9}") double backoff,
+            @Value("${app.admission.latency-tolerance:2.5}") double tolerance) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.initialLimit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoff = backoff;
+        this.tolerance = tolerance;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (!enabled) {
+            return;
+        }
+        registry.addInterceptor(limiter("upload")).addPathPatterns("/api/transformers/*/images");
+        registry.addInterceptor(limiter("upload-batch")).addPathPatterns("/api/transformers/*/images/batch");
+        registry.addInterceptor(limiter("train")).addPathPatterns("/api/transformers/*/train");
+    }
+
+    private AdmissionInterceptor limiter(String endpoint) {
+        AimdConcurrencyLimit limit = new AimdConcurrencyLimit(initialLimit, minLimit, maxLimit, backoff, tolerance);
+        meterRegistry.gauge("admission.limit", Tags.of("endpoint", endpoint),
+                limit, AimdConcurrencyLimit::getLimit);
+        meterRegistry.gauge("admission.inflight", Tags.of("endpoint", endpoint),
+                limit, AimdConcurrencyLimit::getInFlight);
+        return new AdmissionInterceptor(limit, meterRegistry.counter("admission.rejected", "endpoint", endpoint));
+    }
+
+    static final class AdmissionInterceptor implements AsyncHandlerInterceptor {
+
+        private static final String TICKET = AdmissionInterceptor.class.getName() + ".TICKET";
+
+        private record Ticket(AimdConcurrencyLimit limit, int inFlightAtStart, long startNanos) {}
+
+        private final AimdConcurrencyLimit limit;
+        private final Counter rejected;
+
+        AdmissionInterceptor(AimdConcurrencyLimit limit, Counter rejected) {
+            this.limit = limit;
+            this.rejected = rejected;
+        }
+
+        @Override
+        public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+                throws IOException {
+            // Only POSTs start work, and an async re-dispatch was admitted already
+            if (!HttpMethod.POST.matches(request.getMethod()) || request.getDispatcherType() == DispatcherType.ASYNC) {
+                return true;
+            }
+            int inFlight = limit.tryAcquire();
+            if (inFlight < 0) {
+                rejected.increment();
+                long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(limit.getSmoothedRttNanos() + 999_999_999L));
+                response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+                response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfter));
+                response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+                response.getWriter().write("{\"error\":\"Server is busy, retry in " + retryAfter + "s\"}");
+                return false;
+            }
+            request.setAttribute(TICKET, new Ticket(limit, inFlight, System.nanoTime()));
+            return true;
+        }
+
+        // Runs after the final dispatch, so async handlers are timed until they complete
+        @Override
+        public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                Exception ex) {
+            if (request.getAttribute(TICKET) instanceof Ticket ticket && ticket.limit() == limit) {
+                request.removeAttribute(TICKET);
+                int status = response.getStatus();
+                if (ex != null || status >= 500) {
+                    limit.release(ticket.inFlightAtStart(), System.nanoTime() - ticket.startNanos(), true);
+                } else if (status >= 200 && status < 300) {
+                    limit.release(ticket.inFlightAtStart(), System.nanoTime() - ticket.startNanos(), false);
+                } else {
+                    // Rejected before doing the work (bad input, auth): its latency says nothing about load
+                    limit.release();
+                }
+            }
+        }
+    }
+}
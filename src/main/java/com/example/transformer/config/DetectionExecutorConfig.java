@@ -0,0 +1,56 @@
+package com.example.transformer.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class DetectionExecutorConfig {
+
+    /**
+     * Bounded worker pool that runs anomaly detection off the request thread.
+     * Once all workers are busy and the queue is full, new jobs are rejected
+     * instead of piling up in memory. With virtual threads enabled the workers
+     * are virtual, but the pool still bounds how many Flask calls run at once.
+     */
+    @Bean(name = "detectionExecutor")
+    public ThreadPoolTaskExecutor detectionExecutor(
+            @Value("${anomaly.detection.workers.core-size:4}") int coreSize,
+            @Value("${anomaly.detection.workers.max-size:8}") int maxSize,
+            @Value("${anomaly.detection.workers.queue-capacity:500}") int queueCapacity,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(coreSize);
+        executor.setMaxPoolSize(maxSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("detection-");
+        executor.setVirtualThreads(virtualThreads && Runtime.version().feature() >= 21);
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Separate workers for the interactive lane of the detection scheduler.
+     * Bulk and background chunks block a worker for a whole batch call, so if
+     * uploads shared their pool they would queue behind backfill.
+     */
+    @Bean(name = "interactiveDetectionExecutor")
+    public ThreadPoolTaskExecutor interactiveDetectionExecutor(
+            @Value("${anomaly.detection.workers.interactive-size:2}") int size,
+            @Value("${anomaly.detection.workers.queue-capacity:500}") int queueCapacity,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(size);
+        executor.setMaxPoolSize(size);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("detection-interactive-");
+        executor.setVirtualThreads(virtualThreads && Runtime.version().feature() >= 21);
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.transformer.config;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves the pooled id sequences of fault regions and display metadata past
+ * the ids already in their tables. V18 does this when Flyway runs, but with
+ * Flyway off the schema comes from {@code ddl-auto}, which creates the
+ * sequences at 1 next to rows that were keyed by IDENTITY, so the first
+ * blocks Hibernate hands out would collide with them.
+ * <p>
+ * Runs once the entity manager factory (and with it the schema update) is up,
+ * before the web server takes requests. A sequence is only moved forward, and
+ * only when the table is ahead of it.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class IdSequenceInitializer implements InitializingBean {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public IdSequenceInitializer(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        if (!"PostgreSQL".equals(database)) {
+            return;
+        }
+        seed("fault_regions_seq", "fault_regions", "db_id");
+        seed("display_metadata_seq", "display_metadata", "id");
+    }
+
+    private void seed(String sequence, String table, String column) {
+        try {
+            // Hibernate takes the block ending at each nextval(), so after setval(seq, max) it starts at max + 1
+            Long seededTo = jdbcTemplate.query(
+                    "SELECT setval('" + sequence + "', t.max_id) FROM (SELECT MAX(" + column + ") AS max_id FROM "
+                            + table + ") t WHERE t.max_id > (SELECT last_value FROM " + sequence + ")",
+                    rs -> rs.next() ? rs.getLong(1) : null);
+            if (seededTo != null) {
+                System.out.println("Moved sequence " + sequence + " past existing " + table + " ids to " + seededTo);
+            }
+        } catch (Exception e) {
+            System.err.println("Could not seed sequence " + sequence + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.transformer.config;
+
+import com.example.transformer.imaging.PixelKernels;
+import com.example.transformer.imaging.ScalarPixelKernels;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ImagingConfig {
+
+    /**
+     * Pixel kernels shared by all server-side image work: the Vector API
+     * implementation when the JVM allows it, unless forced to scalar.
+     */
+    @Bean
+    public PixelKernels pixelKernels(@Value("${app.imaging.vector-kernels:true}") boolean vectorKernels) {
+        PixelKernels kernels = vectorKernels ? PixelKernels.best() : new ScalarPixelKernels();
+        System.out.println("Using " + kernels.name() + " pixel kernels");
+        return kernels;
+    }
+}
@@ -1,14 +1,94 @@
 package com.example.transformer.config;
 
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.ManagedHttpClientConnectionFactory;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.config.Http1Config;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
+
 @Configuration
 public class RestTemplateConfig {
 
+    /**
+     * Connection pool shared by all calls to the Flask detection/training server.
+     * Size max-per-route to at least the number of detection workers.
+     */
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager flaskConnectionManager(
+            @Value("${anomaly.detection.http.max-total:50}") int maxTotal,
+            @Value("${anomaly.detection.http.max-per-route:20}") int maxPerRoute,
+            @Value("${anomaly.detection.http.connect-timeout:5s}") Duration connectTimeout,
+            @Value("${anomaly.detection.http.read-timeout:120s}") Duration readTimeout,
+            @Value("${anomaly.detection.http.connection-ttl:5m}") Duration connectionTtl,
+            @Value("${anomaly.detection.http.stream-buffer-size:32KB}") DataSize streamBufferSize) {
+        int bufferSize = (int) streamBufferSize.toBytes();
+        return PoolingHttpClientConnectionManagerBuilder.create()
+                // Request bodies are copied to the socket through this per-connection buffer
+                // in chunks of the same size, so heap per in-flight upload stays bounded
+                .setConnectionFactory(ManagedHttpClientConnectionFactory.builder()
+                        .http1Config(Http1Config.custom()
+                                .setBufferSize(bufferSize)
+                                .setChunkSizeHint(bufferSize)
+                                .build())
+                        .build())
+                .setMaxConnTotal(maxTotal)
+                .setMaxConnPerRoute(maxPerRoute)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(connectTimeout))
+                        .setSocketTimeout(Timeout.of(readTimeout))
+                        .setTimeToLive(TimeValue.of(connectionTtl))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient flaskHttpClient(
+            PoolingHttpClientConnectionManager flaskConnectionManager,
+            @Value("${anomaly.detection.http.read-timeout:120s}") Duration readTimeout,
+            @Value("${anomaly.detection.http.pool-acquire-timeout:10s}") Duration poolAcquireTimeout,
+            @Value("${anomaly.detection.http.idle-evict-after:30s}") Duration idleEvictAfter) {
+        return HttpClients.custom()
+                .setConnectionManager(flaskConnectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(poolAcquireTimeout))
+                        .setResponseTimeout(Timeout.of(readTimeout))
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.of(idleEvictAfter))
+                .build();
+    }
+
+    /**
+     * Client for the Flask server. The HttpComponents request factory streams
+     * request bodies: multipart parts backed by a {@code FileSystemResource} are
+     * copied from disk to the socket with chunked transfer encoding instead of
+     * being assembled in memory. Don't add interceptors or wrap the factory in a
+     * {@code BufferingClientHttpRequestFactory}; both buffer the whole body.
+     */
+    @Bean
+    public RestTemplate restTemplate(CloseableHttpClient flaskHttpClient) {
+        return new RestTemplate(new HttpComponentsClientHttpRequestFactory(flaskHttpClient));
+    }
+
+    // Exposes httpcomponents.httpclient.pool.* gauges under /actuator/metrics
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public MeterBinder flaskConnectionPoolMetrics(PoolingHttpClientConnectionManager flaskConnectionManager) {
+        return new PoolingHttpClientConnectionManagerMetricsBinder(flaskConnectionManager, "flask");
     }
 }
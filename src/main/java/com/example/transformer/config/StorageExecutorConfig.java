@@ -0,0 +1,33 @@
+package com.example.transformer.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class StorageExecutorConfig {
+
+    /**
+     * Pool used to write the files of a batch upload to disk in parallel.
+     * When saturated the calling request thread writes the file itself.
+     */
+    @Bean(name = "storageExecutor")
+    public ThreadPoolTaskExecutor storageExecutor(
+            @Value("${app.storage.writers.core-size:4}") int coreSize,
+            @Value("${app.storage.writers.max-size:8}") int maxSize,
+            @Value("${app.storage.writers.queue-capacity:200}") int queueCapacity,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(coreSize);
+        executor.setMaxPoolSize(maxSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("storage-");
+        executor.setVirtualThreads(virtualThreads && Runtime.version().feature() >= 21);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.transformer.controller;
+
+import com.example.transformer.dto.DetectionJobDTO;
+import com.example.transformer.model.DetectionJobStatus;
+import com.example.transformer.security.CurrentUserHolder;
+import com.example.transformer.security.SessionUser;
+import com.example.transformer.service.DetectionJobService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+/**
+ * Admin view of detection jobs that need attention: the dead-letter queue of
+ * jobs that ran out of retries, plain failures and pending retries.
+ */
+@RestController
+@RequestMapping("/api/admin/detection-jobs")
+public class DetectionJobAdminController {
+
+    private final DetectionJobService detectionJobService;
+
+    public DetectionJobAdminController(DetectionJobService detectionJobService) {
+        this.detectionJobService = detectionJobService;
+    }
+
+    @GetMapping
+    public ResponseEntity<List<DetectionJobDTO>> list(
+            @RequestParam(value = "status", defaultValue = "DEAD_LETTER") DetectionJobStatus status,
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "size", defaultValue = "50") int size) {
+        requireAdmin();
+        List<DetectionJobDTO> jobs = detectionJobService
+                .findByStatus(status, Math.max(0, page), Math.min(Math.max(1, size), 500))
+                .stream()
+                .map(DetectionJobDTO::fromEntity)
+                .toList();
+        return ResponseEntity.ok(jobs);
+    }
+
+    @PostMapping("/{jobId}/retry")
+    public ResponseEntity<DetectionJobDTO> retry(@PathVariable("jobId") Long jobId) {
+        requireAdmin();
+        return detectionJobService.requeue(jobId)
+                .map(job -> ResponseEntity.status(HttpStatus.ACCEPTED).body(DetectionJobDTO.fromEntity(job)))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.CONFLICT,
+                        "Only FAILED or DEAD_LETTER jobs can be retried"));
+    }
+
+    private static void requireAdmin() {
+        SessionUser current = CurrentUserHolder.get();
+        if (current == null || !current.admin()) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Only admin can manage detection jobs");
+        }
+    }
+}
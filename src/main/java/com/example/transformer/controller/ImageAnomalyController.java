@@ -8,7 +8,7 @@ import com.example.transformer.repository.DisplayMetadataRepository;
 import com.example.transformer.repository.FaultRegionRepository;
 import com.example.transformer.repository.OriginalAnomalyResultRepository;
 import com.example.transformer.repository.TransformerImageRepository;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.RawValue;
 import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
@@ -24,18 +24,15 @@ public class ImageAnomalyController {
     private final FaultRegionRepository faultRegionRepository;
     private final DisplayMetadataRepository displayMetadataRepository;
     private final OriginalAnomalyResultRepository originalAnomalyResultRepository;
-    private final ObjectMapper objectMapper;
 
     public ImageAnomalyController(TransformerImageRepository images,
                                   FaultRegionRepository faultRegionRepository,
                                   DisplayMetadataRepository displayMetadataRepository,
-                                  OriginalAnomalyResultRepository originalAnomalyResultRepository,
-                                  ObjectMapper objectMapper) {
+                                  OriginalAnomalyResultRepository originalAnomalyResultRepository) {
         this.images = images;
         this.faultRegionRepository = faultRegionRepository;
         this.displayMetadataRepository = displayMetadataRepository;
         this.originalAnomalyResultRepository = originalAnomalyResultRepository;
-        this.objectMapper = objectMapper;
     }
 
     @GetMapping("/images/{imageId}/fault-regions")
@@ -115,16 +112,11 @@ public class ImageAnomalyController {
         response.put("imageInfo", imageInfo);
 
         if (originalResultOpt.isPresent()) {
-            try {
-                Object originalJson = objectMapper.readValue(originalResultOpt.get().getAnomalyJson(), Object.class);
-                Map<String, Object> originalData = new HashMap<>();
-                originalData.put("receivedAt", originalResultOpt.get().getCreatedAt());
-                originalData.put("data", originalJson);
-                response.put("originalResults", originalData);
-            } catch (Exception e) {
-                System.err.println("Failed to parse original anomaly JSON: " + e.getMessage());
-                response.put("originalResults", null);
-            }
+            // Stored verbatim from the detection server, which only ever sends valid JSON; embed it as-is
+            Map<String, Object> originalData = new HashMap<>();
+            originalData.put("receivedAt", originalResultOpt.get().getCreatedAt());
+            originalData.put("data", new RawValue(originalResultOpt.get().getAnomalyJson()));
+            response.put("originalResults", originalData);
         } else {
             response.put("originalResults", null);
         }
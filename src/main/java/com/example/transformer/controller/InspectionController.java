@@ -5,6 +5,7 @@ import com.example.transformer.dto.InspectionDTO;
 import com.example.transformer.exception.NotFoundException;
 import com.example.transformer.model.*;
 import com.example.transformer.repository.*;
+import com.example.transformer.service.FileStorageService;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -26,6 +27,7 @@ public class InspectionController {
     private final DisplayMetadataRepository displayMetadataRepository;
     private final OriginalAnomalyResultRepository originalAnomalyResultRepository;
     private final MaintenanceRecordRepository maintenanceRecordRepository;
+    private final FileStorageService storage;
 
     public InspectionController(TransformerRepository transformers,
                                 InspectionRepository inspectionRepository,
@@ -33,7 +35,8 @@ public class InspectionController {
                                 FaultRegionRepository faultRegionRepository,
                                 DisplayMetadataRepository displayMetadataRepository,
                                 OriginalAnomalyResultRepository originalAnomalyResultRepository,
-                                MaintenanceRecordRepository maintenanceRecordRepository) {
+                                MaintenanceRecordRepository maintenanceRecordRepository,
+                                FileStorageService storage) {
         this.transformers = transformers;
         this.inspectionRepository = inspectionRepository;
         this.images = images;
@@ -41,6 +44,7 @@ public class InspectionController {
         this.displayMetadataRepository = displayMetadataRepository;
         this.originalAnomalyResultRepository = originalAnomalyResultRepository;
         this.maintenanceRecordRepository = maintenanceRecordRepository;
+        this.storage = storage;
     }
 
     @GetMapping("/{id}/inspections")
@@ -103,6 +107,7 @@ public class InspectionController {
             displayMetadataRepository.deleteByImageId(img.getId());
 
             images.delete(img);
+            storage.release(img.getContentHash());
         }
 
         inspectionRepository.delete(ins);
@@ -0,0 +1,76 @@
+package com.example.transformer.controller;
+
+import com.example.transformer.dto.RedetectionRequestDTO;
+import com.example.transformer.dto.RedetectionRunDTO;
+import com.example.transformer.exception.NotFoundException;
+import com.example.transformer.model.RedetectionRun;
+import com.example.transformer.security.CurrentUserHolder;
+import com.example.transformer.security.SessionUser;
+import com.example.transformer.service.RedetectionService;
+import jakarta.validation.Valid;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+/**
+ * Bulk re-detection of historical maintenance images, e.g. with a newly
+ * trained config or for a whole inspection. Runs proceed in the background;
+ * poll a run for its progress.
+ */
+@RestController
+@RequestMapping("/api/admin/redetections")
+public class RedetectionController {
+
+    private final RedetectionService redetectionService;
+
+    public RedetectionController(RedetectionService redetectionService) {
+        this.redetectionService = redetectionService;
+    }
+
+    @PostMapping
+    public ResponseEntity<RedetectionRunDTO> start(@RequestBody @Valid RedetectionRequestDTO request) {
+        SessionUser current = requireAdmin();
+        RedetectionRun run = redetectionService.start(request, current.name());
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(toDTO(run));
+    }
+
+    @GetMapping
+    public ResponseEntity<List<RedetectionRunDTO>> list(
+            @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        requireAdmin();
+        return ResponseEntity.ok(redetectionService.findRecent(Math.min(Math.max(1, limit), 200)).stream()
+                .map(this::toDTO)
+                .toList());
+    }
+
+    @GetMapping("/{runId}")
+    public ResponseEntity<RedetectionRunDTO> get(@PathVariable("runId") Long runId) {
+        requireAdmin();
+        RedetectionRun run = redetectionService.find(runId)
+                .orElseThrow(() -> new NotFoundException("Re-detection run " + runId + " not found"));
+        return ResponseEntity.ok(toDTO(run));
+    }
+
+    @PostMapping("/{runId}/cancel")
+    public ResponseEntity<RedetectionRunDTO> cancel(@PathVariable("runId") Long runId) {
+        requireAdmin();
+        RedetectionRun run = redetectionService.cancel(runId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.CONFLICT, "Only a running re-detection can be cancelled"));
+        return ResponseEntity.ok(toDTO(run));
+    }
+
+    private RedetectionRunDTO toDTO(RedetectionRun run) {
+        return RedetectionRunDTO.fromEntity(run, redetectionService.jobCounts(run.getId()));
+    }
+
+    private static SessionUser requireAdmin() {
+        SessionUser current = CurrentUserHolder.get();
+        if (current == null || !current.admin()) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Only admin can run re-detections");
+        }
+        return current;
+    }
+}
@@ -11,6 +11,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequestMapping("/api/transformers")
 public class TrainingController {
@@ -25,7 +27,7 @@ public class TrainingController {
     }
 
     @PostMapping("/{id}/train")
-    public ResponseEntity<TrainModelResponseDTO> trainModel(
+    public CompletableFuture<ResponseEntity<TrainModelResponseDTO>> trainModel(
             @PathVariable("id") Long transformerId,
             @RequestBody @Valid TrainModelRequestDTO request) {
 
@@ -38,11 +40,11 @@ public class TrainingController {
             throw new NotFoundException("Transformer " + transformerId + " not found");
         }
 
-        TrainModelResponseDTO response = classificationTrainingService.trainModel(
-                transformerId,
-                request.baselineImageId(),
-                request.maintenanceImageId());
-
-        return ResponseEntity.ok(response);
+        // Completed asynchronously; the request thread is released while the classification server works
+        return classificationTrainingService.trainModel(
+                        transformerId,
+                        request.baselineImageId(),
+                        request.maintenanceImageId())
+                .thenApply(ResponseEntity::ok);
     }
 }
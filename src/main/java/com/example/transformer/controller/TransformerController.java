@@ -12,6 +12,7 @@ import com.example.transformer.repository.MaintenanceRecordRepository;
 import com.example.transformer.repository.OriginalAnomalyResultRepository;
 import com.example.transformer.repository.TransformerImageRepository;
 import com.example.transformer.repository.TransformerRepository;
+import com.example.transformer.service.FileStorageService;
 import jakarta.validation.Valid;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -29,6 +30,7 @@ public class TransformerController {
     private final DisplayMetadataRepository displayMetadataRepository;
     private final OriginalAnomalyResultRepository originalAnomalyResultRepository;
     private final MaintenanceRecordRepository maintenanceRecordRepository;
+    private final FileStorageService storage;
 
     public TransformerController(TransformerRepository transformers,
                                  TransformerImageRepository images,
@@ -36,7 +38,8 @@ public class TransformerController {
                                  FaultRegionRepository faultRegionRepository,
                                  DisplayMetadataRepository displayMetadataRepository,
                                  OriginalAnomalyResultRepository originalAnomalyResultRepository,
-                                 MaintenanceRecordRepository maintenanceRecordRepository) {
+                                 MaintenanceRecordRepository maintenanceRecordRepository,
+                                 FileStorageService storage) {
         this.transformers = transformers;
         this.images = images;
         this.inspectionRepository = inspectionRepository;
@@ -44,6 +47,7 @@ public class TransformerController {
         this.displayMetadataRepository = displayMetadataRepository;
         this.originalAnomalyResultRepository = originalAnomalyResultRepository;
         this.maintenanceRecordRepository = maintenanceRecordRepository;
+        this.storage = storage;
     }
 
     // ---- CRUD: transformers ----
@@ -111,6 +115,7 @@ public class TransformerController {
 
                 // Finally delete the image itself
                 images.delete(img);
+                storage.release(img.getContentHash());
             }
 
             // 2c. Delete the inspection row itself
@@ -128,6 +133,7 @@ public class TransformerController {
             maintenanceRecordRepository.deleteByMaintenanceImageId(imgId);
 
             images.delete(img);
+            storage.release(img.getContentHash());
         }
 
         // 4. As extra safety, delete any remaining maintenance records directly linked to this transformer
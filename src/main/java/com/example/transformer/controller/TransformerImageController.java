@@ -1,24 +1,37 @@
 package com.example.transformer.controller;
 
+import com.example.transformer.dto.BatchImageUploadResponseDTO;
+import com.example.transformer.dto.DetectionJobDTO;
 import com.example.transformer.dto.ImageUploadDTO;
 import com.example.transformer.dto.ImageUploadResponseDTO;
 import com.example.transformer.dto.TransformerImageDTO;
 import com.example.transformer.exception.NotFoundException;
 import com.example.transformer.model.*;
 import com.example.transformer.repository.*;
-import com.example.transformer.service.AnomalyDetectionService;
+import com.example.transformer.service.DetectionJobService;
 import com.example.transformer.service.FileStorageService;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.transformer.service.HotImageCache;
+import com.example.transformer.service.ImageHistogramService;
+import com.example.transformer.service.ImageRenditionService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 
     import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RestController
 @RequestMapping("/api/transformers")
@@ -28,35 +41,38 @@ public class TransformerImageController {
     private final TransformerImageRepository images;
     private final FileStorageService storage;
     private final InspectionRepository inspectionRepository;
-    private final FaultRegionRepository faultRegionRepository;
-    private final DisplayMetadataRepository displayMetadataRepository;
-    private final AnomalyDetectionService anomalyDetectionService;
-    private final OriginalAnomalyResultRepository originalAnomalyResultRepository;
-    private final ObjectMapper objectMapper;
+    private final DetectionJobService detectionJobService;
+    private final ImageHistogramService histogramService;
+    private final ImageRenditionService renditionService;
+    private final HotImageCache hotImages;
+    private final TaskExecutor storageExecutor;
+    private final int maxBatchFiles;
 
     public TransformerImageController(TransformerRepository transformers,
                                       TransformerImageRepository images,
                                       FileStorageService storage,
                                       InspectionRepository inspectionRepository,
-                                      FaultRegionRepository faultRegionRepository,
-                                      DisplayMetadataRepository displayMetadataRepository,
-                                      AnomalyDetectionService anomalyDetectionService,
-                                      OriginalAnomalyResultRepository originalAnomalyResultRepository,
-                                      ObjectMapper objectMapper) {
+                                      DetectionJobService detectionJobService,
+                                      ImageHistogramService histogramService,
+                                      ImageRenditionService renditionService,
+                                      HotImageCache hotImages,
+                                      @Qualifier("storageExecutor") TaskExecutor storageExecutor,
+                                      @Value("${app.upload.batch.max-files:500}") int maxBatchFiles) {
         this.transformers = transformers;
         this.images = images;
         this.storage = storage;
         this.inspectionRepository = inspectionRepository;
-        this.faultRegionRepository = faultRegionRepository;
-        this.displayMetadataRepository = displayMetadataRepository;
-        this.anomalyDetectionService = anomalyDetectionService;
-        this.originalAnomalyResultRepository = originalAnomalyResultRepository;
-        this.objectMapper = objectMapper;
+        this.detectionJobService = detectionJobService;
+        this.histogramService = histogramService;
+        this.renditionService = renditionService;
+        this.hotImages = hotImages;
+        this.storageExecutor = storageExecutor;
+        this.maxBatchFiles = maxBatchFiles;
     }
 
     // ---- Upload image (baseline/maintenance) ----
     @PostMapping(value = "/{id}/images", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ImageUploadResponseDTO upload(@PathVariable Long id,
+    public ResponseEntity<ImageUploadResponseDTO> upload(@PathVariable Long id,
                                          @RequestPart("file") MultipartFile file,
                                          @RequestPart("meta") @Valid ImageUploadDTO meta,
                                          @RequestParam(value = "inspectionId", required = false) Long inspectionId)
@@ -91,34 +107,22 @@ public class TransformerImageController {
         }
 
         String subfolder = meta.imageType().name().toLowerCase(Locale.ROOT);
-        String relativePath = storage.saveTransformerImage(id, subfolder, file);
-
-        TransformerImage entity = new TransformerImage();
-        entity.setTransformer(t);
-        entity.setInspection(inspection);
-        entity.setImageType(meta.imageType());
-        entity.setEnvCondition(meta.imageType() == ImageType.BASELINE ? meta.envCondition() : null);
-        entity.setUploader(meta.uploader());
-        entity.setFilename(Optional.ofNullable(file.getOriginalFilename()).orElse("upload.bin"));
-        entity.setContentType(Optional.ofNullable(file.getContentType()).orElse(MediaType.APPLICATION_OCTET_STREAM_VALUE));
-        entity.setSizeBytes(file.getSize());
-        entity.setStoragePath(relativePath);
-        entity.setCreatedAt(LocalDateTime.now());
-
-        TransformerImage img = images.save(entity);
+        FileStorageService.StoredFile stored = storage.saveTransformerImage(id, subfolder, file);
+
+        TransformerImage img;
+        try {
+            img = images.save(newImage(t, inspection, meta, file, stored));
+        } catch (RuntimeException e) {
+            // No image row references the blob, so give back the reference the store took for it
+            storage.release(stored.contentHash());
+            throw e;
+        }
+        histogramService.recordAsync(List.of(img));
+        renditionService.generateAsync(List.of(img));
 
-        TransformerImageDTO imageDTO = new TransformerImageDTO(
-                img.getId(),
-                img.getImageType(),
-                img.getUploader(),
-                img.getEnvCondition(),
-                img.getFilename(),
-                img.getCreatedAt(),
-                img.getContentType(),
-                img.getSizeBytes(),
-                img.getInspection() == null ? null : img.getInspection().getId());
+        TransformerImageDTO imageDTO = toDTO(img);
 
-        Object anomalyResult = null;
+        DetectionJobDTO detectionJob = null;
 
         if (meta.imageType() == ImageType.MAINTENANCE) {
             List<TransformerImage> baselineImages = images.findByTransformerIdAndImageTypeOrderByCreatedAtDesc(id,
@@ -126,157 +130,162 @@ public class TransformerImageController {
 
             if (!baselineImages.isEmpty()) {
                 TransformerImage baseline = baselineImages.get(0);
+                detectionJob = DetectionJobDTO.fromEntity(detectionJobService.submit(img, baseline, DetectionPriority.INTERACTIVE));
+            }
+        }
+
+        // Detection runs in the background; clients poll detection-status for the result
+        HttpStatus status = detectionJob != null ? HttpStatus.ACCEPTED : HttpStatus.OK;
+        return ResponseEntity.status(status).body(new ImageUploadResponseDTO(imageDTO, null, detectionJob));
+    }
+
+    // ---- Bulk upload: many images of one transformer/inspection in a single request ----
+    @PostMapping(value = "/{id}/images/batch", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<BatchImageUploadResponseDTO> uploadBatch(@PathVariable Long id,
+                                                                   @RequestPart("files") List<MultipartFile> files,
+                                                                   @RequestPart("meta") List<ImageUploadDTO> metas,
+                                                                   @RequestParam(value = "inspectionId", required = false) Long inspectionId) {
+
+        Transformer t = transformers.findById(id)
+                .orElseThrow(() -> new NotFoundException("Transformer " + id + " not found"));
+
+        if (files.isEmpty() || files.size() != metas.size()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Expected exactly one meta entry per file (files=" + files.size() + ", meta=" + metas.size() + ")");
+        }
+        if (files.size() > maxBatchFiles) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "A batch may contain at most " + maxBatchFiles + " files");
+        }
+
+        // All maintenance images of a batch belong to one inspection
+        Long batchInspectionId = inspectionId;
+        boolean hasMaintenance = false;
+        for (ImageUploadDTO meta : metas) {
+            if (meta == null || meta.imageType() != ImageType.MAINTENANCE) {
+                continue;
+            }
+            hasMaintenance = true;
+            if (meta.inspectionId() == null) {
+                continue;
+            }
+            if (batchInspectionId == null) {
+                batchInspectionId = meta.inspectionId();
+            } else if (!Objects.equals(batchInspectionId, meta.inspectionId())) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "All MAINTENANCE images in a batch must belong to the same inspection");
+            }
+        }
+
+        Inspection inspection = null;
+        if (hasMaintenance) {
+            if (batchInspectionId == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "inspectionId is required for MAINTENANCE images");
+            }
+            final Long finalInspectionId = batchInspectionId;
+            inspection = inspectionRepository.findById(finalInspectionId)
+                    .orElseThrow(() -> new NotFoundException("Inspection " + finalInspectionId + " not found"));
+
+            if (inspection.getTransformer() == null || !Objects.equals(inspection.getTransformer().getId(), id)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Inspection does not belong to this transformer");
+            }
+        }
 
+        int n = files.size();
+        String[] errors = new String[n];
+
+        // Write all valid files to storage in parallel
+        List<CompletableFuture<FileStorageService.StoredFile>> writes = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            ImageUploadDTO meta = metas.get(i);
+            MultipartFile file = files.get(i);
+            errors[i] = validateBatchEntry(meta, file);
+            if (errors[i] != null) {
+                writes.add(null);
+                continue;
+            }
+            String subfolder = meta.imageType().name().toLowerCase(Locale.ROOT);
+            writes.add(CompletableFuture.supplyAsync(() -> {
                 try {
-                    String flaskJson = anomalyDetectionService.detectAnomalies(
-                            storage.load(baseline.getStoragePath()),
-                            storage.load(img.getStoragePath()));
-
-                    JsonNode root = objectMapper.readTree(flaskJson);
-
-                    if (root.has("fault_regions")) {
-                        JsonNode faultRegionsNode = root.get("fault_regions");
-
-                        for (JsonNode fr : faultRegionsNode) {
-                            FaultRegion region = new FaultRegion();
-
-                            region.setRegionId(fr.has("id") && !fr.get("id").isNull() ? fr.get("id").asInt() : null);
-                            region.setType(fr.has("type") && !fr.get("type").isNull() ? fr.get("type").asText() : null);
-                            region.setDominantColor(
-                                    fr.has("dominant_color") && !fr.get("dominant_color").isNull()
-                                            ? fr.get("dominant_color").asText()
-                                            : null);
-
-                            List<Integer> rgb = new ArrayList<>();
-                            if (fr.has("color_rgb") && !fr.get("color_rgb").isNull()) {
-                                for (JsonNode c : fr.get("color_rgb")) {
-                                    if (!c.isNull())
-                                        rgb.add(c.asInt());
-                                }
-                            }
-                            region.setColorRgb(rgb);
-
-                            if (fr.has("boundingBox") && !fr.get("boundingBox").isNull()) {
-                                FaultRegion.BoundingBox bb = new FaultRegion.BoundingBox();
-                                JsonNode bbNode = fr.get("boundingBox");
-                                bb.setX(bbNode.has("x") && !bbNode.get("x").isNull() ? bbNode.get("x").asInt() : null);
-                                bb.setY(bbNode.has("y") && !bbNode.get("y").isNull() ? bbNode.get("y").asInt() : null);
-                                bb.setWidth(
-                                        bbNode.has("width") && !bbNode.get("width").isNull() ? bbNode.get("width").asInt()
-                                                : null);
-                                bb.setHeight(
-                                        bbNode.has("height") && !bbNode.get("height").isNull()
-                                                ? bbNode.get("height").asInt()
-                                                : null);
-                                bb.setAreaPx(
-                                        bbNode.has("areaPx") && !bbNode.get("areaPx").isNull()
-                                                ? bbNode.get("areaPx").asInt()
-                                                : null);
-
-                                region.setBoundingBox(bb);
-                            } else if (fr.has("bounding_box") && !fr.get("bounding_box").isNull()) {
-                                FaultRegion.BoundingBox bb = new FaultRegion.BoundingBox();
-                                JsonNode bbNode = fr.get("bounding_box");
-                                bb.setX(bbNode.has("x") && !bbNode.get("x").isNull() ? bbNode.get("x").asInt() : null);
-                                bb.setY(bbNode.has("y") && !bbNode.get("y").isNull() ? bbNode.get("y").asInt() : null);
-                                bb.setWidth(
-                                        bbNode.has("width") && !bbNode.get("width").isNull() ? bbNode.get("width").asInt()
-                                                : null);
-                                bb.setHeight(
-                                        bbNode.has("height") && !bbNode.get("height").isNull()
-                                                ? bbNode.get("height").asInt()
-                                                : null);
-
-                                Integer areaPx = null;
-                                if (bbNode.has("area_px") && !bbNode.get("area_px").isNull()) {
-                                    areaPx = bbNode.get("area_px").asInt();
-                                } else if (bbNode.has("areaPx") && !bbNode.get("areaPx").isNull()) {
-                                    areaPx = bbNode.get("areaPx").asInt();
-                                }
-                                bb.setAreaPx(areaPx);
-
-                                region.setBoundingBox(bb);
-                            }
-
-                            if (fr.has("centroid") && !fr.get("centroid").isNull()) {
-                                FaultRegion.Centroid cent = new FaultRegion.Centroid();
-                                JsonNode centNode = fr.get("centroid");
-                                cent.setX(
-                                        centNode.has("x") && !centNode.get("x").isNull() ? centNode.get("x").asInt()
-                                                : null);
-                                cent.setY(
-                                        centNode.has("y") && !centNode.get("y").isNull() ? centNode.get("y").asInt()
-                                                : null);
-                                region.setCentroid(cent);
-                            }
-
-                            region.setAspectRatio(
-                                    fr.has("aspect_ratio") && !fr.get("aspect_ratio").isNull()
-                                            ? fr.get("aspect_ratio").asDouble()
-                                            : null);
-                            region.setElongated(
-                                    fr.has("elongated") && !fr.get("elongated").isNull()
-                                            ? fr.get("elongated").asBoolean()
-                                            : null);
-                            region.setConnectedToWire(fr.has("connected_to_wire") && !fr.get("connected_to_wire").isNull()
-                                    ? fr.get("connected_to_wire").asBoolean()
-                                    : null);
-                            region.setTag(fr.has("tag") && !fr.get("tag").isNull() ? fr.get("tag").asText() : null);
-                            region.setConfidence(
-                                    fr.has("confidence") && !fr.get("confidence").isNull()
-                                            ? fr.get("confidence").asDouble()
-                                            : null);
-                            region.setImage(img);
-                            faultRegionRepository.save(region);
-                        }
-                    }
-
-                    if (root.has("display_metadata") && !root.get("display_metadata").isNull()) {
-                        DisplayMetadata dm = new DisplayMetadata();
-                        JsonNode dmNode = root.get("display_metadata");
-
-                        if (dmNode.has("box_colors") && !dmNode.get("box_colors").isNull()) {
-                            Map<String, String> boxColors = new HashMap<>();
-                            JsonNode bcNode = dmNode.get("box_colors");
-                            Iterator<String> keys = bcNode.fieldNames();
-                            while (keys.hasNext()) {
-                                String key = keys.next();
-                                JsonNode val = bcNode.get(key);
-                                if (val != null && val.isArray() && val.size() >= 3) {
-                                    String rgbStr = val.get(0).asInt() + "," + val.get(1).asInt() + "," + val.get(2).asInt();
-                                    boxColors.put(key, rgbStr);
-                                }
-                            }
-                            dm.setBoxColors(boxColors);
-                        }
-
-                        if (root.has("timestamp") && !root.get("timestamp").isNull()) {
-                            try {
-                                dm.setTimestamp(LocalDateTime.parse(root.get("timestamp").asText()));
-                            } catch (Exception ex) {
-                                System.err.println("Failed to parse timestamp: " + ex.getMessage());
-                            }
-                        }
-                        dm.setImage(img);
-                        displayMetadataRepository.save(dm);
-                    }
-
-                    anomalyResult = objectMapper.readValue(flaskJson, Object.class);
-
-                    OriginalAnomalyResult originalResult = OriginalAnomalyResult.builder()
-                            .image(img)
-                            .anomalyJson(flaskJson)
-                            .build();
-                    originalAnomalyResultRepository.save(originalResult);
-
-                } catch (Exception e) {
-                    System.err.println("Anomaly detection failed: " + e.getMessage());
-                    e.printStackTrace();
+                    return storage.saveTransformerImage(id, subfolder, file);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
                 }
+            }, storageExecutor));
+        }
+
+        List<TransformerImage> toSave = new ArrayList<>(n);
+        int[] savedIndex = new int[n];
+        for (int i = 0; i < n; i++) {
+            if (writes.get(i) == null) {
+                continue;
+            }
+            try {
+                FileStorageService.StoredFile stored = writes.get(i).join();
+                TransformerImage entity = newImage(t,
+                        metas.get(i).imageType() == ImageType.MAINTENANCE ? inspection : null,
+                        metas.get(i), files.get(i), stored);
+                savedIndex[toSave.size()] = i;
+                toSave.add(entity);
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                errors[i] = "Failed to store file: " + cause.getMessage();
+            }
+        }
+
+        List<TransformerImage> saved;
+        try {
+            saved = images.saveAll(toSave);
+        } catch (RuntimeException e) {
+            toSave.forEach(img -> storage.release(img.getContentHash()));
+            throw e;
+        }
+        histogramService.recordAsync(saved);
+        renditionService.generateAsync(saved);
+        TransformerImage[] byIndex = new TransformerImage[n];
+        for (int k = 0; k < saved.size(); k++) {
+            byIndex[savedIndex[k]] = saved.get(k);
+        }
+
+        // One baseline lookup for the whole batch; detection fans out over the bounded worker pool
+        TransformerImage baseline = null;
+        if (hasMaintenance) {
+            List<TransformerImage> baselineImages = images.findByTransformerIdAndImageTypeOrderByCreatedAtDesc(id,
+                    ImageType.BASELINE);
+            baseline = baselineImages.isEmpty() ? null : baselineImages.get(0);
+        }
+
+        // Maintenance images share the baseline, so detection goes out in batched calls
+        Map<Long, DetectionJob> jobsByImage = new HashMap<>();
+        if (baseline != null) {
+            List<TransformerImage> maintenance = saved.stream()
+                    .filter(img -> img.getImageType() == ImageType.MAINTENANCE)
+                    .toList();
+            for (DetectionJob job : detectionJobService.submitAll(maintenance, baseline, DetectionPriority.BULK)) {
+                jobsByImage.put(job.getImageId(), job);
+            }
+        }
+
+        List<BatchImageUploadResponseDTO.Entry> entries = new ArrayList<>(n);
+        int stored = 0;
+        for (int i = 0; i < n; i++) {
+            String filename = files.get(i).getOriginalFilename();
+            TransformerImage img = byIndex[i];
+            if (img == null) {
+                entries.add(new BatchImageUploadResponseDTO.Entry(i, filename, false, null, null, errors[i]));
+                continue;
             }
+            stored++;
+
+            DetectionJob job = jobsByImage.get(img.getId());
+            DetectionJobDTO detectionJob = job != null ? DetectionJobDTO.fromEntity(job) : null;
+            entries.add(new BatchImageUploadResponseDTO.Entry(i, filename, true, toDTO(img), detectionJob, null));
         }
 
-        return new ImageUploadResponseDTO(imageDTO, anomalyResult);
+        HttpStatus status = !jobsByImage.isEmpty() ? HttpStatus.ACCEPTED : HttpStatus.OK;
+        return ResponseEntity.status(status)
+                .body(new BatchImageUploadResponseDTO(n, stored, n - stored, entries));
     }
 
     @GetMapping("/{id}/images")
@@ -320,21 +329,113 @@ public class TransformerImageController {
         return out;
     }
 
+    @GetMapping("/images/{imageId}/detection-status")
+    public DetectionJobDTO detectionStatus(@PathVariable Long imageId) {
+        if (!images.existsById(imageId)) {
+            throw new NotFoundException("Image " + imageId + " not found");
+        }
+        return detectionJobService.findLatestForImage(imageId)
+                .map(DetectionJobDTO::fromEntity)
+                .orElseThrow(() -> new NotFoundException("No detection job for image " + imageId));
+    }
+
     @GetMapping("/images/{imageId}/raw")
-    public ResponseEntity<?> raw(@PathVariable Long imageId) {
+    public void raw(@PathVariable Long imageId,
+                    @RequestParam(value = "size", required = false) String size,
+                    HttpServletRequest request,
+                    HttpServletResponse response) throws IOException {
         TransformerImage img = images.findById(imageId)
                 .orElseThrow(() -> new NotFoundException("Image " + imageId + " not found"));
-        var res = storage.load(img.getStoragePath());
-        if (!res.exists())
+
+        ImageRenditionService.Rendition rendition;
+        try {
+            rendition = ImageRenditionService.Rendition.fromParam(size);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+
+        var original = storage.load(img.getStoragePath());
+        if (!original.exists())
             throw new NotFoundException("File missing on disk");
 
+        // Stored bytes never change, so the content hash (or the path for legacy uploads) is a strong validator
+        String tag = img.getContentHash() != null ? img.getContentHash()
+                : Integer.toHexString(img.getStoragePath().hashCode()) + "-" + original.contentLength();
+
+        if (rendition != null) {
+            // List views ask for small renditions; fall back to the original if one can't be made
+            String renditionPath = null;
+            try {
+                renditionPath = renditionService.resolve(img, rendition);
+            } catch (IOException e) {
+                System.err.println("Rendition " + rendition + " unavailable for image " + imageId + ": " + e.getMessage());
+            }
+            if (renditionPath != null) {
+                Path file = storage.load(renditionPath).getFile().toPath();
+                ImageFileResponder.serve(request, response, file, hotImages.get(file),
+                        "\"" + tag + "." + rendition.suffix() + "\"", -1, MediaType.IMAGE_JPEG,
+                        "inline; filename=\"" + rendition.suffix() + "-" + img.getFilename() + "\"");
+                return;
+            }
+        }
+
         MediaType mt = Optional.ofNullable(img.getContentType())
                 .map(MediaType::parseMediaType)
                 .orElse(MediaType.APPLICATION_OCTET_STREAM);
+        long lastModified = img.getCreatedAt() != null
+                ? img.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                : -1;
+
+        Path file = original.getFile().toPath();
+        ImageFileResponder.serve(request, response, file, hotImages.get(file),
+                "\"" + tag + "\"", lastModified, mt,
+                "inline; filename=\"" + img.getFilename() + "\"");
+    }
+
+    private String validateBatchEntry(ImageUploadDTO meta, MultipartFile file) {
+        if (file == null || file.isEmpty()) {
+            return "File is empty";
+        }
+        if (meta == null || meta.imageType() == null) {
+            return "imageType is required";
+        }
+        if (meta.uploader() == null || meta.uploader().isBlank()) {
+            return "uploader is required";
+        }
+        if (meta.imageType() == ImageType.BASELINE
+                && (meta.envCondition() == null || meta.envCondition().getWeather() == null)) {
+            return "Baseline image requires envCondition.weather (SUNNY/CLOUDY/RAINY)";
+        }
+        return null;
+    }
+
+    private TransformerImage newImage(Transformer t, Inspection inspection, ImageUploadDTO meta,
+                                      MultipartFile file, FileStorageService.StoredFile stored) {
+        TransformerImage entity = new TransformerImage();
+        entity.setTransformer(t);
+        entity.setInspection(inspection);
+        entity.setImageType(meta.imageType());
+        entity.setEnvCondition(meta.imageType() == ImageType.BASELINE ? meta.envCondition() : null);
+        entity.setUploader(meta.uploader());
+        entity.setFilename(Optional.ofNullable(file.getOriginalFilename()).orElse("upload.bin"));
+        entity.setContentType(Optional.ofNullable(file.getContentType()).orElse(MediaType.APPLICATION_OCTET_STREAM_VALUE));
+        entity.setSizeBytes(file.getSize());
+        entity.setStoragePath(stored.relativePath());
+        entity.setContentHash(stored.contentHash());
+        entity.setCreatedAt(LocalDateTime.now());
+        return entity;
+    }
 
-        return ResponseEntity.ok()
-                .contentType(mt)
-                .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + img.getFilename() + "\"")
-                .body(res);
+    private TransformerImageDTO toDTO(TransformerImage img) {
+        return new TransformerImageDTO(
+                img.getId(),
+                img.getImageType(),
+                img.getUploader(),
+                img.getEnvCondition(),
+                img.getFilename(),
+                img.getCreatedAt(),
+                img.getContentType(),
+                img.getSizeBytes(),
+                img.getInspection() == null ? null : img.getInspection().getId());
     }
 }
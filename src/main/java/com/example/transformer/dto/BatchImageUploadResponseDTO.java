@@ -0,0 +1,19 @@
+package com.example.transformer.dto;
+
+import java.util.List;
+
+public record BatchImageUploadResponseDTO(
+    int total,
+    int stored,
+    int failed,
+    List<Entry> results
+) {
+    public record Entry(
+        int index,
+        String filename,
+        boolean stored,
+        TransformerImageDTO imageData,
+        DetectionJobDTO detectionJob,
+        String error
+    ) {}
+}
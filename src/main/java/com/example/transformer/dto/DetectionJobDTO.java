@@ -0,0 +1,36 @@
+package com.example.transformer.dto;
+
+import com.example.transformer.model.DetectionJob;
+import com.example.transformer.model.DetectionJobStatus;
+import com.example.transformer.model.DetectionPriority;
+import java.time.LocalDateTime;
+
+public record DetectionJobDTO(
+    Long jobId,
+    Long imageId,
+    Long baselineImageId,
+    DetectionJobStatus status,
+    DetectionPriority priority,
+    String error,
+    int attempts,
+    LocalDateTime nextAttemptAt,
+    LocalDateTime createdAt,
+    LocalDateTime startedAt,
+    LocalDateTime finishedAt
+) {
+    public static DetectionJobDTO fromEntity(DetectionJob job) {
+        return new DetectionJobDTO(
+            job.getId(),
+            job.getImageId(),
+            job.getBaselineImageId(),
+            job.getStatus(),
+            job.getPriority(),
+            job.getError(),
+            job.getAttempts(),
+            job.getNextAttemptAt(),
+            job.getCreatedAt(),
+            job.getStartedAt(),
+            job.getFinishedAt()
+        );
+    }
+}
@@ -2,5 +2,6 @@ package com.example.transformer.dto;
 
 public record ImageUploadResponseDTO(
     TransformerImageDTO imageData,
-    Object anomalyDetectionResult
+    Object anomalyDetectionResult,
+    DetectionJobDTO detectionJob
 ) {}
@@ -0,0 +1,14 @@
+package com.example.transformer.dto;
+
+import com.example.transformer.model.RedetectionScope;
+import jakarta.validation.constraints.NotNull;
+import java.time.LocalDateTime;
+
+public record RedetectionRequestDTO(
+    @NotNull(message = "Scope is required") RedetectionScope scope,
+    Long transformerId,       // TRANSFORMER scope
+    Long inspectionId,        // INSPECTION scope
+    LocalDateTime from,       // DATE_RANGE scope: images uploaded at or after this time
+    LocalDateTime to,         // DATE_RANGE scope: and before this time
+    Long configId             // Config to re-detect with; defaults to the active one
+) {}
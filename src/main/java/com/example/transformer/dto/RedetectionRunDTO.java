@@ -0,0 +1,46 @@
+package com.example.transformer.dto;
+
+import com.example.transformer.model.DetectionJobStatus;
+import com.example.transformer.model.RedetectionRun;
+import com.example.transformer.model.RedetectionScope;
+import com.example.transformer.model.RedetectionStatus;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+public record RedetectionRunDTO(
+    Long id,
+    RedetectionScope scope,
+    Long transformerId,
+    Long inspectionId,
+    LocalDateTime from,
+    LocalDateTime to,
+    Long configId,
+    RedetectionStatus status,
+    int enqueued,
+    int skipped,
+    boolean exhausted,
+    Map<DetectionJobStatus, Long> jobs,
+    String requestedBy,
+    LocalDateTime createdAt,
+    LocalDateTime finishedAt
+) {
+    public static RedetectionRunDTO fromEntity(RedetectionRun run, Map<DetectionJobStatus, Long> jobCounts) {
+        return new RedetectionRunDTO(
+            run.getId(),
+            run.getScope(),
+            run.getTransformerId(),
+            run.getInspectionId(),
+            run.getCreatedFrom(),
+            run.getCreatedTo(),
+            run.getConfigId(),
+            run.getStatus(),
+            run.getEnqueued(),
+            run.getSkipped(),
+            run.isExhausted(),
+            jobCounts,
+            run.getRequestedBy(),
+            run.getCreatedAt(),
+            run.getFinishedAt()
+        );
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.transformer.imaging;
+
+/**
+ * Per-pixel kernels for thermal image comparison over flat arrays. Images are
+ * packed 0xRRGGBB ints; channels are unsigned bytes. HSV uses the OpenCV 8-bit
+ * ranges (H 0-179, S and V 0-255). Every kernel works on the index range
+ * [{@code from}, {@code to}) so callers can split large frames into tiles.
+ */
+public interface PixelKernels {
+
+    /** Convert packed RGB pixels to hue, saturation and value planes. */
+    void rgbToHsv(int[] rgb, byte[] h, byte[] s, byte[] v, int from, int to);
+
+    /** {@code out[i] = |a[i] - b[i]|} on unsigned bytes. */
+    void absDiff(byte[] a, byte[] b, byte[] out, int from, int to);
+
+    /** Sum of unsigned byte values. */
+    long sum(byte[] values, int from, int to);
+
+    /**
+     * Add the hue of every pixel with saturation and value at or above the
+     * given minimums to {@code counts}, whose length is the number of bins.
+     */
+    void hueHistogram(byte[] h, byte[] s, byte[] v, int sMin, int vMin, int[] counts, int from, int to);
+
+    /** Short name for logs and metrics. */
+    String name();
+
+    /**
+     * The Vector API implementation when the {@code jdk.incubator.vector}
+     * module is present and the CPU has wide enough vectors, otherwise the
+     * scalar one.
+     */
+    static PixelKernels best() {
+        try {
+            Class<?> vector = Class.forName("com.example.transformer.imaging.VectorPixelKernels");
+            if ((Boolean) vector.getMethod("isSupported").invoke(null)) {
+                return (PixelKernels) vector.getConstructor().newInstance();
+            }
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // Module not resolved (started without --add-modules jdk.incubator.vector)
+        }
+        return new ScalarPixelKernels();
+    }
+}
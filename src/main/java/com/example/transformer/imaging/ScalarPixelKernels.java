@@ -0,0 +1,78 @@
+package com.example.transformer.imaging;
+
+/**
+ * Plain loop implementation of {@link PixelKernels}; the reference the vector
+ * kernels must match bit for bit.
+ */
+public class ScalarPixelKernels implements PixelKernels {
+
+    @Override
+    public void rgbToHsv(int[] rgb, byte[] h, byte[] s, byte[] v, int from, int to) {
+        for (int i = from; i < to; i++) {
+            int p = rgb[i];
+            int r = (p >> 16) & 0xFF;
+            int g = (p >> 8) & 0xFF;
+            int b = p & 0xFF;
+            int max = Math.max(r, Math.max(g, b));
+            int min = Math.min(r, Math.min(g, b));
+            int delta = max - min;
+            int hue = 0;
+            if (delta > 0) {
+                float deg;
+                if (max == r) {
+                    deg = 60f * (g - b) / delta;
+                } else if (max == g) {
+                    deg = 120f + 60f * (b - r) / delta;
+                } else {
+                    deg = 240f + 60f * (r - g) / delta;
+                }
+                if (deg < 0) {
+                    deg += 360f;
+                }
+                hue = (int) (deg / 2f + 0.5f);
+                if (hue >= 180) {
+                    hue -= 180;
+                }
+            }
+            h[i] = (byte) hue;
+            s[i] = (byte) (max == 0 ? 0 : (int) ((255f * delta + (max >> 1)) / max));
+            v[i] = (byte) max;
+        }
+    }
+
+    @Override
+    public void absDiff(byte[] a, byte[] b, byte[] out, int from, int to) {
+        for (int i = from; i < to; i++) {
+            out[i] = (byte) Math.abs((a[i] & 0xFF) - (b[i] & 0xFF));
+        }
+    }
+
+    @Override
+    public long sum(byte[] values, int from, int to) {
+        long total = 0;
+        for (int i = from; i < to; i++) {
+            total += values[i] & 0xFF;
+        }
+        return total;
+    }
+
+    @Override
+    public void hueHistogram(byte[] h, byte[] s, byte[] v, int sMin, int vMin, int[] counts, int from, int to) {
+        int bins = counts.length;
+        // Hue -> bin lookup; a scatter increment per pixel is the hot path
+        int[] binOf = new int[256];
+        for (int hue = 0; hue < 256; hue++) {
+            binOf[hue] = Math.min(bins - 1, hue * bins / 180);
+        }
+        for (int i = from; i < to; i++) {
+            if ((s[i] & 0xFF) >= sMin && (v[i] & 0xFF) >= vMin) {
+                counts[binOf[h[i] & 0xFF]]++;
+            }
+        }
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.transformer.imaging;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link PixelKernels} on the JDK Vector API. Needs the JVM started with
+ * {@code --add-modules jdk.incubator.vector}; {@link PixelKernels#best()}
+ * falls back to {@link ScalarPixelKernels} otherwise. Loop tails and the
+ * histogram scatter use the scalar code.
+ */
+public class VectorPixelKernels extends ScalarPixelKernels {
+
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_PREFERRED;
+    // Byte vectors with one lane per int lane, for narrowing HSV results
+    private static final VectorSpecies<Byte> NARROW = INTS.length() >= 8
+            ? VectorSpecies.of(byte.class, VectorShape.forBitSize(INTS.length() * 8))
+            : null;
+
+    /** Whether vectors are wide enough to narrow int lanes to a byte vector. */
+    public static boolean isSupported() {
+        return NARROW != null && FLOATS.length() == INTS.length();
+    }
+
+    @Override
+    public void rgbToHsv(int[] rgb, byte[] h, byte[] s, byte[] v, int from, int to) {
+        int step = INTS.length();
+        int i = from;
+        for (; i <= to - step; i += step) {
+            IntVector p = IntVector.fromArray(INTS, rgb, i);
+            IntVector r = p.lanewise(VectorOperators.LSHR, 16).and(0xFF);
+            IntVector g = p.lanewise(VectorOperators.LSHR, 8).and(0xFF);
+            IntVector b = p.and(0xFF);
+            IntVector max = r.max(g).max(b);
+            IntVector min = r.min(g).min(b);
+            IntVector delta = max.sub(min);
+
+            FloatVector fr = toFloat(r);
+            FloatVector fg = toFloat(g);
+            FloatVector fb = toFloat(b);
+            FloatVector fdelta = toFloat(delta);
+
+            FloatVector hr = fg.sub(fb).mul(60f).div(fdelta);
+            FloatVector hg = fb.sub(fr).mul(60f).div(fdelta).add(120f);
+            FloatVector hb = fr.sub(fg).mul(60f).div(fdelta).add(240f);
+            VectorMask<Float> maxIsR = max.compare(VectorOperators.EQ, r).cast(FLOATS);
+            VectorMask<Float> maxIsG = max.compare(VectorOperators.EQ, g).cast(FLOATS);
+            FloatVector deg = hb.blend(hg, maxIsG).blend(hr, maxIsR);
+            deg = deg.add(360f, deg.compare(VectorOperators.LT, 0f));
+
+            IntVector hue = toInt(deg.mul(0.5f).add(0.5f));
+            hue = hue.sub(180, hue.compare(VectorOperators.GE, 180));
+            hue = hue.blend(0, delta.compare(VectorOperators.EQ, 0));
+
+            FloatVector fmax = toFloat(max);
+            IntVector sat = toInt(fdelta.mul(255f).add(toFloat(max.lanewise(VectorOperators.ASHR, 1))).div(fmax));
+            sat = sat.blend(0, max.compare(VectorOperators.EQ, 0));
+
+            narrow(hue).intoArray(h, i);
+            narrow(sat).intoArray(s, i);
+            narrow(max).intoArray(v, i);
+        }
+        super.rgbToHsv(rgb, h, s, v, i, to);
+    }
+
+    @Override
+    public void absDiff(byte[] a, byte[] b, byte[] out, int from, int to) {
+        int step = BYTES.length();
+        int i = from;
+        for (; i <= to - step; i += step) {
+            // Flip the sign bit so signed min/max order unsigned bytes; max - min wraps to |a - b|
+            ByteVector va = ByteVector.fromArray(BYTES, a, i).lanewise(VectorOperators.XOR, (byte) 0x80);
+            ByteVector vb = ByteVector.fromArray(BYTES, b, i).lanewise(VectorOperators.XOR, (byte) 0x80);
+            va.max(vb).sub(va.min(vb)).intoArray(out, i);
+        }
+        super.absDiff(a, b, out, i, to);
+    }
+
+    @Override
+    public long sum(byte[] values, int from, int to) {
+        int step = BYTES.length();
+        int parts = step / INTS.length();
+        IntVector acc = IntVector.zero(INTS);
+        long total = 0;
+        int i = from;
+        int sinceFlush = 0;
+        for (; i <= to - step; i += step) {
+            ByteVector bytes = ByteVector.fromArray(BYTES, values, i);
+            for (int part = 0; part < parts; part++) {
+                acc = acc.add(((IntVector) bytes.convertShape(VectorOperators.B2I, INTS, part)).and(0xFF));
+            }
+            // Each lane gains at most 255 * parts per step; flush well before int overflow
+            if (++sinceFlush == 1 << 16) {
+                total += acc.reduceLanesToLong(VectorOperators.ADD);
+                acc = IntVector.zero(INTS);
+                sinceFlush = 0;
+            }
+        }
+        total += acc.reduceLanesToLong(VectorOperators.ADD);
+        return total + super.sum(values, i, to);
+    }
+
+    @Override
+    public String name() {
+        return "vector-" + INTS.vectorBitSize();
+    }
+
+    private static FloatVector toFloat(IntVector v) {
+        return (FloatVector) v.convertShape(VectorOperators.I2F, FLOATS, 0);
+    }
+
+    private static IntVector toInt(FloatVector v) {
+        return (IntVector) v.convertShape(VectorOperators.F2I, INTS, 0);
+    }
+
+    private static ByteVector narrow(IntVector v) {
+        return (ByteVector) v.convertShape(VectorOperators.I2B, NARROW, 0);
+    }
+}
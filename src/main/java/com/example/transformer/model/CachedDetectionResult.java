@@ -0,0 +1,45 @@
+package com.example.transformer.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * Detection server response for one (baseline bytes, candidate bytes, config)
+ * triple. Identical triples always produce the same result, so it can be
+ * reused instead of calling Flask again.
+ */
+@Entity
+@Table(name = "detection_result_cache",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"baseline_hash", "candidate_hash", "config_id"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CachedDetectionResult {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "baseline_hash", nullable = false, length = 64)
+    private String baselineHash;
+
+    @Column(name = "candidate_hash", nullable = false, length = 64)
+    private String candidateHash;
+
+    @Column(name = "config_id", nullable = false)
+    private Long configId;
+
+    @Column(name = "response_json", columnDefinition = "TEXT", nullable = false)
+    private String responseJson;
+
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
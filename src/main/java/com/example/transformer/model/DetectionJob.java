@@ -0,0 +1,82 @@
+package com.example.transformer.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "detection_jobs")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DetectionJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Maintenance image the detection runs for
+    @Column(name = "image_id", nullable = false)
+    private Long imageId;
+
+    // Baseline image it is compared against
+    @Column(name = "baseline_image_id", nullable = false)
+    private Long baselineImageId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private DetectionJobStatus status;
+
+    // Scheduling lane; deferred jobs resume in the same lane
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    @Builder.Default
+    private DetectionPriority priority = DetectionPriority.INTERACTIVE;
+
+    @Column(name = "error", columnDefinition = "TEXT")
+    private String error;
+
+    // Failed detection attempts so far; reset when an admin requeues the job
+    @Column(nullable = false)
+    @Builder.Default
+    private int attempts = 0;
+
+    // When a DEFERRED job may be retried; null means as soon as the detection tier accepts calls
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt;
+
+    // Config to detect with; null means the active one
+    @Column(name = "config_id")
+    private Long configId;
+
+    // Re-detection run that created the job, if any
+    @Column(name = "redetection_run_id")
+    private Long redetectionRunId;
+
+    // Node holding the job in memory while QUEUED or RUNNING, and its last lease renewal
+    @Column(name = "owner_id", length = 64)
+    private String ownerId;
+
+    @Column(name = "heartbeat_at")
+    private LocalDateTime heartbeatAt;
+
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    // Bumped by every save and status UPDATE, so a node whose lease was lost can't overwrite the job
+    @Version
+    private Long version;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
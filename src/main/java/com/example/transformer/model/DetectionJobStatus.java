@@ -0,0 +1,5 @@
+package com.example.transformer.model;
+
+public enum DetectionJobStatus {
+  QUEUED, RUNNING, DEFERRED, COMPLETED, FAILED, DEAD_LETTER
+}
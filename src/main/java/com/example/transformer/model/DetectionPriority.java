@@ -0,0 +1,9 @@
+package com.example.transformer.model;
+
+/**
+ * Scheduling lane of a detection job. Interactive uploads are served ahead of
+ * bulk uploads, which are served ahead of background re-detection.
+ */
+public enum DetectionPriority {
+  INTERACTIVE, BULK, BACKGROUND
+}
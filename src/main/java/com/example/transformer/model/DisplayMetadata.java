@@ -8,7 +8,8 @@ import java.util.Map;
 @Table(name = "display_metadata")
 public class DisplayMetadata {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "display_metadata_seq")
+    @SequenceGenerator(name = "display_metadata_seq", sequenceName = "display_metadata_seq", allocationSize = 50)
     private Long id;
 
     @ElementCollection
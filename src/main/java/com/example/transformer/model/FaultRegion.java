@@ -7,8 +7,10 @@ import java.util.List;
 @Entity
 @Table(name = "fault_regions")
 public class FaultRegion {
+    // Pooled sequence (not IDENTITY) so a detection's regions are inserted in JDBC batches
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "fault_regions_seq")
+    @SequenceGenerator(name = "fault_regions_seq", sequenceName = "fault_regions_seq", allocationSize = 50)
     private Long dbId;
 
     private Integer regionId;
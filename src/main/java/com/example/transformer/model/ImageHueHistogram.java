@@ -0,0 +1,60 @@
+package com.example.transformer.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+import java.time.LocalDateTime;
+
+/**
+ * Hue histogram of one stored image over the pixels at or above the ROI
+ * saturation/value minimums, plus the image's mean brightness. Computed once
+ * at upload so comparisons don't have to decode the image again.
+ */
+@Entity
+@Table(name = "image_hue_histograms",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"image_id", "bin_count", "saturation_min", "value_min"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ImageHueHistogram {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "image_id", nullable = false)
+    private Long imageId;
+
+    @Column(name = "bin_count", nullable = false)
+    private Integer binCount;                // h_bins of the config it was computed for
+
+    @Column(name = "saturation_min", nullable = false)
+    private Integer saturationMin;           // roi_s_min
+
+    @Column(name = "value_min", nullable = false)
+    private Integer valueMin;                // roi_v_min
+
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "counts", nullable = false)
+    private int[] counts;
+
+    @Column(name = "counted_pixels", nullable = false)
+    private Long countedPixels;
+
+    @Column(name = "total_pixels", nullable = false)
+    private Long totalPixels;
+
+    @Column(name = "mean_value", nullable = false)
+    private Double meanValue;                // mean HSV value (brightness), 0-255
+
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
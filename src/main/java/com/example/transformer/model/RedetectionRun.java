@@ -0,0 +1,82 @@
+package com.example.transformer.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "redetection_runs")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RedetectionRun {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private RedetectionScope scope;
+
+    // Scope parameters; only those of the chosen scope are set
+    @Column(name = "transformer_id")
+    private Long transformerId;
+
+    @Column(name = "inspection_id")
+    private Long inspectionId;
+
+    @Column(name = "created_from")
+    private LocalDateTime createdFrom;
+
+    @Column(name = "created_to")
+    private LocalDateTime createdTo;
+
+    // Config every image is re-detected with
+    @Column(name = "config_id", nullable = false)
+    private Long configId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private RedetectionStatus status;
+
+    // Checkpoint: jobs exist for every image in scope with an id up to this one
+    @Column(name = "cursor_image_id", nullable = false)
+    @Builder.Default
+    private long cursorImageId = 0;
+
+    // Detection jobs created so far
+    @Column(nullable = false)
+    @Builder.Default
+    private int enqueued = 0;
+
+    // Images skipped because their transformer has no baseline
+    @Column(nullable = false)
+    @Builder.Default
+    private int skipped = 0;
+
+    // Cursor has passed the last image in scope; the run completes once its jobs settle
+    @Column(nullable = false)
+    @Builder.Default
+    private boolean exhausted = false;
+
+    @Column(name = "requested_by")
+    private String requestedBy;
+
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    // Several nodes may feed the same run; only one can advance the cursor from a given checkpoint
+    @Version
+    private Long version;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
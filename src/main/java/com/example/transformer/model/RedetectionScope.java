@@ -0,0 +1,8 @@
+package com.example.transformer.model;
+
+/**
+ * Which maintenance images a re-detection run covers.
+ */
+public enum RedetectionScope {
+  FLEET, TRANSFORMER, INSPECTION, DATE_RANGE
+}
@@ -0,0 +1,5 @@
+package com.example.transformer.model;
+
+public enum RedetectionStatus {
+  RUNNING, COMPLETED, CANCELLED
+}
@@ -34,6 +34,9 @@ public class TransformerImage {
   private Long sizeBytes;
   private String storagePath;
 
+  @Column(name = "content_hash", length = 64)
+  private String contentHash;              // SHA-256 of the stored bytes (null for legacy uploads)
+
   @Column(name = "created_at", updatable = false, insertable = false)
   private LocalDateTime createdAt;
 }
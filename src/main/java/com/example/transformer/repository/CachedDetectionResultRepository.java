@@ -0,0 +1,14 @@
+package com.example.transformer.repository;
+
+import com.example.transformer.model.CachedDetectionResult;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface CachedDetectionResultRepository extends JpaRepository<CachedDetectionResult, Long> {
+
+    Optional<CachedDetectionResult> findByBaselineHashAndCandidateHashAndConfigId(
+            String baselineHash, String candidateHash, Long configId);
+}
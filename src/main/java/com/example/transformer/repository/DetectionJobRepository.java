@@ -0,0 +1,100 @@
+package com.example.transformer.repository;
+
+import com.example.transformer.model.DetectionJob;
+import com.example.transformer.model.DetectionJobStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface DetectionJobRepository extends JpaRepository<DetectionJob, Long> {
+
+    Optional<DetectionJob> findFirstByImageIdOrderByCreatedAtDescIdDesc(Long imageId);
+
+    List<DetectionJob> findByStatusOrderByCreatedAtAsc(DetectionJobStatus status, Pageable pageable);
+
+    List<DetectionJob> findByStatusOrderByCreatedAtDescIdDesc(DetectionJobStatus status, Pageable pageable);
+
+    // Jobs in this status whose retry time has come, oldest first
+    @Query("SELECT j FROM DetectionJob j WHERE j.status = :status"
+            + " AND (j.nextAttemptAt IS NULL OR j.nextAttemptAt <= :now) ORDER BY j.createdAt ASC")
+    List<DetectionJob> findDue(@Param("status") DetectionJobStatus status,
+                               @Param("now") LocalDateTime now,
+                               Pageable pageable);
+
+    boolean existsByRedetectionRunIdAndStatusIn(Long redetectionRunId, Collection<DetectionJobStatus> statuses);
+
+    // [status, count] rows for the jobs of a re-detection run
+    @Query("SELECT j.status, COUNT(j) FROM DetectionJob j WHERE j.redetectionRunId = :runId GROUP BY j.status")
+    List<Object[]> countByStatusForRedetectionRun(@Param("runId") Long runId);
+
+    // [imageId, baselineImageId] of the latest job of each of the images
+    @Query("SELECT j.imageId, j.baselineImageId FROM DetectionJob j WHERE j.id IN"
+            + " (SELECT MAX(j2.id) FROM DetectionJob j2 WHERE j2.imageId IN :imageIds GROUP BY j2.imageId)")
+    List<Object[]> findLatestBaselineIds(@Param("imageIds") Collection<Long> imageIds);
+
+    // Fail the jobs of a cancelled run that haven't started
+    @Transactional
+    @Modifying
+    @Query("UPDATE DetectionJob j SET j.status = com.example.transformer.model.DetectionJobStatus.FAILED,"
+            + " j.error = :error, j.finishedAt = :now, j.version = j.version + 1 WHERE j.redetectionRunId = :runId"
+            + " AND j.status IN (com.example.transformer.model.DetectionJobStatus.QUEUED,"
+            + " com.example.transformer.model.DetectionJobStatus.DEFERRED)")
+    int cancelPending(@Param("runId") Long runId, @Param("error") String error, @Param("now") LocalDateTime now);
+
+    // Compare-and-set like transition(), also taking the job's lease for this node
+    @Transactional
+    @Modifying
+    @Query("UPDATE DetectionJob j SET j.status = :to, j.ownerId = :owner, j.heartbeatAt = :now,"
+            + " j.version = j.version + 1 WHERE j.id = :id AND j.status = :from")
+    int claim(@Param("id") Long id,
+              @Param("from") DetectionJobStatus from,
+              @Param("to") DetectionJobStatus to,
+              @Param("owner") String owner,
+              @Param("now") LocalDateTime now);
+
+    // claim() from QUEUED to RUNNING, also stamping the start
+    @Transactional
+    @Modifying
+    @Query("UPDATE DetectionJob j SET j.status = com.example.transformer.model.DetectionJobStatus.RUNNING,"
+            + " j.ownerId = :owner, j.heartbeatAt = :now, j.startedAt = :now, j.version = j.version + 1"
+            + " WHERE j.id = :id AND j.status = com.example.transformer.model.DetectionJobStatus.QUEUED")
+    int start(@Param("id") Long id,
+              @Param("owner") String owner,
+              @Param("now") LocalDateTime now);
+
+    // Renew the leases of the jobs a node holds. Not versioned: the holder's copy stays current
+    @Transactional
+    @Modifying
+    @Query("UPDATE DetectionJob j SET j.heartbeatAt = :now WHERE j.ownerId = :owner"
+            + " AND j.status IN (com.example.transformer.model.DetectionJobStatus.QUEUED,"
+            + " com.example.transformer.model.DetectionJobStatus.RUNNING)")
+    int heartbeat(@Param("owner") String owner, @Param("now") LocalDateTime now);
+
+    // Hand QUEUED/RUNNING jobs whose lease lapsed (their node is gone) back to the deferred sweep
+    @Transactional
+    @Modifying
+    @Query("UPDATE DetectionJob j SET j.status = com.example.transformer.model.DetectionJobStatus.DEFERRED,"
+            + " j.nextAttemptAt = NULL, j.ownerId = NULL, j.version = j.version + 1"
+            + " WHERE j.status IN (com.example.transformer.model.DetectionJobStatus.QUEUED,"
+            + " com.example.transformer.model.DetectionJobStatus.RUNNING)"
+            + " AND (j.heartbeatAt IS NULL OR j.heartbeatAt < :cutoff)")
+    int reclaimOrphaned(@Param("cutoff") LocalDateTime cutoff);
+
+    // Compare-and-set on status so only one caller wins a transition
+    @Transactional
+    @Modifying
+    @Query("UPDATE DetectionJob j SET j.status = :to, j.version = j.version + 1 WHERE j.id = :id AND j.status = :from")
+    int transition(@Param("id") Long id,
+                   @Param("from") DetectionJobStatus from,
+                   @Param("to") DetectionJobStatus to);
+}
@@ -0,0 +1,14 @@
+package com.example.transformer.repository;
+
+import com.example.transformer.model.ImageHueHistogram;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface ImageHueHistogramRepository extends JpaRepository<ImageHueHistogram, Long> {
+
+    Optional<ImageHueHistogram> findByImageIdAndBinCountAndSaturationMinAndValueMin(Long imageId, Integer binCount,
+            Integer saturationMin, Integer valueMin);
+}
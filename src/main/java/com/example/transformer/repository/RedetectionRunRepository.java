@@ -0,0 +1,17 @@
+package com.example.transformer.repository;
+
+import com.example.transformer.model.RedetectionRun;
+import com.example.transformer.model.RedetectionStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface RedetectionRunRepository extends JpaRepository<RedetectionRun, Long> {
+
+    List<RedetectionRun> findByStatusOrderByIdAsc(RedetectionStatus status);
+
+    List<RedetectionRun> findAllByOrderByIdDesc(Pageable pageable);
+}
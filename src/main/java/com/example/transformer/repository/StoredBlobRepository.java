@@ -0,0 +1,36 @@
+package com.example.transformer.repository;
+
+import com.example.transformer.model.StoredBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface StoredBlobRepository extends JpaRepository<StoredBlob, String> {
+
+    // Serialize acquire/release of one hash across nodes until the caller's transaction ends
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Query(value = "SELECT COUNT(*) FROM (SELECT pg_advisory_xact_lock(hashtext(:hash))) l", nativeQuery = true)
+    long lock(@Param("hash") String hash);
+
+    // Insert the blob with one reference, or add a reference to an existing one
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO stored_blobs (content_hash, storage_path, size_bytes, ref_count, created_at) "
+            + "VALUES (:hash, :path, :size, 1, CURRENT_TIMESTAMP) "
+            + "ON CONFLICT (content_hash) DO UPDATE SET ref_count = stored_blobs.ref_count + 1, "
+            + "storage_path = EXCLUDED.storage_path", nativeQuery = true)
+    int acquire(@Param("hash") String hash, @Param("path") String path, @Param("size") long size);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE StoredBlob b SET b.refCount = b.refCount - 1 WHERE b.contentHash = :hash")
+    int decrementRefCount(@Param("hash") String hash);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM StoredBlob b WHERE b.contentHash = :hash AND b.refCount <= 0")
+    int deleteIfUnreferenced(@Param("hash") String hash);
+}
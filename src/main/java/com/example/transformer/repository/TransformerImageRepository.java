@@ -2,7 +2,10 @@ package com.example.transformer.repository;
 
 import com.example.transformer.model.TransformerImage;
 import com.example.transformer.model.ImageType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 public interface TransformerImageRepository extends JpaRepository<TransformerImage, Long> {
@@ -15,5 +18,16 @@ public interface TransformerImageRepository extends JpaRepository<TransformerIma
         Long inspectionId
   );
   List<TransformerImage> findByInspectionId(Long inspectionId);
+  List<TransformerImage> findByTransformerIdInAndImageTypeOrderByCreatedAtDesc(
+        Collection<Long> transformerIds, ImageType imageType);
+
+  // Keyset pages over the images of a re-detection scope: ids after the cursor, in id order
+  List<TransformerImage> findByImageTypeAndIdGreaterThanOrderByIdAsc(ImageType imageType, Long afterId, Pageable pageable);
+  List<TransformerImage> findByTransformerIdAndImageTypeAndIdGreaterThanOrderByIdAsc(
+        Long transformerId, ImageType imageType, Long afterId, Pageable pageable);
+  List<TransformerImage> findByInspectionIdAndImageTypeAndIdGreaterThanOrderByIdAsc(
+        Long inspectionId, ImageType imageType, Long afterId, Pageable pageable);
+  List<TransformerImage> findByImageTypeAndCreatedAtGreaterThanEqualAndCreatedAtLessThanAndIdGreaterThanOrderByIdAsc(
+        ImageType imageType, LocalDateTime from, LocalDateTime to, Long afterId, Pageable pageable);
 
 }
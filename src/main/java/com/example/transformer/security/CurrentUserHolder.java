@@ -1,6 +1,12 @@
 // src/main/java/com/example/transformer/security/CurrentUserHolder.java
 package com.example.transformer.security;
 
+/**
+ * User of the current request, set and cleared by {@link AuthFilter} around
+ * each request. Bound to the request's thread, platform or virtual; code run
+ * on the detection/storage executors doesn't see it and must be handed the
+ * user explicitly.
+ */
 public class CurrentUserHolder {
 
     private static final ThreadLocal<SessionUser> CURRENT = new ThreadLocal<>();
@@ -0,0 +1,90 @@
+package com.example.transformer.service;
+
+/**
+ * Concurrency limit learned with additive-increase/multiplicative-decrease.
+ * Every successful call is a latency sample: a call slower than
+ * {@code tolerance} times the best recent latency, or one that failed, cuts
+ * the limit by {@code backoff}; a fast call made while at least half the
+ * limit was in use grows it by {@code 1/limit}, i.e. about one slot per
+ * round of calls. The best latency seen is the baseline; it is re-learned
+ * when calls are still slow at the minimum limit, since latency at that point
+ * reflects the backend itself rather than queueing. Calls that were turned
+ * away without doing the work (e.g. a 4xx) only give their slot back, so
+ * their short latency doesn't pull the baseline down.
+ */
+public class AimdConcurrencyLimit {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoff;
+    private final double tolerance;
+
+    private double limit;
+    private int inFlight;
+    private double minRttNanos = Double.NaN;
+    private double smoothedRttNanos = Double.NaN;
+
+    public AimdConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double backoff, double tolerance) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.backoff = backoff;
+        this.tolerance = tolerance;
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+    }
+
+    /**
+     * Claim a slot. Returns the number of calls in flight including this one,
+     * or -1 if the limit is reached and the call should be rejected.
+     */
+    public synchronized int tryAcquire() {
+        if (inFlight >= (int) limit) {
+            return -1;
+        }
+        return ++inFlight;
+    }
+
+    /**
+     * Release a slot claimed by {@link #tryAcquire()} and feed back the call's latency.
+     *
+     * @param inFlightAtStart value returned by {@code tryAcquire}
+     * @param failed          whether the call failed in a way that suggests overload
+     */
+    public synchronized void release(int inFlightAtStart, long rttNanos, boolean failed) {
+        inFlight--;
+
+        smoothedRttNanos = Double.isNaN(smoothedRttNanos)
+                ? rttNanos
+                : smoothedRttNanos * 0.9 + rttNanos * 0.1;
+        if (Double.isNaN(minRttNanos) || rttNanos < minRttNanos) {
+            minRttNanos = rttNanos;
+        }
+
+        if (failed || rttNanos > minRttNanos * tolerance) {
+            if (!failed && limit <= minLimit) {
+                // Already at the floor limit, so this is the unloaded latency now; the old floor is stale
+                minRttNanos = rttNanos;
+            }
+            limit = Math.max(minLimit, limit * backoff);
+        } else if (inFlightAtStart * 2 >= limit) {
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+        }
+    }
+
+    /** Release a slot claimed by {@link #tryAcquire()} without feeding back a sample. */
+    public synchronized void release() {
+        inFlight--;
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /** Smoothed call latency in nanoseconds, or 0 before the first sample. */
+    public synchronized long getSmoothedRttNanos() {
+        return Double.isNaN(smoothedRttNanos) ? 0 : (long) smoothedRttNanos;
+    }
+}
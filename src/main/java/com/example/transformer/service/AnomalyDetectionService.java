@@ -1,7 +1,6 @@
 package com.example.transformer.service;
 
-import com.example.transformer.model.AnomalyDetectionConfig;
-import com.example.transformer.repository.AnomalyDetectionConfigRepository;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ByteArrayResource;
@@ -10,47 +9,82 @@ import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Service
 public class AnomalyDetectionService {
 
-    @Value("${anomaly.detection.api.url:http://localhost:5000}")
-    private String flaskApiUrl;
-
     private final RestTemplate restTemplate;
-    private final AnomalyDetectionConfigRepository configRepository;
+    private final DetectionConfigCache configCache;
+    private final FlaskCallGuard callGuard;
+    private final FlaskAsyncClient asyncClient;
+    private final DetectionWorkerPool workerPool;
     private final ObjectMapper objectMapper;
+    private final LocalDetectionEngine localEngine;
+    private final boolean useLocalEngine;
+    private final int maxBatchCandidates;
+    // Off by default, and turned off when the server turns out not to have the batch endpoint
+    private volatile boolean batchEnabled;
 
     public AnomalyDetectionService(RestTemplate restTemplate,
-            AnomalyDetectionConfigRepository configRepository,
-            ObjectMapper objectMapper) {
+            DetectionConfigCache configCache,
+            FlaskCallGuard callGuard,
+            FlaskAsyncClient asyncClient,
+            DetectionWorkerPool workerPool,
+            ObjectMapper objectMapper,
+            LocalDetectionEngine localEngine,
+            @Value("${anomaly.detection.engine:flask}") String engine,
+            @Value("${anomaly.detection.batch.enabled:false}") boolean batchEnabled,
+            @Value("${anomaly.detection.batch.max-candidates:16}") int maxBatchCandidates) {
         this.restTemplate = restTemplate;
-        this.configRepository = configRepository;
+        this.configCache = configCache;
+        this.callGuard = callGuard;
+        this.asyncClient = asyncClient;
+        this.workerPool = workerPool;
         this.objectMapper = objectMapper;
+        this.localEngine = localEngine;
+        this.useLocalEngine = switch (engine.trim().toLowerCase()) {
+            case "flask" -> false;
+            case "local" -> true;
+            default -> throw new IllegalArgumentException(
+                    "anomaly.detection.engine must be 'flask' or 'local', got '" + engine + "'");
+        };
+        this.batchEnabled = batchEnabled;
+        this.maxBatchCandidates = maxBatchCandidates;
     }
 
     public String detectAnomalies(Resource baselineImage, Resource maintenanceImage) {
+        return detectAnomalies(baselineImage, maintenanceImage, configCache.current());
+    }
+
+    /**
+     * Run detection with a specific config snapshot, so callers that key results
+     * by config ID use exactly the config they keyed on.
+     */
+    public String detectAnomalies(Resource baselineImage, Resource maintenanceImage,
+            DetectionConfigCache.Snapshot config) {
+        if (useLocalEngine) {
+            return localEngine.detect(baselineImage, maintenanceImage, config.config());
+        }
+
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.MULTIPART_FORM_DATA);
 
-        // Get active configuration from database
-        AnomalyDetectionConfig config = getActiveConfig();
-
-        // Create configuration JSON
-        String configJson = createConfigJson(config);
+        // Configuration, already serialized
+        byte[] configJson = config.json();
 
         MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
         body.add("baseline", baselineImage);
         body.add("candidate", maintenanceImage);
 
         // Add configuration as a JSON file
-        ByteArrayResource configResource = new ByteArrayResource(configJson.getBytes()) {
+        ByteArrayResource configResource = new ByteArrayResource(configJson) {
             @Override
             public String getFilename() {
                 return "config.json";
@@ -61,87 +95,158 @@ public class AnomalyDetectionService {
         HttpEntity<MultiValueMap<String, Object>> requestEntity = new HttpEntity<>(body, headers);
 
         try {
-            ResponseEntity<String> response = restTemplate.postForEntity(
-                    flaskApiUrl + "/detect-anomalies",
+            ResponseEntity<String> response = callGuard.detection(() -> workerPool.call(url -> restTemplate.postForEntity(
+                    url + "/detect-anomalies",
                     requestEntity,
-                    String.class);
+                    String.class)));
 
             return response.getBody();
         } catch (Exception e) {
+            if (FlaskCallGuard.isRejection(e)) {
+                throw e;
+            }
             throw new RuntimeException("Failed to call Flask API for anomaly detection: " + e.getMessage(), e);
         }
     }
 
-    private AnomalyDetectionConfig getActiveConfig() {
-        return configRepository.findByIsActiveTrue()
-                .orElseGet(() -> {
-                    // If no active config found, create and return default config
-                    AnomalyDetectionConfig defaultConfig = new AnomalyDetectionConfig();
-                    defaultConfig.setConfigName("default");
-                    defaultConfig.setIsActive(true);
-                    defaultConfig.setDescription("Default configuration for anomaly detection");
-                    return configRepository.save(defaultConfig);
+    /**
+     * Non-blocking {@link #detectAnomalies(Resource, Resource, DetectionConfigCache.Snapshot)}:
+     * no thread is held while the Flask server works, and slow calls are hedged
+     * to a second worker (see {@link DetectionWorkerPool#callHedgedAsync}).
+     * Both images must be files on disk.
+     */
+    public CompletableFuture<String> detectAnomaliesAsync(Resource baselineImage, Resource maintenanceImage,
+            DetectionConfigCache.Snapshot config) {
+        if (useLocalEngine) {
+            // CPU-bound and in-process, nothing to wait on
+            try {
+                return CompletableFuture.completedFuture(localEngine.detect(baselineImage, maintenanceImage, config.config()));
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+
+        List<FlaskAsyncClient.Part> parts = List.of(
+                FlaskAsyncClient.Part.of("baseline", baselineImage),
+                FlaskAsyncClient.Part.of("candidate", maintenanceImage),
+                FlaskAsyncClient.Part.of("config", "config.json", config.json()));
+
+        return callGuard.detectionAsync(() -> workerPool.callHedgedAsync(url -> asyncClient.postMultipart(
+                        url + "/detect-anomalies", parts)))
+                .exceptionallyCompose(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (FlaskCallGuard.isRejection(cause)) {
+                        return CompletableFuture.failedFuture(cause);
+                    }
+                    return CompletableFuture.failedFuture(new RuntimeException(
+                            "Failed to call Flask API for anomaly detection: " + cause.getMessage(), cause));
                 });
     }
 
-    private String createConfigJson(AnomalyDetectionConfig config) {
-        try {
-            Map<String, Object> configMap = new HashMap<>();
-
-            // All 41 parameters matching Python dict structure
-            configMap.put("delta_k_sigma", config.getDeltaKSigma());
-            configMap.put("delta_abs_min", config.getDeltaAbsMin());
-            configMap.put("min_blob_area_px", config.getMinBlobAreaPx());
-            configMap.put("open_iters", config.getOpenIters());
-            configMap.put("dilate_iters", config.getDilateIters());
-            configMap.put("keep_component_min_ratio", config.getKeepComponentMinRatio());
-            configMap.put("fault_red_ratio", config.getFaultRedRatio());
-            configMap.put("fault_red_min_pixels", config.getFaultRedMinPixels());
-            configMap.put("potential_yellow_ratio", config.getPotentialYellowRatio());
-            configMap.put("fullwire_hot_fraction", config.getFullwireHotFraction());
-            configMap.put("elongated_aspect_ratio", config.getElongatedAspectRatio());
-            configMap.put("merge_close_frac", config.getMergeCloseFrac());
-            configMap.put("min_cluster_area_px", config.getMinClusterAreaPx());
-            configMap.put("sidebar_search_frac", config.getSidebarSearchFrac());
-            configMap.put("sidebar_min_width_frac", config.getSidebarMinWidthFrac());
-            configMap.put("sidebar_max_width_frac", config.getSidebarMaxWidthFrac());
-            configMap.put("sidebar_min_valid_frac", config.getSidebarMinValidFrac());
-            configMap.put("sidebar_hue_span_deg", config.getSidebarHueSpanDeg());
-            configMap.put("sidebar_margin_px", config.getSidebarMarginPx());
-            configMap.put("text_bottom_band_frac", config.getTextBottomBandFrac());
-            configMap.put("mask_top_left_overlay", config.getMaskTopLeftOverlay());
-
-            // Parse top_left_box from string "x1,y1,x2,y2" to List<Double>
-            String topLeftBoxStr = config.getTopLeftBox();
-            if (topLeftBoxStr != null && !topLeftBoxStr.isEmpty()) {
-                String[] parts = topLeftBoxStr.split(",");
-                List<Double> topLeftBox = new ArrayList<>();
-                for (String part : parts) {
-                    topLeftBox.add(Double.parseDouble(part.trim()));
+    /**
+     * Detect anomalies for several candidates against one baseline in a single
+     * request, so the baseline bytes go over the wire once. Results come back in
+     * candidate order; a candidate the server could not process has an error
+     * instead of JSON.
+     * <p>
+     * Only servers that implement {@code /detect-anomalies-batch} can take the
+     * single request. If batching is disabled, or the server answers 404/405,
+     * each candidate is sent to {@code /detect-anomalies} on its own.
+     */
+    public List<BatchResult> detectAnomaliesBatch(Resource baselineImage, List<? extends Resource> candidates,
+            DetectionConfigCache.Snapshot config) {
+        if (useLocalEngine) {
+            List<BatchResult> out = new ArrayList<>(candidates.size());
+            for (Resource candidate : candidates) {
+                try {
+                    out.add(new BatchResult(localEngine.detect(baselineImage, candidate, config.config()), null));
+                } catch (RuntimeException e) {
+                    out.add(new BatchResult(null, e.getMessage()));
                 }
-                configMap.put("top_left_box", topLeftBox);
             }
+            return out;
+        }
+        if (!batchEnabled) {
+            return detectOneByOne(baselineImage, candidates, config);
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
 
-            configMap.put("h_bins", config.getHBins());
-            configMap.put("hist_distance_min", config.getHistDistanceMin());
-            configMap.put("red_bg_ratio_min_increase", config.getRedBgRatioMinIncrease());
-            configMap.put("red_bg_min_abs", config.getRedBgMinAbs());
-            configMap.put("roi_s_min", config.getRoiSMin());
-            configMap.put("roi_v_min", config.getRoiVMin());
-            configMap.put("blue_h_lo", config.getBlueHLo());
-            configMap.put("blue_h_hi", config.getBlueHHi());
-            configMap.put("blue_s_min", config.getBlueSMin());
-            configMap.put("blue_v_min", config.getBlueVMin());
-            configMap.put("black_v_hi", config.getBlackVHi());
-            configMap.put("white_bg_S_max", config.getWhiteBgSMax());
-            configMap.put("white_bg_V_min", config.getWhiteBgVMin());
-            configMap.put("white_bg_exclude_near_warm_px", config.getWhiteBgExcludeNearWarmPx());
-            configMap.put("white_bg_column_frac", config.getWhiteBgColumnFrac());
-            configMap.put("white_bg_row_frac", config.getWhiteBgRowFrac());
-
-            return objectMapper.writeValueAsString(configMap);
+        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+        body.add("baseline", baselineImage);
+        for (Resource candidate : candidates) {
+            body.add("candidates", candidate);
+        }
+        body.add("config", new ByteArrayResource(config.json()) {
+            @Override
+            public String getFilename() {
+                return "config.json";
+            }
+        });
+
+        HttpEntity<MultiValueMap<String, Object>> requestEntity = new HttpEntity<>(body, headers);
+
+        String responseBody;
+        try {
+            ResponseEntity<String> response = callGuard.detection(() -> workerPool.call(url -> restTemplate.postForEntity(
+                    url + "/detect-anomalies-batch",
+                    requestEntity,
+                    String.class)));
+            responseBody = response.getBody();
+        } catch (HttpClientErrorException.NotFound | HttpClientErrorException.MethodNotAllowed e) {
+            System.err.println("Flask server has no batch endpoint (" + e.getStatusCode()
+                    + "), sending candidates one by one from now on");
+            batchEnabled = false;
+            return detectOneByOne(baselineImage, candidates, config);
+        } catch (Exception e) {
+            if (FlaskCallGuard.isRejection(e)) {
+                throw e;
+            }
+            throw new RuntimeException("Failed to call Flask API for batch anomaly detection: " + e.getMessage(), e);
+        }
+
+        try {
+            JsonNode results = objectMapper.readTree(responseBody).path("results");
+            if (!results.isArray() || results.size() != candidates.size()) {
+                throw new IllegalStateException("Batch response has " + results.size() + " results for "
+                        + candidates.size() + " candidates");
+            }
+            List<BatchResult> out = new ArrayList<>(results.size());
+            for (JsonNode result : results) {
+                if (result.hasNonNull("error") && !result.has("fault_regions")) {
+                    out.add(new BatchResult(null, result.get("error").asText()));
+                } else {
+                    out.add(new BatchResult(objectMapper.writeValueAsString(result), null));
+                }
+            }
+            return out;
         } catch (Exception e) {
-            throw new RuntimeException("Failed to create configuration JSON: " + e.getMessage(), e);
+            throw new RuntimeException("Failed to read batch anomaly detection response: " + e.getMessage(), e);
         }
     }
+
+    private List<BatchResult> detectOneByOne(Resource baselineImage, List<? extends Resource> candidates,
+            DetectionConfigCache.Snapshot config) {
+        List<BatchResult> out = new ArrayList<>(candidates.size());
+        for (Resource candidate : candidates) {
+            try {
+                out.add(new BatchResult(detectAnomalies(baselineImage, candidate, config), null));
+            } catch (RuntimeException e) {
+                if (FlaskCallGuard.isRejection(e)) {
+                    throw e;
+                }
+                out.add(new BatchResult(null, e.getMessage()));
+            }
+        }
+        return out;
+    }
+
+    /** Candidates per batch call; 1 when calls can't be batched, so jobs go out one by one. */
+    public int maxBatchCandidates() {
+        return useLocalEngine || batchEnabled ? maxBatchCandidates : 1;
+    }
+
+    /** Per-candidate outcome of a batch call: either the response JSON or an error. */
+    public record BatchResult(String json, String error) {}
 }
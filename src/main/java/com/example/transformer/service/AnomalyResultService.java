@@ -0,0 +1,83 @@
+package com.example.transformer.service;
+
+import com.example.transformer.exception.NotFoundException;
+import com.example.transformer.model.DisplayMetadata;
+import com.example.transformer.model.FaultRegion;
+import com.example.transformer.model.OriginalAnomalyResult;
+import com.example.transformer.model.TransformerImage;
+import com.example.transformer.repository.DisplayMetadataRepository;
+import com.example.transformer.repository.FaultRegionRepository;
+import com.example.transformer.repository.OriginalAnomalyResultRepository;
+import com.example.transformer.repository.TransformerImageRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.util.List;
+
+@Service
+public class AnomalyResultService {
+
+    private final TransformerImageRepository images;
+    private final FaultRegionRepository faultRegionRepository;
+    private final DisplayMetadataRepository displayMetadataRepository;
+    private final OriginalAnomalyResultRepository originalAnomalyResultRepository;
+    private final ObjectMapper objectMapper;
+
+    public AnomalyResultService(TransformerImageRepository images,
+            FaultRegionRepository faultRegionRepository,
+            DisplayMetadataRepository displayMetadataRepository,
+            OriginalAnomalyResultRepository originalAnomalyResultRepository,
+            ObjectMapper objectMapper) {
+        this.images = images;
+        this.faultRegionRepository = faultRegionRepository;
+        this.displayMetadataRepository = displayMetadataRepository;
+        this.originalAnomalyResultRepository = originalAnomalyResultRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Persist the fault regions, display metadata and the original JSON returned
+     * by the detection server for the given maintenance image. Results of an
+     * earlier detection of the image are replaced, except for fault regions an
+     * engineer added, edited or deleted: those are annotations, not detector
+     * output, and are kept.
+     *
+     * @param imageId   The maintenance image ID
+     * @param flaskJson Raw response body of the detection server
+     */
+    @Transactional
+    public void saveResults(Long imageId, String flaskJson) throws IOException {
+        TransformerImage img = images.findById(imageId)
+                .orElseThrow(() -> new NotFoundException("Image " + imageId + " not found"));
+
+        DetectionResponseParser.Parsed parsed = DetectionResponseParser.parse(objectMapper.getFactory(), flaskJson);
+
+        List<FaultRegion> previous = faultRegionRepository.findByImageId(imageId).stream()
+                .filter(region -> !Boolean.TRUE.equals(region.getIsManual()) && !Boolean.TRUE.equals(region.getIsDeleted()))
+                .toList();
+        if (!previous.isEmpty()) {
+            faultRegionRepository.deleteAll(previous);
+        }
+        displayMetadataRepository.deleteByImageId(imageId);
+
+        // One saveAll so Hibernate batches the region and color rows (hibernate.jdbc.batch_size)
+        for (FaultRegion region : parsed.faultRegions()) {
+            region.setImage(img);
+        }
+        faultRegionRepository.saveAll(parsed.faultRegions());
+
+        if (parsed.displayMetadata() != null) {
+            DisplayMetadata dm = parsed.displayMetadata();
+            dm.setImage(img);
+            displayMetadataRepository.save(dm);
+        }
+
+        // The raw body is stored as received; it is never re-serialized. One row per image, so update in place
+        OriginalAnomalyResult originalResult = originalAnomalyResultRepository.findByImageId(imageId)
+                .orElseGet(() -> OriginalAnomalyResult.builder().image(img).build());
+        originalResult.setAnomalyJson(flaskJson);
+        originalAnomalyResultRepository.save(originalResult);
+    }
+}
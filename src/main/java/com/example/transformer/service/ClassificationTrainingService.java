@@ -13,21 +13,18 @@ import com.example.transformer.exception.NotFoundException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.ByteArrayResource;
-import org.springframework.core.io.Resource;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-import org.springframework.util.LinkedMultiValueMap;
-import org.springframework.util.MultiValueMap;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Service
 public class ClassificationTrainingService {
@@ -35,43 +32,83 @@ public class ClassificationTrainingService {
     @Value("${anomaly.detection.api.url:http://localhost:5000}")
     private String flaskApiUrl;
 
-    private final RestTemplate restTemplate;
+    private final FlaskAsyncClient asyncClient;
+    private final TransactionTemplate tx;
+    private final TransactionTemplate readOnlyTx;
     private final AnomalyDetectionConfigRepository configRepository;
     private final TransformerImageRepository imageRepository;
     private final FaultRegionRepository faultRegionRepository;
     private final OriginalAnomalyResultRepository originalAnomalyResultRepository;
     private final FileStorageService fileStorageService;
+    private final DetectionConfigCache configCache;
+    private final FlaskCallGuard callGuard;
     private final ObjectMapper objectMapper;
 
     public ClassificationTrainingService(
-            RestTemplate restTemplate,
+            FlaskAsyncClient asyncClient,
+            PlatformTransactionManager transactionManager,
             AnomalyDetectionConfigRepository configRepository,
             TransformerImageRepository imageRepository,
             FaultRegionRepository faultRegionRepository,
             OriginalAnomalyResultRepository originalAnomalyResultRepository,
             FileStorageService fileStorageService,
+            DetectionConfigCache configCache,
+            FlaskCallGuard callGuard,
             ObjectMapper objectMapper) {
-        this.restTemplate = restTemplate;
+        this.asyncClient = asyncClient;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
         this.configRepository = configRepository;
         this.imageRepository = imageRepository;
         this.faultRegionRepository = faultRegionRepository;
         this.originalAnomalyResultRepository = originalAnomalyResultRepository;
         this.fileStorageService = fileStorageService;
+        this.configCache = configCache;
+        this.callGuard = callGuard;
         this.objectMapper = objectMapper;
     }
 
     /**
      * Train the classification model by sending baseline image, maintenance image,
      * current configuration, and anomaly detection results to the classification
-     * server.
+     * server. Validation and the data gathering happen in a read transaction on
+     * the caller's thread; the server call is non-blocking and the new
+     * configuration is stored in a second transaction when it answers.
      * 
      * @param transformerId      The transformer ID
      * @param baselineImageId    The baseline image ID
      * @param maintenanceImageId The maintenance image ID
-     * @return TrainModelResponseDTO containing the training result
+     * @return future TrainModelResponseDTO containing the training result
      */
-    @Transactional
-    public TrainModelResponseDTO trainModel(Long transformerId, Long baselineImageId, Long maintenanceImageId) {
+    public CompletableFuture<TrainModelResponseDTO> trainModel(Long transformerId, Long baselineImageId,
+            Long maintenanceImageId) {
+        TrainingRequest request = readOnlyTx.execute(status ->
+                prepareTraining(transformerId, baselineImageId, maintenanceImageId));
+
+        return callGuard.trainingAsync(() -> asyncClient.postMultipart(flaskApiUrl + "/update-config", request.parts()))
+                .handle((responseBody, error) -> {
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException && error.getCause() != null
+                                ? error.getCause() : error;
+                        if (FlaskCallGuard.isRejection(cause)) {
+                            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                                    "Classification server is unavailable, try again later");
+                        }
+                        throw new RuntimeException("Failed to train model on Flask API server: " + cause.getMessage(), cause);
+                    }
+                    // Parse response and update configuration
+                    if (responseBody == null || responseBody.isEmpty()) {
+                        throw new RuntimeException("Failed to train model on Flask API server: "
+                                + "Empty response from classification server");
+                    }
+                    return tx.execute(status -> updateConfigurationFromTrainingResponse(responseBody, request.configId()));
+                });
+    }
+
+    private record TrainingRequest(Long configId, List<FlaskAsyncClient.Part> parts) {}
+
+    private TrainingRequest prepareTraining(Long transformerId, Long baselineImageId, Long maintenanceImageId) {
         // Validate and retrieve baseline image
         TransformerImage baselineImage = imageRepository.findById(baselineImageId)
                 .orElseThrow(() -> new NotFoundException("Baseline image " + baselineImageId + " not found"));
@@ -111,85 +148,32 @@ public class ClassificationTrainingService {
                     "No active (non-deleted) anomaly detection results found for maintenance image " + maintenanceImageId);
         }
 
-        // Prepare request to classification server
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
-
-        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
-
-        // Add baseline image
-        Resource baselineResource = fileStorageService.load(baselineImage.getStoragePath());
-        body.add("baseline_image", baselineResource);
-
-        // Add maintenance image
-        Resource maintenanceResource = fileStorageService.load(maintenanceImage.getStoragePath());
-        body.add("maintenance_image", maintenanceResource);
-
-        // Add current configuration as JSON
-        String configJson = createConfigJson(currentConfig);
-        ByteArrayResource configResource = new ByteArrayResource(configJson.getBytes()) {
-            @Override
-            public String getFilename() {
-                return "config.json";
-            }
-        };
-        body.add("config", configResource);
-
-        // Add anomaly detection results as JSON
-        String anomalyResultsJson = createAnomalyResultsJson(activeFaultRegions);
-        ByteArrayResource anomalyResource = new ByteArrayResource(anomalyResultsJson.getBytes()) {
-            @Override
-            public String getFilename() {
-                return "anomaly_results.json";
-            }
-        };
-        body.add("anomaly_results", anomalyResource);
-
-        // Add original anomaly results from classification server as JSON
+        // Original anomaly results from classification server, used as-is from the database
         OriginalAnomalyResult originalResult = originalAnomalyResultRepository.findByImageId(maintenanceImageId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST,
                         "No original anomaly detection results found for maintenance image " + maintenanceImageId +
                         ". This data is required for training."));
 
-        // Use the original JSON directly from the database
-        ByteArrayResource originalResource = new ByteArrayResource(originalResult.getAnomalyJson().getBytes()) {
-            @Override
-            public String getFilename() {
-                return "original_anomaly_results.json";
-            }
-        };
-        body.add("original_anomaly_results", originalResource);
-
-        HttpEntity<MultiValueMap<String, Object>> requestEntity = new HttpEntity<>(body, headers);
-
-        try {
-            // Call classification server training endpoint
-            ResponseEntity<String> response = restTemplate.postForEntity(
-                    flaskApiUrl + "/update-config",
-                    requestEntity,
-                    String.class);
-
-            // Parse response and update configuration
-            String responseBody = response.getBody();
-            if (responseBody != null && !responseBody.isEmpty()) {
-                return updateConfigurationFromTrainingResponse(responseBody, currentConfig);
-            } else {
-                throw new RuntimeException("Empty response from classification server");
-            }
-
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to train model on Flask API server: " + e.getMessage(), e);
-        }
+        List<FlaskAsyncClient.Part> parts = List.of(
+                FlaskAsyncClient.Part.of("baseline_image", fileStorageService.load(baselineImage.getStoragePath())),
+                FlaskAsyncClient.Part.of("maintenance_image", fileStorageService.load(maintenanceImage.getStoragePath())),
+                FlaskAsyncClient.Part.of("config", "config.json", configCache.toJson(currentConfig)),
+                FlaskAsyncClient.Part.of("anomaly_results", "anomaly_results.json",
+                        createAnomalyResultsJson(activeFaultRegions).getBytes()),
+                FlaskAsyncClient.Part.of("original_anomaly_results", "original_anomaly_results.json",
+                        originalResult.getAnomalyJson().getBytes()));
+        return new TrainingRequest(currentConfig.getId(), parts);
     }
 
     /**
      * Update the configuration based on the training response from classification
      * server
      */
-    private TrainModelResponseDTO updateConfigurationFromTrainingResponse(String responseJson,
-            AnomalyDetectionConfig currentConfig) {
+    private TrainModelResponseDTO updateConfigurationFromTrainingResponse(String responseJson, Long currentConfigId) {
         try {
             JsonNode root = objectMapper.readTree(responseJson);
+            AnomalyDetectionConfig currentConfig = configRepository.findById(currentConfigId)
+                    .orElseThrow(() -> new IllegalStateException("Configuration " + currentConfigId + " no longer exists"));
 
             // Parse updated configuration from response
             if (root.has("updated_config")) {
@@ -307,6 +291,7 @@ public class ClassificationTrainingService {
                 // Activate the new configuration
                 newConfig.setIsActive(true);
                 AnomalyDetectionConfig savedConfig = configRepository.save(newConfig);
+                configCache.activate(savedConfig);
 
                 // Build response
                 String message = root.has("message") ? root.get("message").asText()
@@ -330,81 +315,12 @@ public class ClassificationTrainingService {
     }
 
     /**
-     * Get the active configuration or create a default one
+     * Get the active configuration as a managed entity of the current transaction
      */
     private AnomalyDetectionConfig getActiveConfig() {
-        return configRepository.findByIsActiveTrue()
-                .orElseGet(() -> {
-                    AnomalyDetectionConfig defaultConfig = new AnomalyDetectionConfig();
-                    defaultConfig.setConfigName("default");
-                    defaultConfig.setIsActive(true);
-                    defaultConfig.setDescription("Default configuration for anomaly detection");
-                    return configRepository.save(defaultConfig);
-                });
-    }
-
-    /**
-     * Create JSON representation of the configuration
-     */
-    private String createConfigJson(AnomalyDetectionConfig config) {
-        try {
-            Map<String, Object> configMap = new HashMap<>();
-
-            // All 41 parameters matching Python dict structure
-            configMap.put("delta_k_sigma", config.getDeltaKSigma());
-            configMap.put("delta_abs_min", config.getDeltaAbsMin());
-            configMap.put("min_blob_area_px", config.getMinBlobAreaPx());
-            configMap.put("open_iters", config.getOpenIters());
-            configMap.put("dilate_iters", config.getDilateIters());
-            configMap.put("keep_component_min_ratio", config.getKeepComponentMinRatio());
-            configMap.put("fault_red_ratio", config.getFaultRedRatio());
-            configMap.put("fault_red_min_pixels", config.getFaultRedMinPixels());
-            configMap.put("potential_yellow_ratio", config.getPotentialYellowRatio());
-            configMap.put("fullwire_hot_fraction", config.getFullwireHotFraction());
-            configMap.put("elongated_aspect_ratio", config.getElongatedAspectRatio());
-            configMap.put("merge_close_frac", config.getMergeCloseFrac());
-            configMap.put("min_cluster_area_px", config.getMinClusterAreaPx());
-            configMap.put("sidebar_search_frac", config.getSidebarSearchFrac());
-            configMap.put("sidebar_min_width_frac", config.getSidebarMinWidthFrac());
-            configMap.put("sidebar_max_width_frac", config.getSidebarMaxWidthFrac());
-            configMap.put("sidebar_min_valid_frac", config.getSidebarMinValidFrac());
-            configMap.put("sidebar_hue_span_deg", config.getSidebarHueSpanDeg());
-            configMap.put("sidebar_margin_px", config.getSidebarMarginPx());
-            configMap.put("text_bottom_band_frac", config.getTextBottomBandFrac());
-            configMap.put("mask_top_left_overlay", config.getMaskTopLeftOverlay());
-
-            // Parse top_left_box from string "x1,y1,x2,y2" to List<Double>
-            String topLeftBoxStr = config.getTopLeftBox();
-            if (topLeftBoxStr != null && !topLeftBoxStr.isEmpty()) {
-                String[] parts = topLeftBoxStr.split(",");
-                List<Double> topLeftBox = new ArrayList<>();
-                for (String part : parts) {
-                    topLeftBox.add(Double.parseDouble(part.trim()));
-                }
-                configMap.put("top_left_box", topLeftBox);
-            }
-
-            configMap.put("h_bins", config.getHBins());
-            configMap.put("hist_distance_min", config.getHistDistanceMin());
-            configMap.put("red_bg_ratio_min_increase", config.getRedBgRatioMinIncrease());
-            configMap.put("red_bg_min_abs", config.getRedBgMinAbs());
-            configMap.put("roi_s_min", config.getRoiSMin());
-            configMap.put("roi_v_min", config.getRoiVMin());
-            configMap.put("blue_h_lo", config.getBlueHLo());
-            configMap.put("blue_h_hi", config.getBlueHHi());
-            configMap.put("blue_s_min", config.getBlueSMin());
-            configMap.put("blue_v_min", config.getBlueVMin());
-            configMap.put("black_v_hi", config.getBlackVHi());
-            configMap.put("white_bg_S_max", config.getWhiteBgSMax());
-            configMap.put("white_bg_V_min", config.getWhiteBgVMin());
-            configMap.put("white_bg_exclude_near_warm_px", config.getWhiteBgExcludeNearWarmPx());
-            configMap.put("white_bg_column_frac", config.getWhiteBgColumnFrac());
-            configMap.put("white_bg_row_frac", config.getWhiteBgRowFrac());
-
-            return objectMapper.writeValueAsString(configMap);
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to create configuration JSON: " + e.getMessage(), e);
-        }
+        Long activeId = configCache.current().configId();
+        return configRepository.findById(activeId)
+                .orElseThrow(() -> new IllegalStateException("Active configuration " + activeId + " no longer exists"));
     }
 
     /**
@@ -0,0 +1,212 @@
+package com.example.transformer.service;
+
+import com.example.transformer.exception.NotFoundException;
+import com.example.transformer.model.AnomalyDetectionConfig;
+import com.example.transformer.repository.AnomalyDetectionConfigRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Holds the active AnomalyDetectionConfig together with its pre-serialized JSON
+ * so the detection hot path does no DB reads and no JSON building. The snapshot
+ * is swapped atomically when a new config is activated.
+ */
+@Service
+public class DetectionConfigCache {
+
+    /**
+     * Immutable view of the active config. Callers must treat {@code config} and
+     * {@code json} as read-only.
+     *
+     * @param version  Local version stamp, bumped on every swap
+     * @param configId ID of the config row the snapshot was built from
+     * @param config   The config entity (detached)
+     * @param json     The 41 parameters serialized for the detection server
+     */
+    public record Snapshot(long version, Long configId, AnomalyDetectionConfig config, byte[] json) {}
+
+    private final AnomalyDetectionConfigRepository configRepository;
+    private final ObjectMapper objectMapper;
+    private final AtomicReference<Snapshot> current = new AtomicReference<>();
+    private final AtomicReference<Snapshot> pinned = new AtomicReference<>();
+    private final AtomicLong versions = new AtomicLong();
+    private final ReentrantLock reloadLock = new ReentrantLock();
+
+    public DetectionConfigCache(AnomalyDetectionConfigRepository configRepository, ObjectMapper objectMapper) {
+        this.configRepository = configRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    public Snapshot current() {
+        Snapshot snapshot = current.get();
+        return snapshot != null ? snapshot : reload();
+    }
+
+    /**
+     * Make {@code config} the cached active config. Inside a transaction the swap
+     * happens only after commit, so readers never see an uncommitted config.
+     */
+    public void activate(AnomalyDetectionConfig config) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    swap(config);
+                }
+            });
+        } else {
+            swap(config);
+        }
+    }
+
+    /**
+     * Re-read the active config from the database, creating the default one if
+     * none exists.
+     */
+    public Snapshot reload() {
+        // A lock rather than synchronized: a virtual thread blocked on the query inside a monitor pins its carrier
+        reloadLock.lock();
+        try {
+            return reloadActive();
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    private Snapshot reloadActive() {
+        AnomalyDetectionConfig config = configRepository.findByIsActiveTrue()
+                .orElseGet(() -> {
+                    // If no active config found, create and return default config
+                    AnomalyDetectionConfig defaultConfig = new AnomalyDetectionConfig();
+                    defaultConfig.setConfigName("default");
+                    defaultConfig.setIsActive(true);
+                    defaultConfig.setDescription("Default configuration for anomaly detection");
+                    return configRepository.save(defaultConfig);
+                });
+        return swap(config);
+    }
+
+    /**
+     * Snapshot of the config with the given ID, which need not be active; the
+     * active snapshot when {@code configId} is null. The last non-active config
+     * asked for is kept, since re-detection asks for the same one for every job.
+     *
+     * @throws NotFoundException if there is no such config
+     */
+    public Snapshot forConfig(Long configId) {
+        Snapshot active = current();
+        if (configId == null || configId.equals(active.configId())) {
+            return active;
+        }
+        Snapshot cached = pinned.get();
+        if (cached != null && configId.equals(cached.configId())) {
+            return cached;
+        }
+        AnomalyDetectionConfig config = configRepository.findById(configId)
+                .orElseThrow(() -> new NotFoundException("Detection config " + configId + " not found"));
+        Snapshot snapshot = new Snapshot(versions.incrementAndGet(), config.getId(), config, createConfigJson(config));
+        pinned.set(snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Serialized JSON of an arbitrary config, e.g. one that is not active.
+     */
+    public byte[] toJson(AnomalyDetectionConfig config) {
+        Snapshot snapshot = current.get();
+        if (snapshot != null && Objects.equals(snapshot.configId(), config.getId()) && config.getId() != null) {
+            return snapshot.json();
+        }
+        return createConfigJson(config);
+    }
+
+    // Picks up configs activated on other nodes; one indexed lookup off the hot path
+    @Scheduled(fixedDelayString = "${anomaly.detection.config.refresh-interval:60s}",
+            initialDelayString = "${anomaly.detection.config.refresh-interval:60s}")
+    void refreshIfChanged() {
+        Snapshot snapshot = current.get();
+        Long activeId = configRepository.findByIsActiveTrue().map(AnomalyDetectionConfig::getId).orElse(null);
+        if (snapshot == null || !Objects.equals(snapshot.configId(), activeId)) {
+            reload();
+        }
+    }
+
+    private Snapshot swap(AnomalyDetectionConfig config) {
+        Snapshot snapshot = new Snapshot(versions.incrementAndGet(), config.getId(), config, createConfigJson(config));
+        current.set(snapshot);
+        return snapshot;
+    }
+
+    private byte[] createConfigJson(AnomalyDetectionConfig config) {
+        try {
+            Map<String, Object> configMap = new HashMap<>();
+
+            // All 41 parameters matching Python dict structure
+            configMap.put("delta_k_sigma", config.getDeltaKSigma());
+            configMap.put("delta_abs_min", config.getDeltaAbsMin());
+            configMap.put("min_blob_area_px", config.getMinBlobAreaPx());
+            configMap.put("open_iters", config.getOpenIters());
+            configMap.put("dilate_iters", config.getDilateIters());
+            configMap.put("keep_component_min_ratio", config.getKeepComponentMinRatio());
+            configMap.put("fault_red_ratio", config.getFaultRedRatio());
+            configMap.put("fault_red_min_pixels", config.getFaultRedMinPixels());
+            configMap.put("potential_yellow_ratio", config.getPotentialYellowRatio());
+            configMap.put("fullwire_hot_fraction", config.getFullwireHotFraction());
+            configMap.put("elongated_aspect_ratio", config.getElongatedAspectRatio());
+            configMap.put("merge_close_frac", config.getMergeCloseFrac());
+            configMap.put("min_cluster_area_px", config.getMinClusterAreaPx());
+            configMap.put("sidebar_search_frac", config.getSidebarSearchFrac());
+            configMap.put("sidebar_min_width_frac", config.getSidebarMinWidthFrac());
+            configMap.put("sidebar_max_width_frac", config.getSidebarMaxWidthFrac());
+            configMap.put("sidebar_min_valid_frac", config.getSidebarMinValidFrac());
+            configMap.put("sidebar_hue_span_deg", config.getSidebarHueSpanDeg());
+            configMap.put("sidebar_margin_px", config.getSidebarMarginPx());
+            configMap.put("text_bottom_band_frac", config.getTextBottomBandFrac());
+            configMap.put("mask_top_left_overlay", config.getMaskTopLeftOverlay());
+
+            // Parse top_left_box from string "x1,y1,x2,y2" to List<Double>
+            String topLeftBoxStr = config.getTopLeftBox();
+            if (topLeftBoxStr != null && !topLeftBoxStr.isEmpty()) {
+                String[] parts = topLeftBoxStr.split(",");
+                List<Double> topLeftBox = new ArrayList<>();
+                for (String part : parts) {
+                    topLeftBox.add(Double.parseDouble(part.trim()));
+                }
+                configMap.put("top_left_box", topLeftBox);
+            }
+
+            configMap.put("h_bins", config.getHBins());
+            configMap.put("hist_distance_min", config.getHistDistanceMin());
+            configMap.put("red_bg_ratio_min_increase", config.getRedBgRatioMinIncrease());
+            configMap.put("red_bg_min_abs", config.getRedBgMinAbs());
+            configMap.put("roi_s_min", config.getRoiSMin());
+            configMap.put("roi_v_min", config.getRoiVMin());
+            configMap.put("blue_h_lo", config.getBlueHLo());
+            configMap.put("blue_h_hi", config.getBlueHHi());
+            configMap.put("blue_s_min", config.getBlueSMin());
+            configMap.put("blue_v_min", config.getBlueVMin());
+            configMap.put("black_v_hi", config.getBlackVHi());
+            configMap.put("white_bg_S_max", config.getWhiteBgSMax());
+            configMap.put("white_bg_V_min", config.getWhiteBgVMin());
+            configMap.put("white_bg_exclude_near_warm_px", config.getWhiteBgExcludeNearWarmPx());
+            configMap.put("white_bg_column_frac", config.getWhiteBgColumnFrac());
+            configMap.put("white_bg_row_frac", config.getWhiteBgRowFrac());
+
+            return objectMapper.writeValueAsBytes(configMap);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to create configuration JSON: " + e.getMessage(), e);
+        }
+    }
+}
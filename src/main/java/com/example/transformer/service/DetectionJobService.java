@@ -0,0 +1,579 @@
+package com.example.transformer.service;
+
+import com.example.transformer.exception.NotFoundException;
+import com.example.transformer.model.DetectionJob;
+import com.example.transformer.model.DetectionJobStatus;
+import com.example.transformer.model.DetectionPriority;
+import com.example.transformer.model.TransformerImage;
+import com.example.transformer.repository.DetectionJobRepository;
+import com.example.transformer.repository.TransformerImageRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+@Service
+public class DetectionJobService {
+
+    private final DetectionJobRepository jobs;
+    private final TransformerImageRepository images;
+    private final FileStorageService storage;
+    private final AnomalyDetectionService anomalyDetectionService;
+    private final AnomalyResultService anomalyResultService;
+    private final DetectionConfigCache configCache;
+    private final DetectionResultCache resultCache;
+    private final DetectionScheduler scheduler;
+    private final FlaskCallGuard callGuard;
+    private final DetectionPreScreen preScreen;
+    private final TransactionTemplate tx;
+    private final int deferredBatchSize;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration leaseTimeout;
+    // Lease owner for the jobs this process holds in memory; a restart gets a new one
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public DetectionJobService(DetectionJobRepository jobs,
+            TransformerImageRepository images,
+            FileStorageService storage,
+            AnomalyDetectionService anomalyDetectionService,
+            AnomalyResultService anomalyResultService,
+            DetectionConfigCache configCache,
+            DetectionResultCache resultCache,
+            DetectionScheduler scheduler,
+            FlaskCallGuard callGuard,
+            DetectionPreScreen preScreen,
+            PlatformTransactionManager transactionManager,
+            @Value("${anomaly.detection.deferred.batch-size:50}") int deferredBatchSize,
+            @Value("${anomaly.detection.retry.max-attempts:5}") int maxAttempts,
+            @Value("${anomaly.detection.retry.initial-backoff:30s}") Duration initialBackoff,
+            @Value("${anomaly.detection.retry.max-backoff:30m}") Duration maxBackoff,
+            @Value("${anomaly.detection.lease.timeout:2m}") Duration leaseTimeout) {
+        this.jobs = jobs;
+        this.images = images;
+        this.storage = storage;
+        this.anomalyDetectionService = anomalyDetectionService;
+        this.anomalyResultService = anomalyResultService;
+        this.configCache = configCache;
+        this.resultCache = resultCache;
+        this.scheduler = scheduler;
+        this.callGuard = callGuard;
+        this.preScreen = preScreen;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.deferredBatchSize = deferredBatchSize;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.leaseTimeout = leaseTimeout;
+    }
+
+    /**
+     * Record a QUEUED detection job for the maintenance image and hand it to the
+     * detection scheduler. Returns immediately; progress is tracked on the job.
+     *
+     * @param image    The maintenance image to run detection for
+     * @param baseline The baseline image to compare against
+     * @param priority The scheduling lane to run it in
+     * @return the persisted job
+     */
+    public DetectionJob submit(TransformerImage image, TransformerImage baseline, DetectionPriority priority) {
+        DetectionJob job = jobs.save(DetectionJob.builder()
+                .imageId(image.getId())
+                .baselineImageId(baseline.getId())
+                .status(DetectionJobStatus.QUEUED)
+                .priority(priority)
+                .ownerId(nodeId)
+                .heartbeatAt(LocalDateTime.now())
+                .build());
+
+        Long jobId = job.getId();
+        afterCommit(() -> dispatch(jobId, priority));
+        return job;
+    }
+
+    /**
+     * Record QUEUED jobs for several maintenance images that share a baseline and
+     * dispatch them in chunks, so each chunk costs one detection call that carries
+     * the baseline once instead of one call per image.
+     *
+     * @param images   The maintenance images to run detection for
+     * @param baseline The baseline image they are all compared against
+     * @param priority The scheduling lane to run them in
+     * @return the persisted jobs, in the order of {@code images}
+     */
+    public List<DetectionJob> submitAll(List<TransformerImage> images, TransformerImage baseline,
+            DetectionPriority priority) {
+        return submitAll(images, baseline, priority, null, null);
+    }
+
+    /**
+     * {@link #submitAll(List, TransformerImage, DetectionPriority)} with a fixed
+     * detection config, for re-detection runs.
+     *
+     * @param configId         Config to detect with, or null for the active one
+     * @param redetectionRunId Re-detection run the jobs belong to, or null
+     */
+    public List<DetectionJob> submitAll(List<TransformerImage> images, TransformerImage baseline,
+            DetectionPriority priority, Long configId, Long redetectionRunId) {
+        if (images.isEmpty()) {
+            return List.of();
+        }
+        List<DetectionJob> saved = jobs.saveAll(images.stream()
+                .map(image -> DetectionJob.builder()
+                        .imageId(image.getId())
+                        .baselineImageId(baseline.getId())
+                        .status(DetectionJobStatus.QUEUED)
+                        .priority(priority)
+                        .configId(configId)
+                        .redetectionRunId(redetectionRunId)
+                        .ownerId(nodeId)
+                        .heartbeatAt(LocalDateTime.now())
+                        .build())
+                .toList());
+
+        List<Long> jobIds = saved.stream().map(DetectionJob::getId).toList();
+        int chunkSize = Math.max(1, anomalyDetectionService.maxBatchCandidates());
+        afterCommit(() -> {
+            for (int from = 0; from < jobIds.size(); from += chunkSize) {
+                dispatchBatch(jobIds.subList(from, Math.min(from + chunkSize, jobIds.size())), priority);
+            }
+        });
+        return saved;
+    }
+
+    public Optional<DetectionJob> findLatestForImage(Long imageId) {
+        return jobs.findFirstByImageIdOrderByCreatedAtDescIdDesc(imageId);
+    }
+
+    /**
+     * Jobs in the given status, newest first. Used to inspect the dead-letter
+     * queue ({@link DetectionJobStatus#DEAD_LETTER}) and pending retries.
+     */
+    public List<DetectionJob> findByStatus(DetectionJobStatus status, int page, int size) {
+        return jobs.findByStatusOrderByCreatedAtDescIdDesc(status, PageRequest.of(page, size));
+    }
+
+    /**
+     * Put a failed or dead-lettered job back in its lane with a fresh attempt
+     * count, e.g. once the cause has been fixed.
+     *
+     * @return the requeued job, or empty if the job isn't FAILED or DEAD_LETTER
+     */
+    public Optional<DetectionJob> requeue(Long jobId) {
+        DetectionJob job = jobs.findById(jobId)
+                .orElseThrow(() -> new NotFoundException("Detection job " + jobId + " not found"));
+        DetectionJobStatus from = job.getStatus();
+        if (from != DetectionJobStatus.FAILED && from != DetectionJobStatus.DEAD_LETTER) {
+            return Optional.empty();
+        }
+        LocalDateTime now = LocalDateTime.now();
+        if (jobs.claim(jobId, from, DetectionJobStatus.QUEUED, nodeId, now) != 1) {
+            return Optional.empty();
+        }
+        DetectionJob claimed = jobs.findById(jobId).orElse(null);
+        if (claimed == null) {
+            return Optional.empty();
+        }
+        claimed.setAttempts(0);
+        claimed.setError(null);
+        claimed.setNextAttemptAt(null);
+        claimed.setStartedAt(null);
+        claimed.setFinishedAt(null);
+        DetectionJob saved;
+        try {
+            saved = jobs.save(claimed);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            // Cancelled with its re-detection run in between
+            return Optional.empty();
+        }
+        dispatch(jobId, saved.getPriority());
+        return Optional.of(saved);
+    }
+
+    /**
+     * Resubmit deferred jobs that are due: those parked while the Flask server
+     * was unavailable or the lane queue was full, and failed attempts whose
+     * backoff has passed. Nothing is resubmitted while the circuit breaker is
+     * open. Each job goes back into the lane it was submitted in.
+     */
+    @Scheduled(fixedDelayString = "${anomaly.detection.deferred.sweep-interval:15s}")
+    void resumeDeferred() {
+        if (!callGuard.isAcceptingCalls()) {
+            return;
+        }
+        List<DetectionJob> deferred = jobs.findDue(DetectionJobStatus.DEFERRED, LocalDateTime.now(),
+                PageRequest.of(0, deferredBatchSize));
+        for (DetectionJob job : deferred) {
+            if (jobs.claim(job.getId(), DetectionJobStatus.DEFERRED, DetectionJobStatus.QUEUED,
+                    nodeId, LocalDateTime.now()) == 1) {
+                dispatch(job.getId(), job.getPriority());
+            }
+        }
+    }
+
+    /**
+     * Renew the leases of the jobs this node holds, then reclaim jobs whose
+     * lease has lapsed: their node stopped or restarted and the work it had
+     * queued in memory is gone. They go back to DEFERRED for the sweep above.
+     * A job still in flight here keeps its lease however long it takes.
+     */
+    @Scheduled(fixedDelayString = "${anomaly.detection.lease.heartbeat-interval:30s}")
+    void maintainLeases() {
+        LocalDateTime now = LocalDateTime.now();
+        jobs.heartbeat(nodeId, now);
+        int reclaimed = jobs.reclaimOrphaned(now.minus(leaseTimeout));
+        if (reclaimed > 0) {
+            System.out.println("Reclaimed " + reclaimed + " detection jobs left behind by a stopped node");
+        }
+    }
+
+    private void dispatch(Long jobId, DetectionPriority priority) {
+        try {
+            scheduler.submit(priority, () -> run(jobId));
+        } catch (TaskRejectedException e) {
+            // Lane queue is full; park the job and let the sweeper pick it up again
+            jobs.transition(jobId, DetectionJobStatus.QUEUED, DetectionJobStatus.DEFERRED);
+        }
+    }
+
+    private void dispatchBatch(List<Long> jobIds, DetectionPriority priority) {
+        if (jobIds.size() == 1) {
+            dispatch(jobIds.get(0), priority);
+            return;
+        }
+        List<Long> chunk = List.copyOf(jobIds);
+        try {
+            scheduler.submit(priority, () -> {
+                runBatch(chunk);
+                return CompletableFuture.completedFuture(null);
+            });
+        } catch (TaskRejectedException e) {
+            for (Long jobId : chunk) {
+                jobs.transition(jobId, DetectionJobStatus.QUEUED, DetectionJobStatus.DEFERRED);
+            }
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Don't let a worker look for rows the caller hasn't committed yet
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Claim and start one job. The detection call is non-blocking, so this
+     * returns as soon as the request is sent and the worker thread is free for
+     * the next job; the result is saved on the client's completion thread.
+     * The returned future completes once the job has settled.
+     */
+    CompletableFuture<?> run(Long jobId) {
+        DetectionJob job = claim(jobId);
+        if (job == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        DetectionConfigCache.Snapshot config;
+        TransformerImage img;
+        TransformerImage baseline;
+        CompletableFuture<String> detection;
+        try {
+            config = configCache.forConfig(job.getConfigId());
+            img = images.findById(job.getImageId())
+                    .orElseThrow(() -> new NotFoundException("Image " + job.getImageId() + " not found"));
+            baseline = images.findById(job.getBaselineImageId())
+                    .orElseThrow(() -> new NotFoundException("Baseline image " + job.getBaselineImageId() + " not found"));
+            detection = detectAsync(baseline, img, config);
+        } catch (Exception e) {
+            fail(job, e);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return detection.whenComplete((flaskJson, error) -> {
+            if (error == null) {
+                complete(job, flaskJson);
+                return;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (FlaskCallGuard.isRejection(cause)) {
+                // Flask is browning out: settle clear matches locally, queue the rest for later
+                String screened = preScreen.screen(baseline, img, config, DetectionPreScreen.Mode.DEGRADED);
+                if (screened != null) {
+                    complete(job, screened);
+                } else {
+                    defer(job, cause);
+                }
+                return;
+            }
+            fail(job, cause);
+        });
+    }
+
+    /**
+     * Run a chunk of jobs that share a baseline. Cached results are served first;
+     * the remaining candidates go to the detection server in a single batch call.
+     */
+    void runBatch(List<Long> jobIds) {
+        List<DetectionJob> claimed = new ArrayList<>(jobIds.size());
+        for (Long jobId : jobIds) {
+            DetectionJob job = claim(jobId);
+            if (job != null) {
+                claimed.add(job);
+            }
+        }
+        if (claimed.isEmpty()) {
+            return;
+        }
+
+        Long baselineId = claimed.get(0).getBaselineImageId();
+        TransformerImage baseline = images.findById(baselineId).orElse(null);
+        if (baseline == null) {
+            claimed.forEach(job -> finish(job, DetectionJobStatus.FAILED, "Baseline image " + baselineId + " not found"));
+            return;
+        }
+        // Jobs of a chunk are submitted together, so they share the config too
+        DetectionConfigCache.Snapshot config;
+        try {
+            config = configCache.forConfig(claimed.get(0).getConfigId());
+        } catch (Exception e) {
+            claimed.forEach(job -> fail(job, e));
+            return;
+        }
+
+        List<DetectionJob> pendingJobs = new ArrayList<>();
+        List<TransformerImage> pendingImages = new ArrayList<>();
+        for (DetectionJob job : claimed) {
+            TransformerImage img = images.findById(job.getImageId()).orElse(null);
+            if (img == null) {
+                finish(job, DetectionJobStatus.FAILED, "Image " + job.getImageId() + " not found");
+                continue;
+            }
+            DetectionResultCache.Key key = cacheKey(baseline, img, config);
+            String cached = key != null ? resultCache.peek(key) : null;
+            if (cached == null) {
+                cached = preScreen.screen(baseline, img, config, DetectionPreScreen.Mode.NORMAL);
+            }
+            if (cached != null) {
+                complete(job, cached);
+            } else {
+                pendingJobs.add(job);
+                pendingImages.add(img);
+            }
+        }
+        if (pendingJobs.isEmpty()) {
+            return;
+        }
+
+        List<AnomalyDetectionService.BatchResult> results;
+        try {
+            results = anomalyDetectionService.detectAnomaliesBatch(
+                    storage.load(baseline.getStoragePath()),
+                    pendingImages.stream().map(img -> storage.load(img.getStoragePath())).toList(),
+                    config);
+        } catch (Exception e) {
+            if (FlaskCallGuard.isRejection(e)) {
+                for (int i = 0; i < pendingJobs.size(); i++) {
+                    String screened = preScreen.screen(baseline, pendingImages.get(i), config,
+                            DetectionPreScreen.Mode.DEGRADED);
+                    if (screened != null) {
+                        complete(pendingJobs.get(i), screened);
+                    } else {
+                        defer(pendingJobs.get(i), e);
+                    }
+                }
+                return;
+            }
+            // Whatever broke the call, it says nothing about the candidates themselves
+            pendingJobs.forEach(job -> fail(job, e, true));
+            return;
+        }
+
+        for (int i = 0; i < pendingJobs.size(); i++) {
+            DetectionJob job = pendingJobs.get(i);
+            AnomalyDetectionService.BatchResult result = results.get(i);
+            if (result.error() != null) {
+                // Retried like any other attempt; a candidate that keeps failing ends up dead-lettered
+                fail(job, new IllegalStateException(result.error()), true);
+                continue;
+            }
+            DetectionResultCache.Key key = cacheKey(baseline, pendingImages.get(i), config);
+            if (key != null) {
+                resultCache.put(key, result.json());
+            }
+            complete(job, result.json());
+        }
+    }
+
+    /**
+     * Take a QUEUED job for this node. Compare-and-set so a job dispatched twice
+     * (e.g. reclaimed after a restart) runs once. The claimed row is read back:
+     * its version is what saving the outcome is checked against.
+     *
+     * @return the claimed job, or null if it was gone or someone else had it
+     */
+    private DetectionJob claim(Long jobId) {
+        DetectionJob job = jobs.findById(jobId).orElse(null);
+        if (job == null || job.getStatus() != DetectionJobStatus.QUEUED
+                || jobs.start(jobId, nodeId, LocalDateTime.now()) != 1) {
+            return null;
+        }
+        return jobs.findById(jobId).orElse(null);
+    }
+
+    private void complete(DetectionJob job, String flaskJson) {
+        try {
+            // One transaction, so results of a job whose lease was lost are rolled back with it
+            tx.executeWithoutResult(status -> {
+                markFinished(job, DetectionJobStatus.COMPLETED, null);
+                jobs.save(job);
+                try {
+                    anomalyResultService.saveResults(job.getImageId(), flaskJson);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (ObjectOptimisticLockingFailureException e) {
+            leaseLost(job);
+        } catch (Exception e) {
+            System.err.println("Saving anomaly results failed for job " + job.getId() + ": " + e.getMessage());
+            fail(job, e);
+        }
+    }
+
+    // Rejected by the call guard: not an attempt, resume as soon as calls are let through
+    private void defer(DetectionJob job, Throwable cause) {
+        job.setStatus(DetectionJobStatus.DEFERRED);
+        job.setError("Deferred: " + cause.getMessage());
+        job.setNextAttemptAt(null);
+        settle(job);
+    }
+
+    /**
+     * Record a failed attempt. Transient failures (Flask unreachable, timing out
+     * or answering 5xx, a transient DB error) are retried with exponential
+     * backoff until {@code maxAttempts}, then dead-lettered; anything else, such
+     * as a missing image or a 4xx answer, won't improve on retry and fails at once.
+     */
+    private void fail(DetectionJob job, Throwable cause) {
+        fail(job, cause, isTransient(cause));
+    }
+
+    private void fail(DetectionJob job, Throwable cause, boolean transientFailure) {
+        int attempts = job.getAttempts() + 1;
+        job.setAttempts(attempts);
+        if (!transientFailure) {
+            System.err.println("Anomaly detection failed for job " + job.getId() + ": " + cause.getMessage());
+            finish(job, DetectionJobStatus.FAILED, cause.getMessage());
+        } else if (attempts >= maxAttempts) {
+            System.err.println("Anomaly detection for job " + job.getId() + " dead-lettered after "
+                    + attempts + " attempts: " + cause.getMessage());
+            finish(job, DetectionJobStatus.DEAD_LETTER, cause.getMessage());
+        } else {
+            job.setStatus(DetectionJobStatus.DEFERRED);
+            job.setError("Attempt " + attempts + " of " + maxAttempts + " failed: " + cause.getMessage());
+            job.setNextAttemptAt(LocalDateTime.now().plus(backoff(attempts)));
+            settle(job);
+        }
+    }
+
+    // Anywhere in the cause chain, since AnomalyDetectionService wraps Flask errors
+    static boolean isTransient(Throwable e) {
+        for (int depth = 0; e != null && depth < 16; e = e.getCause(), depth++) {
+            if (e instanceof ResourceAccessException
+                    || e instanceof HttpServerErrorException
+                    || e instanceof TimeoutException
+                    || e instanceof TransientDataAccessException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // initialBackoff * 2^(attempts-1), capped, with ±20% jitter so retries of one outage spread out
+    private Duration backoff(int attempts) {
+        long millis = initialBackoff.toMillis() << Math.min(attempts - 1, 20);
+        millis = Math.min(maxBackoff.toMillis(), millis);
+        return Duration.ofMillis((long) (millis * ThreadLocalRandom.current().nextDouble(0.8, 1.2)));
+    }
+
+    private CompletableFuture<String> detectAsync(TransformerImage baseline, TransformerImage img,
+            DetectionConfigCache.Snapshot config) {
+        String screened = preScreen.screen(baseline, img, config, DetectionPreScreen.Mode.NORMAL);
+        if (screened != null) {
+            return CompletableFuture.completedFuture(screened);
+        }
+        Supplier<CompletableFuture<String>> call = () -> anomalyDetectionService.detectAnomaliesAsync(
+                storage.load(baseline.getStoragePath()),
+                storage.load(img.getStoragePath()),
+                config);
+
+        DetectionResultCache.Key key = cacheKey(baseline, img, config);
+        return key != null ? resultCache.getOrComputeAsync(key, call) : call.get();
+    }
+
+    private static DetectionResultCache.Key cacheKey(TransformerImage baseline, TransformerImage img,
+            DetectionConfigCache.Snapshot config) {
+        // Legacy uploads have no content hash and can't be cached
+        if (baseline.getContentHash() == null || img.getContentHash() == null) {
+            return null;
+        }
+        return new DetectionResultCache.Key(baseline.getContentHash(), img.getContentHash(), config.configId());
+    }
+
+    private void finish(DetectionJob job, DetectionJobStatus status, String error) {
+        markFinished(job, status, error);
+        settle(job);
+    }
+
+    private static void markFinished(DetectionJob job, DetectionJobStatus status, String error) {
+        job.setStatus(status);
+        job.setError(error);
+        job.setFinishedAt(LocalDateTime.now());
+    }
+
+    // Save the outcome of a claimed job, unless it was reclaimed, cancelled or requeued meanwhile
+    private void settle(DetectionJob job) {
+        try {
+            jobs.save(job);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            leaseLost(job);
+        }
+    }
+
+    // Whoever changed the job now owns it; this node's outcome is dropped
+    private static void leaseLost(DetectionJob job) {
+        System.err.println("Detection job " + job.getId() + " changed while running here (lease lost);"
+                + " dropping its " + job.getStatus() + " outcome");
+    }
+}
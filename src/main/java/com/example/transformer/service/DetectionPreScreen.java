@@ -0,0 +1,140 @@
+package com.example.transformer.service;
+
+import com.example.transformer.model.AnomalyDetectionConfig;
+import com.example.transformer.model.ImageHueHistogram;
+import com.example.transformer.model.TransformerImage;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-JVM check run before detection that records an image as "no anomaly"
+ * without a detection call only when detection could not find anything. The
+ * stored whole-image hue histograms and mean brightness reject obvious
+ * changes cheaply; everything else goes through
+ * {@link LocalDetectionEngine#isUnchanged}, which applies the pipeline's own
+ * ROI-masked change gates and requires every ROI pixel's |ΔV| to stay below
+ * {@code delta_abs_min}.
+ *
+ * <p>Also used as the degraded mode while the detection tier rejects calls
+ * (breaker open, bulkhead or queue full): images that clearly match their
+ * baseline are completed instead of deferred.
+ */
+@Service
+public class DetectionPreScreen {
+
+    public enum Mode { NORMAL, DEGRADED }
+
+    private static final Map<String, int[]> BOX_COLORS = Map.of(
+            "FAULT", new int[] { 255, 0, 0 },
+            "POTENTIAL", new int[] { 255, 255, 0 },
+            "NORMAL", new int[] { 0, 255, 0 });
+
+    private final ImageHistogramService histograms;
+    private final FileStorageService storage;
+    private final LocalDetectionEngine engine;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final boolean degradedEnabled;
+
+    public DetectionPreScreen(ImageHistogramService histograms,
+            FileStorageService storage,
+            LocalDetectionEngine engine,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${anomaly.detection.prescreen.enabled:true}") boolean enabled,
+            @Value("${anomaly.detection.prescreen.degraded-enabled:true}") boolean degradedEnabled) {
+        this.histograms = histograms;
+        this.storage = storage;
+        this.engine = engine;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.degradedEnabled = degradedEnabled;
+    }
+
+    /**
+     * A "no anomaly" detection response if the candidate clearly matches the
+     * baseline under {@code config}, otherwise null.
+     */
+    public String screen(TransformerImage baseline, TransformerImage candidate,
+            DetectionConfigCache.Snapshot config, Mode mode) {
+        if (!(mode == Mode.NORMAL ? enabled : degradedEnabled) || baseline == null || candidate == null) {
+            return null;
+        }
+
+        AnomalyDetectionConfig cfg = config.config();
+        double distance;
+        double deltaV;
+        boolean unchanged;
+        try {
+            ImageHueHistogram base = histograms.getOrCompute(baseline, cfg);
+            ImageHueHistogram cand = histograms.getOrCompute(candidate, cfg);
+            distance = distance(base, cand);
+            deltaV = Math.abs(cand.getMeanValue() - base.getMeanValue());
+            // Whole-image numbers can only prove a change, never its absence
+            unchanged = distance < cfg.getHistDistanceMin() && deltaV < cfg.getDeltaAbsMin()
+                    && engine.isUnchanged(storage.load(baseline.getStoragePath()),
+                            storage.load(candidate.getStoragePath()), cfg);
+        } catch (RuntimeException e) {
+            count(mode, "unavailable");
+            return null;
+        }
+
+        if (!unchanged) {
+            count(mode, "needs-detection");
+            return null;
+        }
+        count(mode, "clear");
+        return noAnomaly(distance, deltaV, mode);
+    }
+
+    /** Half the L1 distance between the normalized histograms, in [0, 1]. */
+    private static double distance(ImageHueHistogram a, ImageHueHistogram b) {
+        long totalA = a.getCountedPixels();
+        long totalB = b.getCountedPixels();
+        if (totalA == 0 || totalB == 0) {
+            return totalA == totalB ? 0 : 1;
+        }
+        int[] ca = a.getCounts();
+        int[] cb = b.getCounts();
+        double sum = 0;
+        for (int i = 0; i < ca.length; i++) {
+            sum += Math.abs((double) ca[i] / totalA - (double) cb[i] / totalB);
+        }
+        return sum / 2;
+    }
+
+    private String noAnomaly(double distance, double deltaV, Mode mode) {
+        Map<String, Object> prescreen = new LinkedHashMap<>();
+        prescreen.put("mode", mode.name().toLowerCase());
+        prescreen.put("hist_distance", Math.round(distance * 10000) / 10000.0);
+        prescreen.put("delta_v", Math.round(deltaV * 100) / 100.0);
+
+        Map<String, Object> displayMetadata = new LinkedHashMap<>();
+        displayMetadata.put("box_colors", BOX_COLORS);
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("fault_regions", List.of());
+        response.put("display_metadata", displayMetadata);
+        response.put("timestamp", LocalDateTime.now().withNano(0).toString());
+        response.put("prescreen", prescreen);
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize pre-screen result", e);
+        }
+    }
+
+    private void count(Mode mode, String result) {
+        meterRegistry.counter("detection.prescreen", "mode", mode.name().toLowerCase(), "result", result).increment();
+    }
+}
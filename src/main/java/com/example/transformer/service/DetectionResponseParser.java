@@ -0,0 +1,236 @@
+package com.example.transformer.service;
+
+import com.example.transformer.model.DisplayMetadata;
+import com.example.transformer.model.FaultRegion;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Single-pass reader for detection server responses. Builds {@link FaultRegion}
+ * and {@link DisplayMetadata} entities straight from the token stream without
+ * materializing a JSON tree. Accepts both the camelCase ({@code boundingBox},
+ * {@code areaPx}) and snake_case ({@code bounding_box}, {@code area_px})
+ * bounding box variants; {@code boundingBox} wins when both are present.
+ * Null values leave the corresponding field unset and unknown fields are
+ * skipped.
+ */
+final class DetectionResponseParser {
+
+    record Parsed(List<FaultRegion> faultRegions, DisplayMetadata displayMetadata) {}
+
+    private DetectionResponseParser() {
+    }
+
+    static Parsed parse(JsonFactory factory, String json) throws IOException {
+        try (JsonParser p = factory.createParser(json)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(p, "Detection response must be a JSON object");
+            }
+
+            List<FaultRegion> regions = new ArrayList<>();
+            DisplayMetadata displayMetadata = null;
+            String timestamp = null;
+
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                JsonToken token = p.nextToken();
+                switch (field) {
+                    case "fault_regions" -> {
+                        if (token == JsonToken.START_ARRAY) {
+                            while ((token = p.nextToken()) != JsonToken.END_ARRAY) {
+                                if (token == JsonToken.START_OBJECT) {
+                                    regions.add(region(p));
+                                } else {
+                                    p.skipChildren();
+                                }
+                            }
+                        } else {
+                            p.skipChildren();
+                        }
+                    }
+                    case "display_metadata" -> {
+                        if (token == JsonToken.START_OBJECT) {
+                            displayMetadata = displayMetadata(p);
+                        } else if (token != JsonToken.VALUE_NULL) {
+                            displayMetadata = new DisplayMetadata();
+                            p.skipChildren();
+                        }
+                    }
+                    case "timestamp" -> timestamp = text(p);
+                    default -> p.skipChildren();
+                }
+            }
+
+            if (displayMetadata != null && timestamp != null) {
+                try {
+                    displayMetadata.setTimestamp(LocalDateTime.parse(timestamp));
+                } catch (Exception ex) {
+                    System.err.println("Failed to parse timestamp: " + ex.getMessage());
+                }
+            }
+            return new Parsed(regions, displayMetadata);
+        }
+    }
+
+    private static FaultRegion region(JsonParser p) throws IOException {
+        FaultRegion region = new FaultRegion();
+        List<Integer> rgb = new ArrayList<>();
+        FaultRegion.BoundingBox camelBox = null;
+        FaultRegion.BoundingBox snakeBox = null;
+
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            if (p.nextToken() == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            switch (field) {
+                case "id" -> region.setRegionId(intValue(p));
+                case "type" -> region.setType(text(p));
+                case "dominant_color" -> region.setDominantColor(text(p));
+                case "color_rgb" -> ints(p, rgb);
+                case "boundingBox" -> camelBox = boundingBox(p, false);
+                case "bounding_box" -> snakeBox = boundingBox(p, true);
+                case "centroid" -> region.setCentroid(centroid(p));
+                case "aspect_ratio" -> region.setAspectRatio(doubleValue(p));
+                case "elongated" -> region.setElongated(booleanValue(p));
+                case "connected_to_wire" -> region.setConnectedToWire(booleanValue(p));
+                case "tag" -> region.setTag(text(p));
+                case "confidence" -> region.setConfidence(doubleValue(p));
+                default -> p.skipChildren();
+            }
+        }
+
+        region.setColorRgb(rgb);
+        region.setBoundingBox(camelBox != null ? camelBox : snakeBox);
+        return region;
+    }
+
+    private static FaultRegion.BoundingBox boundingBox(JsonParser p, boolean snakeCase) throws IOException {
+        FaultRegion.BoundingBox bb = new FaultRegion.BoundingBox();
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return bb;
+        }
+        Integer snakeArea = null;
+        Integer camelArea = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            if (p.nextToken() == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            switch (field) {
+                case "x" -> bb.setX(intValue(p));
+                case "y" -> bb.setY(intValue(p));
+                case "width" -> bb.setWidth(intValue(p));
+                case "height" -> bb.setHeight(intValue(p));
+                case "area_px" -> snakeArea = intValue(p);
+                case "areaPx" -> camelArea = intValue(p);
+                default -> p.skipChildren();
+            }
+        }
+        // The camelCase variant only ever carried areaPx
+        bb.setAreaPx(snakeCase && snakeArea != null ? snakeArea : camelArea);
+        return bb;
+    }
+
+    private static FaultRegion.Centroid centroid(JsonParser p) throws IOException {
+        FaultRegion.Centroid centroid = new FaultRegion.Centroid();
+        if (p.currentToken() != JsonToken.START_OBJECT) {
+            p.skipChildren();
+            return centroid;
+        }
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            if (p.nextToken() == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            switch (field) {
+                case "x" -> centroid.setX(intValue(p));
+                case "y" -> centroid.setY(intValue(p));
+                default -> p.skipChildren();
+            }
+        }
+        return centroid;
+    }
+
+    private static DisplayMetadata displayMetadata(JsonParser p) throws IOException {
+        DisplayMetadata dm = new DisplayMetadata();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken token = p.nextToken();
+            if (!"box_colors".equals(field) || token == JsonToken.VALUE_NULL) {
+                p.skipChildren();
+                continue;
+            }
+            Map<String, String> boxColors = new HashMap<>();
+            if (token == JsonToken.START_OBJECT) {
+                List<Integer> rgb = new ArrayList<>(3);
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    String key = p.currentName();
+                    p.nextToken();
+                    rgb.clear();
+                    ints(p, rgb);
+                    if (rgb.size() >= 3) {
+                        boxColors.put(key, rgb.get(0) + "," + rgb.get(1) + "," + rgb.get(2));
+                    }
+                }
+            } else {
+                p.skipChildren();
+            }
+            dm.setBoxColors(boxColors);
+        }
+        return dm;
+    }
+
+    /** Append the non-null elements of the current array to {@code out}; non-arrays are skipped. */
+    private static void ints(JsonParser p, List<Integer> out) throws IOException {
+        if (p.currentToken() != JsonToken.START_ARRAY) {
+            p.skipChildren();
+            return;
+        }
+        JsonToken token;
+        while ((token = p.nextToken()) != JsonToken.END_ARRAY) {
+            if (token != JsonToken.VALUE_NULL) {
+                out.add(intValue(p));
+            }
+        }
+    }
+
+    // Scalar readers coerce like JsonNode.asInt()/asDouble()/asBoolean()/asText()
+
+    private static Integer intValue(JsonParser p) throws IOException {
+        int value = p.getValueAsInt();
+        p.skipChildren();
+        return value;
+    }
+
+    private static Double doubleValue(JsonParser p) throws IOException {
+        double value = p.getValueAsDouble();
+        p.skipChildren();
+        return value;
+    }
+
+    private static Boolean booleanValue(JsonParser p) throws IOException {
+        boolean value = p.getValueAsBoolean();
+        p.skipChildren();
+        return value;
+    }
+
+    private static String text(JsonParser p) throws IOException {
+        if (p.currentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        String value = p.getValueAsString("");
+        p.skipChildren();
+        return value;
+    }
+}
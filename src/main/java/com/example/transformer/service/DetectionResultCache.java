@@ -0,0 +1,213 @@
+package com.example.transformer.service;
+
+import com.example.transformer.model.CachedDetectionResult;
+import com.example.transformer.repository.CachedDetectionResultRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Cache of detection server responses keyed by the content hashes of the
+ * baseline and candidate images and the config ID. A bounded in-memory LRU sits
+ * in front of the detection_result_cache table, and concurrent lookups of the
+ * same key share a single in-flight detection call.
+ */
+@Service
+public class DetectionResultCache {
+
+    public record Key(String baselineHash, String candidateHash, Long configId) {}
+
+    private final CachedDetectionResultRepository repository;
+    private final Map<Key, String> memory;
+    private final Map<Key, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter memoryHits;
+    private final Counter storeHits;
+    private final Counter misses;
+    private final Counter coalesced;
+
+    public DetectionResultCache(CachedDetectionResultRepository repository,
+            MeterRegistry meterRegistry,
+            @Value("${anomaly.detection.result-cache.max-entries:1000}") int maxEntries) {
+        this.repository = repository;
+        this.memory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, String> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.memoryHits = meterRegistry.counter("detection.result.cache", "result", "memory-hit");
+        this.storeHits = meterRegistry.counter("detection.result.cache", "result", "store-hit");
+        this.misses = meterRegistry.counter("detection.result.cache", "result", "miss");
+        this.coalesced = meterRegistry.counter("detection.result.cache", "result", "coalesced");
+    }
+
+    /**
+     * Return the cached response for {@code key}, or run {@code detection} once
+     * and cache its result. Callers racing on the same key wait for the first
+     * call instead of issuing their own.
+     */
+    public String getOrCompute(Key key, Supplier<String> detection) {
+        String cached = lookup(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        CompletableFuture<String> mine = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing);
+        }
+
+        try {
+            // Another caller may have finished between our lookup and registering
+            String raced = memoryGet(key);
+            String result = raced != null ? raced : detection.get();
+            if (raced == null) {
+                misses.increment();
+                store(key, result);
+            }
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * Non-blocking {@link #getOrCompute}: callers racing on the same key share
+     * the first caller's future.
+     */
+    public CompletableFuture<String> getOrComputeAsync(Key key, Supplier<CompletableFuture<String>> detection) {
+        String cached = lookup(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        CompletableFuture<String> mine = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            coalesced.increment();
+            return existing;
+        }
+
+        String raced = memoryGet(key);
+        if (raced != null) {
+            inFlight.remove(key, mine);
+            mine.complete(raced);
+            return mine;
+        }
+        CompletableFuture<String> call;
+        try {
+            call = detection.get();
+        } catch (RuntimeException e) {
+            inFlight.remove(key, mine);
+            mine.completeExceptionally(e);
+            return mine;
+        }
+        call.whenComplete((result, error) -> {
+            try {
+                if (error == null) {
+                    misses.increment();
+                    store(key, result);
+                }
+            } catch (RuntimeException e) {
+                System.err.println("Caching detection result failed: " + e.getMessage());
+            } finally {
+                inFlight.remove(key, mine);
+                if (error != null) {
+                    mine.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error);
+                } else {
+                    mine.complete(result);
+                }
+            }
+        });
+        return mine;
+    }
+
+    /**
+     * Cached response for {@code key} without triggering detection, or null.
+     */
+    public String peek(Key key) {
+        return lookup(key);
+    }
+
+    /**
+     * Store a response obtained outside {@link #getOrCompute}, e.g. from a batch call.
+     */
+    public void put(Key key, String result) {
+        misses.increment();
+        store(key, result);
+    }
+
+    private String lookup(Key key) {
+        String cached = memoryGet(key);
+        if (cached != null) {
+            memoryHits.increment();
+            return cached;
+        }
+        cached = repository.findByBaselineHashAndCandidateHashAndConfigId(
+                        key.baselineHash(), key.candidateHash(), key.configId())
+                .map(CachedDetectionResult::getResponseJson)
+                .orElse(null);
+        if (cached != null) {
+            storeHits.increment();
+            memoryPut(key, cached);
+        }
+        return cached;
+    }
+
+    private void store(Key key, String result) {
+        if (result == null) {
+            return;
+        }
+        memoryPut(key, result);
+        try {
+            repository.save(CachedDetectionResult.builder()
+                    .baselineHash(key.baselineHash())
+                    .candidateHash(key.candidateHash())
+                    .configId(key.configId())
+                    .responseJson(result)
+                    .build());
+        } catch (DataIntegrityViolationException e) {
+            // Another node stored the same key first
+        }
+    }
+
+    private String memoryGet(Key key) {
+        synchronized (memory) {
+            return memory.get(key);
+        }
+    }
+
+    private void memoryPut(Key key, String value) {
+        synchronized (memory) {
+            memory.put(key, value);
+        }
+    }
+
+    private static String await(CompletableFuture<String> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.transformer.service;
+
+import com.example.transformer.model.DetectionPriority;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Priority lanes in front of the detection executor. Each
+ * {@link DetectionPriority} has its own queue and concurrency cap; free slots
+ * are shared between the waiting lanes in proportion to their weights
+ * (stride scheduling), so bulk and background work soak up spare capacity
+ * without starving. The bulk and background caps sit below the total, which
+ * keeps slots free for interactive uploads however much backfill is queued,
+ * and interactive work runs on its own executor, so it never waits for a
+ * worker thread held by a blocking batch call.
+ * <p>
+ * A slot is held until the future returned by the work completes, so
+ * non-blocking detection calls count for as long as they are in flight, not
+ * just while a worker thread is busy.
+ */
+@Component
+public class DetectionScheduler {
+
+    private record Task(Supplier<? extends CompletionStage<?>> work, long enqueuedNanos) {}
+
+    private static final class Lane {
+        final DetectionPriority priority;
+        final double weight;
+        final int maxConcurrent;
+        final int maxQueued;
+        final TaskExecutor executor;
+        final ArrayDeque<Task> queue = new ArrayDeque<>();
+        final Timer wait;
+        final Counter rejected;
+        int running;
+        // Virtual finish time of the lane's next task; the lowest pass goes first
+        double pass;
+
+        Lane(DetectionPriority priority, double weight, int maxConcurrent, int maxQueued, TaskExecutor executor,
+                Timer wait, Counter rejected) {
+            this.priority = priority;
+            this.weight = weight;
+            this.maxConcurrent = maxConcurrent;
+            this.maxQueued = maxQueued;
+            this.executor = executor;
+            this.wait = wait;
+            this.rejected = rejected;
+        }
+    }
+
+    private final int maxInFlight;
+    private final Map<DetectionPriority, Lane> lanes = new EnumMap<>(DetectionPriority.class);
+    private int running;
+    private double virtualTime;
+
+    public DetectionScheduler(MeterRegistry meterRegistry,
+            @Qualifier("interactiveDetectionExecutor") TaskExecutor interactiveExecutor,
+            @Qualifier("detectionExecutor") TaskExecutor executor,
+            @Value("${anomaly.detection.scheduler.max-in-flight:32}") int maxInFlight,
+            @Value("${anomaly.detection.scheduler.max-queued-per-lane:1000}") int maxQueued,
+            @Value("${anomaly.detection.scheduler.interactive.weight:8}") double interactiveWeight,
+            @Value("${anomaly.detection.scheduler.bulk.weight:2}") double bulkWeight,
+            @Value("${anomaly.detection.scheduler.bulk.max-concurrent:16}") int bulkMaxConcurrent,
+            @Value("${anomaly.detection.scheduler.background.weight:1}") double backgroundWeight,
+            @Value("${anomaly.detection.scheduler.background.max-concurrent:8}") int backgroundMaxConcurrent) {
+        this.maxInFlight = Math.max(1, maxInFlight);
+        addLane(meterRegistry, DetectionPriority.INTERACTIVE, interactiveWeight, this.maxInFlight, maxQueued,
+                interactiveExecutor);
+        addLane(meterRegistry, DetectionPriority.BULK, bulkWeight, bulkMaxConcurrent, maxQueued, executor);
+        addLane(meterRegistry, DetectionPriority.BACKGROUND, backgroundWeight, backgroundMaxConcurrent, maxQueued,
+                executor);
+    }
+
+    private void addLane(MeterRegistry meterRegistry, DetectionPriority priority, double weight,
+            int maxConcurrent, int maxQueued, TaskExecutor executor) {
+        String name = priority.name().toLowerCase(Locale.ROOT);
+        Lane lane = new Lane(priority, Math.max(0.01, weight),
+                Math.max(1, Math.min(maxInFlight, maxConcurrent)), Math.max(0, maxQueued), executor,
+                meterRegistry.timer("detection.lane.wait", "lane", name),
+                meterRegistry.counter("detection.lane.rejected", "lane", name));
+        lanes.put(priority, lane);
+        meterRegistry.gauge("detection.lane.queued", Tags.of("lane", name), this, s -> s.queued(lane));
+        meterRegistry.gauge("detection.lane.running", Tags.of("lane", name), this, s -> s.running(lane));
+    }
+
+    /**
+     * Queue {@code work} in the lane of {@code priority}. It runs on the
+     * lane's executor once the lane gets a slot, and the slot is released
+     * when the returned stage completes.
+     *
+     * @throws TaskRejectedException if the lane's queue is full
+     */
+    public void submit(DetectionPriority priority, Supplier<? extends CompletionStage<?>> work) {
+        Lane lane = lanes.get(priority);
+        synchronized (this) {
+            if (lane.queue.size() >= lane.maxQueued) {
+                lane.rejected.increment();
+                throw new TaskRejectedException("Detection lane " + priority + " is full");
+            }
+            if (lane.queue.isEmpty() && lane.running == 0) {
+                // An idle lane doesn't bank credit for the time it had nothing to do
+                lane.pass = Math.max(lane.pass, virtualTime);
+            }
+            lane.queue.add(new Task(work, System.nanoTime()));
+        }
+        drain();
+    }
+
+    /** Tasks waiting in the lane of {@code priority}, for producers that pace themselves. */
+    public int queued(DetectionPriority priority) {
+        return queued(lanes.get(priority));
+    }
+
+    private void drain() {
+        while (true) {
+            Lane lane;
+            Task task;
+            synchronized (this) {
+                lane = next();
+                if (lane == null) {
+                    return;
+                }
+                task = lane.queue.poll();
+                lane.running++;
+                running++;
+                virtualTime = lane.pass;
+                lane.pass += 1.0 / lane.weight;
+            }
+            lane.wait.record(System.nanoTime() - task.enqueuedNanos(), TimeUnit.NANOSECONDS);
+            start(lane, task);
+        }
+    }
+
+    // Waiting lane under its cap with the lowest pass; ties go to the higher priority
+    private Lane next() {
+        if (running >= maxInFlight) {
+            return null;
+        }
+        Lane best = null;
+        for (Lane lane : lanes.values()) {
+            if (!lane.queue.isEmpty() && lane.running < lane.maxConcurrent
+                    && (best == null || lane.pass < best.pass)) {
+                best = lane;
+            }
+        }
+        return best;
+    }
+
+    private void start(Lane lane, Task task) {
+        Runnable job = () -> {
+            CompletionStage<?> stage;
+            try {
+                stage = task.work().get();
+            } catch (RuntimeException e) {
+                System.err.println("Detection task in lane " + lane.priority + " failed: " + e.getMessage());
+                release(lane);
+                return;
+            }
+            stage.whenComplete((result, error) -> release(lane));
+        };
+        try {
+            lane.executor.execute(job);
+        } catch (TaskRejectedException e) {
+            // The scheduler keeps the executor below its queue capacity, so this means it's shutting down
+            job.run();
+        }
+    }
+
+    private void release(Lane lane) {
+        synchronized (this) {
+            lane.running--;
+            running--;
+        }
+        drain();
+    }
+
+    private synchronized int queued(Lane lane) {
+        return lane.queue.size();
+    }
+
+    private synchronized int running(Lane lane) {
+        return lane.running;
+    }
+}
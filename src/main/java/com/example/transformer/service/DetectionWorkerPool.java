@@ -0,0 +1,286 @@
+package com.example.transformer.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * The set of Flask detection workers. Each call goes to the less loaded of two
+ * randomly picked healthy workers (power-of-two-choices on outstanding
+ * requests). A worker that fails several calls in a row is ejected and only
+ * re-admitted after its health endpoint answers again.
+ */
+@Component
+public class DetectionWorkerPool {
+
+    public static final class Worker {
+        private final String url;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        private volatile boolean healthy = true;
+
+        Worker(String url) {
+            this.url = url;
+        }
+
+        public String url() {
+            return url;
+        }
+
+        public int outstanding() {
+            return outstanding.get();
+        }
+
+        public boolean healthy() {
+            return healthy;
+        }
+    }
+
+    private final List<Worker> workers;
+    private final int ejectAfterFailures;
+    private final String healthPath;
+    private final RestTemplate probeClient;
+    private final HedgingPolicy hedging;
+
+    public DetectionWorkerPool(MeterRegistry meterRegistry,
+            HedgingPolicy hedging,
+            @Value("${anomaly.detection.api.urls:${anomaly.detection.api.url:http://localhost:5000}}") String[] urls,
+            @Value("${anomaly.detection.pool.eject-after-failures:3}") int ejectAfterFailures,
+            @Value("${anomaly.detection.pool.health-path:/health}") String healthPath,
+            @Value("${anomaly.detection.pool.probe-timeout:2s}") Duration probeTimeout) {
+        List<Worker> list = new ArrayList<>();
+        Arrays.stream(urls)
+                .map(String::trim)
+                .filter(u -> !u.isEmpty())
+                .map(u -> u.endsWith("/") ? u.substring(0, u.length() - 1) : u)
+                .distinct()
+                .forEach(u -> list.add(new Worker(u)));
+        if (list.isEmpty()) {
+            throw new IllegalStateException("At least one detection worker URL must be configured");
+        }
+        this.workers = List.copyOf(list);
+        this.ejectAfterFailures = ejectAfterFailures;
+        this.healthPath = healthPath;
+        this.hedging = hedging;
+
+        SimpleClientHttpRequestFactory probeFactory = new SimpleClientHttpRequestFactory();
+        probeFactory.setConnectTimeout(probeTimeout);
+        probeFactory.setReadTimeout(probeTimeout);
+        this.probeClient = new RestTemplate(probeFactory);
+
+        for (Worker w : workers) {
+            Gauge.builder("detection.worker.outstanding", w.outstanding, AtomicInteger::get)
+                    .tag("worker", w.url)
+                    .register(meterRegistry);
+            Gauge.builder("detection.worker.healthy", w, x -> x.healthy ? 1 : 0)
+                    .tag("worker", w.url)
+                    .register(meterRegistry);
+        }
+    }
+
+    public List<Worker> workers() {
+        return workers;
+    }
+
+    /**
+     * Run {@code call} against the chosen worker's base URL, tracking outstanding
+     * requests and health.
+     */
+    public <T> T call(Function<String, T> call) {
+        Worker worker = choose();
+        worker.outstanding.incrementAndGet();
+        try {
+            T result = call.apply(worker.url);
+            worker.consecutiveFailures.set(0);
+            return result;
+        } catch (ResourceAccessException | HttpServerErrorException e) {
+            if (worker.consecutiveFailures.incrementAndGet() >= ejectAfterFailures && worker.healthy) {
+                worker.healthy = false;
+                System.err.println("Ejected detection worker " + worker.url + ": " + e.getMessage());
+            }
+            throw e;
+        } finally {
+            worker.outstanding.decrementAndGet();
+        }
+    }
+
+    /**
+     * Non-blocking {@link #call}: the worker's outstanding count and health are
+     * updated when the returned future completes.
+     */
+    public <T> CompletableFuture<T> callAsync(Function<String, CompletableFuture<T>> call) {
+        return callOn(choose(), call);
+    }
+
+    /**
+     * {@link #callAsync} with hedging: if the chosen worker hasn't answered
+     * within the {@link HedgingPolicy} delay, the same call goes to another
+     * healthy worker as well and the first successful answer wins. The slower
+     * call is left to finish on its own; its answer is ignored. Fails only
+     * once every attempt has failed, with the first error.
+     */
+    public <T> CompletableFuture<T> callHedgedAsync(Function<String, CompletableFuture<T>> call) {
+        long delay = hedging.startPrimary();
+        Worker primary = choose();
+        if (delay < 0 || workers.size() < 2) {
+            return callOn(primary, call);
+        }
+
+        Hedge<T> hedge = new Hedge<>();
+        hedge.attach(callOn(primary, call), false);
+        CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS).execute(() -> {
+            Worker other = chooseOther(primary);
+            if (other != null && hedge.open()) {
+                CompletableFuture<T> second;
+                try {
+                    second = callOn(other, call);
+                } catch (RuntimeException e) {
+                    second = CompletableFuture.failedFuture(e);
+                }
+                hedge.attach(second, true);
+            }
+        });
+        return hedge.result;
+    }
+
+    // Tracks the primary call and at most one hedge
+    private final class Hedge<T> {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        private int running;
+        private boolean closed;
+        private Throwable firstError;
+
+        synchronized void attach(CompletableFuture<T> attempt, boolean isHedge) {
+            if (!isHedge) {
+                running++; // open() already counted the hedge
+            }
+            attempt.whenComplete((value, error) -> completed(value, error, isHedge));
+        }
+
+        /** Claim the single hedge slot, if the primary is still running and the budget allows. */
+        synchronized boolean open() {
+            if (closed || result.isDone()) {
+                return false;
+            }
+            closed = true;
+            if (!hedging.tryAcquireHedge()) {
+                return false;
+            }
+            running++;
+            return true;
+        }
+
+        private void completed(T value, Throwable error, boolean isHedge) {
+            if (error == null) {
+                if (result.complete(value) && isHedge) {
+                    hedging.hedgeWon();
+                }
+                return;
+            }
+            Throwable failure;
+            synchronized (this) {
+                running--;
+                // No hedge after a failure: the guard's retry handles that
+                closed = true;
+                if (firstError == null) {
+                    firstError = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                }
+                failure = running == 0 ? firstError : null;
+            }
+            if (failure != null) {
+                result.completeExceptionally(failure);
+            }
+        }
+    }
+
+    private <T> CompletableFuture<T> callOn(Worker worker, Function<String, CompletableFuture<T>> call) {
+        worker.outstanding.incrementAndGet();
+        long start = System.nanoTime();
+        CompletableFuture<T> future;
+        try {
+            future = call.apply(worker.url);
+        } catch (RuntimeException e) {
+            worker.outstanding.decrementAndGet();
+            throw e;
+        }
+        return future.whenComplete((result, error) -> {
+            worker.outstanding.decrementAndGet();
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause == null) {
+                worker.consecutiveFailures.set(0);
+                hedging.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            } else if (cause instanceof ResourceAccessException || cause instanceof HttpServerErrorException) {
+                if (worker.consecutiveFailures.incrementAndGet() >= ejectAfterFailures && worker.healthy) {
+                    worker.healthy = false;
+                    System.err.println("Ejected detection worker " + worker.url + ": " + cause.getMessage());
+                }
+            }
+        });
+    }
+
+    // Least loaded healthy worker other than the excluded one, or null
+    private Worker chooseOther(Worker excluded) {
+        Worker best = null;
+        for (Worker w : workers) {
+            if (w != excluded && w.healthy && (best == null || w.outstanding.get() < best.outstanding.get())) {
+                best = w;
+            }
+        }
+        return best;
+    }
+
+    Worker choose() {
+        List<Worker> candidates = workers.stream().filter(w -> w.healthy).toList();
+        if (candidates.isEmpty()) {
+            // Everything is ejected; keep trying rather than failing every call
+            candidates = workers;
+        }
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        int i = rnd.nextInt(candidates.size());
+        int j = rnd.nextInt(candidates.size() - 1);
+        if (j >= i) {
+            j++;
+        }
+        Worker a = candidates.get(i);
+        Worker b = candidates.get(j);
+        return a.outstanding.get() <= b.outstanding.get() ? a : b;
+    }
+
+    // Re-admit ejected workers whose health endpoint answers again
+    @Scheduled(fixedDelayString = "${anomaly.detection.pool.probe-interval:10s}")
+    void probeEjected() {
+        for (Worker w : workers) {
+            if (w.healthy) {
+                continue;
+            }
+            try {
+                probeClient.getForEntity(w.url + healthPath, String.class);
+                w.consecutiveFailures.set(0);
+                w.healthy = true;
+                System.err.println("Re-admitted detection worker " + w.url);
+            } catch (Exception e) {
+                // still down
+            }
+        }
+    }
+}
@@ -1,16 +1,27 @@
 package com.example.transformer.service;
 
+import com.example.transformer.model.StoredBlob;
+import com.example.transformer.repository.StoredBlobRepository;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.*;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.Locale;
 import java.util.Objects;
 
@@ -18,27 +29,50 @@ import java.util.Objects;
 public class FileStorageService {
 
   private final Path root;
-  private static final DateTimeFormatter TS_FMT =
-      DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSS");
+  private final Path tmpDir;
+  private final StoredBlobRepository blobs;
+  private final HotImageCache hotImages;
+  private final TransactionTemplate tx;
+  private final TransactionTemplate cleanupTx;
 
-  public FileStorageService(@Value("${app.storage.root:uploads}") String rootDir) throws IOException {
+  public FileStorageService(@Value("${app.storage.root:uploads}") String rootDir,
+                            StoredBlobRepository blobs,
+                            HotImageCache hotImages,
+                            PlatformTransactionManager transactionManager) throws IOException {
     this.root = Path.of(rootDir).toAbsolutePath().normalize();
+    this.tmpDir = root.resolve("tmp");
+    this.blobs = blobs;
+    this.hotImages = hotImages;
+    this.tx = new TransactionTemplate(transactionManager);
+    // Runs after the releasing transaction committed, possibly from its afterCommit callback
+    this.cleanupTx = new TransactionTemplate(transactionManager);
+    this.cleanupTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
     Files.createDirectories(this.root);
+    Files.createDirectories(this.tmpDir);
   }
 
+  /** Location of a saved image plus the SHA-256 of its contents. */
+  public record StoredFile(String relativePath, String contentHash, long sizeBytes) {}
+
   /**
-   * Save a transformer image into:
-   * uploads/transformers/{transformerId}/{baseline|maintenance}/timestamp-filename.ext
+   * Save a transformer image into the content-addressed store:
+   * uploads/blobs/{hash[0..2]}/{hash[2..4]}/{sha256}.ext
+   *
+   * The file is hashed while it streams to a temp file. If a blob with the same
+   * hash already exists the temp file is dropped and the existing blob gains a
+   * reference, so re-uploads of identical bytes share one physical file. The
+   * lookup, the move into place and the reference are done under a database
+   * lock on the hash, so they cannot interleave with a release on another node.
    *
    * @return the RELATIVE path from the storage root (e.g.
-   *         "transformers/1/baseline/20250824...-photo.jpg")
+   *         "blobs/3f/a2/3fa2...c9.jpg") and the content hash
    */
-  public String saveTransformerImage(Long transformerId, String imageType, MultipartFile file) throws IOException {
+  public StoredFile saveTransformerImage(Long transformerId, String imageType, MultipartFile file) throws IOException {
     Objects.requireNonNull(transformerId, "transformerId is required");
     Objects.requireNonNull(imageType, "imageType is required");
     Objects.requireNonNull(file, "file is required");
 
-    String typeDir = normalizeType(imageType); // "baseline" or "maintenance"
+    normalizeType(imageType); // rejects anything but baseline/maintenance
 
     // sanitize original name
     String original = StringUtils.cleanPath(Objects.requireNonNullElse(file.getOriginalFilename(), "upload"));
@@ -46,26 +80,88 @@ public class FileStorageService {
       throw new IllegalArgumentException("Invalid file name");
     }
 
-    String timestamp = TS_FMT.format(LocalDateTime.now());
-    String safeName = timestamp + "-" + original;
+    Path tmp = Files.createTempFile(tmpDir, "upload-", ".part");
+    String hash;
+    long size;
+    try {
+      MessageDigest digest = newDigest();
+      try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+        size = Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+      }
+      hash = HexFormat.of().formatHex(digest.digest());
+
+      String relative = inTransaction(() -> {
+        blobs.lock(hash);
+        String path = blobs.findById(hash)
+            .map(StoredBlob::getStoragePath)
+            .filter(p -> Files.exists(root.resolve(p)))
+            .orElse(null);
 
-    // uploads/transformers/{id}/{typeDir}
-    Path dir = root.resolve("transformers")
-                   .resolve(String.valueOf(transformerId))
-                   .resolve(typeDir)
-                   .normalize();
+        if (path == null) {
+          // uploads/blobs/{ab}/{cd}/{hash}.ext
+          Path dir = root.resolve("blobs")
+                         .resolve(hash.substring(0, 2))
+                         .resolve(hash.substring(2, 4))
+                         .normalize();
+          Files.createDirectories(dir);
 
-    Files.createDirectories(dir);
+          Path dest = dir.resolve(hash + extensionOf(original)).normalize();
+          Files.move(tmp, dest, StandardCopyOption.REPLACE_EXISTING);
 
-    Path dest = dir.resolve(safeName).normalize();
+          // return relative path (portable slashes)
+          path = root.relativize(dest).toString().replace('\\', '/');
+        }
 
-    try (InputStream in = file.getInputStream()) {
-      Files.copy(in, dest, StandardCopyOption.REPLACE_EXISTING);
+        blobs.acquire(hash, path, size);
+        return path;
+      });
+      return new StoredFile(relative, hash, size);
+    } finally {
+      Files.deleteIfExists(tmp);
     }
+  }
 
-    // return relative path (portable slashes)
-    Path relative = root.relativize(dest);
-    return relative.toString().replace('\\', '/');
+  /**
+   * Drop one reference to a blob. Joins the caller's transaction, if any. The
+   * physical file is removed once no image references it any more, but only
+   * after the row deletion has committed, and only if no upload has
+   * re-acquired the hash in the meantime. Legacy images without a hash are
+   * left untouched.
+   */
+  public void release(String contentHash) {
+    if (contentHash == null || contentHash.isBlank()) {
+      return;
+    }
+    String relative = tx.execute(status -> {
+      blobs.lock(contentHash);
+      String path = blobs.findById(contentHash).map(StoredBlob::getStoragePath).orElse(null);
+      blobs.decrementRefCount(contentHash);
+      return blobs.deleteIfUnreferenced(contentHash) > 0 ? path : null;
+    });
+    if (relative != null) {
+      afterCommit(() -> deleteIfUnreferenced(contentHash, relative));
+    }
+  }
+
+  private void deleteIfUnreferenced(String contentHash, String relative) {
+    try {
+      cleanupTx.executeWithoutResult(status -> {
+        blobs.lock(contentHash);
+        if (blobs.existsById(contentHash)) {
+          return; // re-uploaded since the release; the file is in use again
+        }
+        try {
+          deleteRenditions(relative);
+          Path original = load(relative).getFile().toPath();
+          Files.deleteIfExists(original);
+          hotImages.evict(original);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (RuntimeException e) {
+      System.err.println("Failed to delete blob " + contentHash + ": " + e.getMessage());
+    }
   }
 
   /**
@@ -84,6 +180,104 @@ public class FileStorageService {
     return new FileSystemResource(target);
   }
 
+  /**
+   * RELATIVE path of a derived rendition stored next to its original:
+   * blobs/ab/cd/{sha256}.{rendition}.jpg
+   */
+  public String renditionPath(String relativePath, String rendition) {
+    int slash = relativePath.lastIndexOf('/');
+    int dot = relativePath.lastIndexOf('.');
+    String stem = dot > slash ? relativePath.substring(0, dot) : relativePath;
+    return stem + "." + rendition + ".jpg";
+  }
+
+  /** Writes the contents of a derived file. */
+  @FunctionalInterface
+  public interface ContentWriter {
+    void write(OutputStream out) throws IOException;
+  }
+
+  /**
+   * Write a derived file (e.g. a rendition) at a RELATIVE path. The content goes
+   * to a temp file first and is moved into place, so readers never see a
+   * partial file.
+   */
+  public void writeDerived(String relativePath, ContentWriter writer) throws IOException {
+    Path target = load(relativePath).getFile().toPath();
+    Path tmp = Files.createTempFile(tmpDir, "derived-", ".part");
+    try {
+      try (OutputStream out = Files.newOutputStream(tmp)) {
+        writer.write(out);
+      }
+      Files.createDirectories(target.getParent());
+      Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      hotImages.evict(target);
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  private void deleteRenditions(String relativePath) throws IOException {
+    Path original = load(relativePath).getFile().toPath();
+    String name = original.getFileName().toString();
+    int dot = name.lastIndexOf('.');
+    String stem = dot > 0 ? name.substring(0, dot) : name;
+    try (DirectoryStream<Path> renditions = Files.newDirectoryStream(original.getParent(), stem + ".*.jpg")) {
+      for (Path rendition : renditions) {
+        Files.deleteIfExists(rendition);
+        hotImages.evict(rendition);
+      }
+    }
+  }
+
+  @FunctionalInterface
+  private interface IoCallback<T> {
+    T run() throws IOException;
+  }
+
+  private <T> T inTransaction(IoCallback<T> callback) throws IOException {
+    try {
+      return tx.execute(status -> {
+        try {
+          return callback.run();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  private static void afterCommit(Runnable task) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          task.run();
+        }
+      });
+    } else {
+      task.run();
+    }
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 not available", e);
+    }
+  }
+
+  private static String extensionOf(String filename) {
+    String ext = StringUtils.getFilenameExtension(filename);
+    if (ext == null || !ext.matches("[A-Za-z0-9]{1,8}")) {
+      return "";
+    }
+    return "." + ext.toLowerCase(Locale.ROOT);
+  }
+
   private String normalizeType(String imageType) {
     String t = imageType.trim().toLowerCase(Locale.ROOT);
     return switch (t) {
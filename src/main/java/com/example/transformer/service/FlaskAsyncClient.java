@@ -0,0 +1,248 @@
+package com.example.transformer.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking multipart client for the Flask server on the JDK
+ * {@link HttpClient}. No thread waits while a request is in flight, so a few
+ * selector and completion threads keep hundreds of calls going. File parts
+ * are streamed from disk. Failures are reported with the same exception types
+ * the pooled {@code RestTemplate} throws, so {@link FlaskCallGuard} and
+ * {@link DetectionWorkerPool} classify them the same way.
+ * <p>
+ * The JDK client keeps its own connections, outside the {@code RestTemplate}
+ * pool, and can't cap them. Over HTTP/1.1 each request in flight holds one
+ * connection, so requests are leased against {@code async.max-total} and
+ * {@code async.max-per-route} here instead. Requests over the limits wait in
+ * a queue without holding a thread, and fail with
+ * {@link ResourceAccessException} after {@code pool-acquire-timeout}, as the
+ * pooled client does. Flask workers therefore see up to {@code http.max-total}
+ * plus {@code async.max-total} connections from this node. Idle connections
+ * are closed after the JDK's {@code jdk.httpclient.keepalive.timeout}.
+ */
+@Component
+public class FlaskAsyncClient {
+
+    /** One multipart form field, either a file on disk or bytes in memory. */
+    public record Part(String name, String filename, Path file, byte[] bytes) {
+
+        public static Part of(String name, Resource resource) {
+            try {
+                return new Part(name, resource.getFilename(), resource.getFile().toPath(), null);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Part " + name + " is not a file on disk", e);
+            }
+        }
+
+        public static Part of(String name, String filename, byte[] bytes) {
+            return new Part(name, filename, null, bytes);
+        }
+    }
+
+    // A request waiting for a connection to its route
+    private record Waiter(String route, Runnable start) {}
+
+    private final HttpClient client;
+    private final ExecutorService completions;
+    private final Duration readTimeout;
+    private final int maxTotal;
+    private final int maxPerRoute;
+    private final Duration acquireTimeout;
+    private final Map<String, Integer> leasedByRoute = new HashMap<>();
+    private final ArrayDeque<Waiter> pending = new ArrayDeque<>();
+    private int leased;
+
+    public FlaskAsyncClient(MeterRegistry meterRegistry,
+            @Value("${anomaly.detection.async.threads:4}") int threads,
+            @Value("${anomaly.detection.async.max-total:50}") int maxTotal,
+            @Value("${anomaly.detection.async.max-per-route:20}") int maxPerRoute,
+            @Value("${anomaly.detection.http.pool-acquire-timeout:10s}") Duration acquireTimeout,
+            @Value("${anomaly.detection.http.connect-timeout:5s}") Duration connectTimeout,
+            @Value("${anomaly.detection.http.read-timeout:120s}") Duration readTimeout) {
+        this.completions = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("flask-async-"));
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(connectTimeout)
+                .executor(completions)
+                .build();
+        this.readTimeout = readTimeout;
+        this.maxTotal = Math.max(1, maxTotal);
+        this.maxPerRoute = Math.max(1, Math.min(this.maxTotal, maxPerRoute));
+        this.acquireTimeout = acquireTimeout;
+        meterRegistry.gauge("flask.async.connections.leased", this, FlaskAsyncClient::leased);
+        meterRegistry.gauge("flask.async.connections.pending", this, FlaskAsyncClient::pending);
+    }
+
+    /**
+     * POST {@code parts} as multipart/form-data and complete with the response
+     * body. Completes exceptionally with {@link HttpClientErrorException} or
+     * {@link HttpServerErrorException} for 4xx/5xx answers and with
+     * {@link ResourceAccessException} for I/O errors and timeouts.
+     */
+    public CompletableFuture<String> postMultipart(String url, List<Part> parts) {
+        String boundary = "----flask-" + UUID.randomUUID();
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(URI.create(url))
+                    .timeout(readTimeout)
+                    .header(HttpHeaders.CONTENT_TYPE, "multipart/form-data; boundary=" + boundary)
+                    .POST(multipartBody(boundary, parts))
+                    .build();
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(new ResourceAccessException("Cannot read upload part: " + e.getMessage(), e));
+        }
+
+        return withConnection(route(request.uri()), () -> client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .handle((response, error) -> {
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException && error.getCause() != null
+                                ? error.getCause() : error;
+                        throw new ResourceAccessException("I/O error on POST request for \"" + url + "\": "
+                                + cause.getMessage(), cause instanceof IOException io ? io : new IOException(cause));
+                    }
+                    int status = response.statusCode();
+                    if (status >= 400) {
+                        byte[] body = response.body() != null ? response.body().getBytes(StandardCharsets.UTF_8) : null;
+                        HttpStatusCode code = HttpStatusCode.valueOf(status);
+                        throw status >= 500
+                                ? HttpServerErrorException.create(code, "Flask error", HttpHeaders.EMPTY, body, StandardCharsets.UTF_8)
+                                : HttpClientErrorException.create(code, "Flask error", HttpHeaders.EMPTY, body, StandardCharsets.UTF_8);
+                    }
+                    return response.body();
+                }));
+    }
+
+    // Run send once a connection to route is free; the lease is returned when the call completes
+    private CompletableFuture<String> withConnection(String route, Supplier<CompletableFuture<String>> send) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        Waiter waiter = new Waiter(route, () -> {
+            CompletableFuture<String> call;
+            try {
+                call = send.get();
+            } catch (RuntimeException e) {
+                call = CompletableFuture.failedFuture(e);
+            }
+            call.whenComplete((body, error) -> {
+                release(route);
+                if (error != null) {
+                    result.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error);
+                } else {
+                    result.complete(body);
+                }
+            });
+        });
+        synchronized (this) {
+            pending.add(waiter);
+        }
+        drain();
+
+        CompletableFuture.delayedExecutor(acquireTimeout.toMillis(), TimeUnit.MILLISECONDS).execute(() -> {
+            boolean expired;
+            synchronized (this) {
+                expired = pending.remove(waiter);
+            }
+            if (expired) {
+                result.completeExceptionally(new ResourceAccessException(
+                        "Timeout waiting for a connection to " + route + " after " + acquireTimeout));
+            }
+        });
+        return result;
+    }
+
+    // Start waiters in arrival order, skipping those whose route is at its limit
+    private void drain() {
+        List<Runnable> ready = new ArrayList<>();
+        synchronized (this) {
+            Iterator<Waiter> it = pending.iterator();
+            while (leased < maxTotal && it.hasNext()) {
+                Waiter waiter = it.next();
+                int onRoute = leasedByRoute.getOrDefault(waiter.route(), 0);
+                if (onRoute < maxPerRoute) {
+                    it.remove();
+                    leasedByRoute.put(waiter.route(), onRoute + 1);
+                    leased++;
+                    ready.add(waiter.start());
+                }
+            }
+        }
+        ready.forEach(Runnable::run);
+    }
+
+    private void release(String route) {
+        synchronized (this) {
+            leased--;
+            leasedByRoute.merge(route, -1, (a, b) -> a + b == 0 ? null : a + b);
+        }
+        drain();
+    }
+
+    private synchronized int leased() {
+        return leased;
+    }
+
+    private synchronized int pending() {
+        return pending.size();
+    }
+
+    private static String route(URI uri) {
+        return uri.getScheme() + "://" + uri.getHost() + ":" + uri.getPort();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        completions.shutdown();
+    }
+
+    private static HttpRequest.BodyPublisher multipartBody(String boundary, List<Part> parts) throws IOException {
+        List<HttpRequest.BodyPublisher> publishers = new ArrayList<>(parts.size() * 3 + 1);
+        for (Part part : parts) {
+            String filename = part.filename() != null ? part.filename() : part.name();
+            String head = "--" + boundary + "\r\n"
+                    + "Content-Disposition: form-data; name=\"" + part.name() + "\"; filename=\"" + filename + "\"\r\n"
+                    + "Content-Type: " + MediaTypeFactory.getMediaType(filename).orElse(MediaType.APPLICATION_OCTET_STREAM)
+                    + "\r\n\r\n";
+            publishers.add(HttpRequest.BodyPublishers.ofByteArray(head.getBytes(StandardCharsets.UTF_8)));
+            publishers.add(part.file() != null
+                    ? HttpRequest.BodyPublishers.ofFile(part.file())
+                    : HttpRequest.BodyPublishers.ofByteArray(part.bytes()));
+            publishers.add(HttpRequest.BodyPublishers.ofByteArray("\r\n".getBytes(StandardCharsets.UTF_8)));
+        }
+        publishers.add(HttpRequest.BodyPublishers.ofByteArray(("--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8)));
+        return HttpRequest.BodyPublishers.concat(publishers.toArray(HttpRequest.BodyPublisher[]::new));
+    }
+}
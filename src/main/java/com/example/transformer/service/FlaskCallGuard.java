@@ -0,0 +1,182 @@
+package com.example.transformer.service;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.core.IntervalFunction;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedRetryMetrics;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryConfig;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Supplier;
+
+/**
+ * Resilience policy for calls to the Flask server: one circuit breaker shared by
+ * detection and training (same backend), a concurrency bulkhead per call type,
+ * and exponential retry with jitter for transient failures.
+ *
+ * Callers see {@link CallNotPermittedException} when the breaker is open and
+ * {@link BulkheadFullException} when the bulkhead is saturated; both mean "try
+ * again later" rather than "the call failed".
+ */
+@Component
+public class FlaskCallGuard {
+
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead detectionBulkhead;
+    private final Bulkhead trainingBulkhead;
+    private final Bulkhead asyncDetectionBulkhead;
+    private final Bulkhead asyncTrainingBulkhead;
+    private final Retry retry;
+    private final ScheduledExecutorService retryScheduler =
+            Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("flask-retry-"));
+
+    public FlaskCallGuard(MeterRegistry meterRegistry,
+            @Value("${anomaly.detection.resilience.failure-rate-threshold:50}") float failureRateThreshold,
+            @Value("${anomaly.detection.resilience.slow-call-duration:30s}") Duration slowCallDuration,
+            @Value("${anomaly.detection.resilience.slow-call-rate-threshold:80}") float slowCallRateThreshold,
+            @Value("${anomaly.detection.resilience.sliding-window-size:20}") int slidingWindowSize,
+            @Value("${anomaly.detection.resilience.minimum-calls:10}") int minimumCalls,
+            @Value("${anomaly.detection.resilience.open-duration:30s}") Duration openDuration,
+            @Value("${anomaly.detection.resilience.half-open-calls:3}") int halfOpenCalls,
+            @Value("${anomaly.detection.resilience.max-concurrent-detections:8}") int maxConcurrentDetections,
+            @Value("${anomaly.detection.resilience.max-concurrent-trainings:2}") int maxConcurrentTrainings,
+            @Value("${anomaly.detection.resilience.max-concurrent-async-detections:64}") int maxConcurrentAsyncDetections,
+            @Value("${anomaly.detection.resilience.bulkhead-max-wait:500ms}") Duration bulkheadMaxWait,
+            @Value("${anomaly.detection.resilience.retry-attempts:3}") int retryAttempts,
+            @Value("${anomaly.detection.resilience.retry-initial-backoff:500ms}") Duration retryInitialBackoff,
+            @Value("${anomaly.detection.resilience.retry-multiplier:2.0}") double retryMultiplier,
+            @Value("${anomaly.detection.resilience.retry-jitter:0.5}") double retryJitter) {
+
+        CircuitBreakerRegistry breakers = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .failureRateThreshold(failureRateThreshold)
+                .slowCallDurationThreshold(slowCallDuration)
+                .slowCallRateThreshold(slowCallRateThreshold)
+                .slidingWindowSize(slidingWindowSize)
+                .minimumNumberOfCalls(minimumCalls)
+                .waitDurationInOpenState(openDuration)
+                .permittedNumberOfCallsInHalfOpenState(halfOpenCalls)
+                .automaticTransitionFromOpenToHalfOpenEnabled(true)
+                // A 4xx is our request's fault, not a sign the server is unhealthy
+                .ignoreExceptions(HttpClientErrorException.class)
+                .build());
+        this.circuitBreaker = breakers.circuitBreaker("flask");
+
+        BulkheadRegistry bulkheads = BulkheadRegistry.ofDefaults();
+        this.detectionBulkhead = bulkheads.bulkhead("flask-detection", BulkheadConfig.custom()
+                .maxConcurrentCalls(maxConcurrentDetections)
+                .maxWaitDuration(bulkheadMaxWait)
+                .build());
+        this.trainingBulkhead = bulkheads.bulkhead("flask-training", BulkheadConfig.custom()
+                .maxConcurrentCalls(maxConcurrentTrainings)
+                .maxWaitDuration(bulkheadMaxWait)
+                .build());
+        // Non-blocking calls hold no thread, so far more of them can be in flight. Their
+        // bulkheads never wait: waiting would block the caller, which is what they avoid
+        this.asyncDetectionBulkhead = bulkheads.bulkhead("flask-detection-async", BulkheadConfig.custom()
+                .maxConcurrentCalls(maxConcurrentAsyncDetections)
+                .maxWaitDuration(Duration.ZERO)
+                .build());
+        this.asyncTrainingBulkhead = bulkheads.bulkhead("flask-training-async", BulkheadConfig.custom()
+                .maxConcurrentCalls(maxConcurrentTrainings)
+                .maxWaitDuration(Duration.ZERO)
+                .build());
+
+        RetryRegistry retries = RetryRegistry.of(RetryConfig.custom()
+                .maxAttempts(retryAttempts)
+                .intervalFunction(IntervalFunction.ofExponentialRandomBackoff(
+                        retryInitialBackoff, retryMultiplier, retryJitter))
+                .retryExceptions(ResourceAccessException.class, HttpServerErrorException.class)
+                .ignoreExceptions(CallNotPermittedException.class, BulkheadFullException.class)
+                .build());
+        this.retry = retries.retry("flask");
+
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(breakers).bindTo(meterRegistry);
+        TaggedBulkheadMetrics.ofBulkheadRegistry(bulkheads).bindTo(meterRegistry);
+        TaggedRetryMetrics.ofRetryRegistry(retries).bindTo(meterRegistry);
+    }
+
+    public <T> T detection(Supplier<T> call) {
+        return guard(detectionBulkhead, call);
+    }
+
+    public <T> T training(Supplier<T> call) {
+        return guard(trainingBulkhead, call);
+    }
+
+    /**
+     * Guard a non-blocking call. Same breaker and retry policy as
+     * {@link #detection}, but with its own, larger bulkhead that rejects at
+     * once instead of waiting, and retries that are scheduled rather than
+     * slept on.
+     */
+    public <T> CompletableFuture<T> detectionAsync(Supplier<CompletionStage<T>> call) {
+        return guardAsync(asyncDetectionBulkhead, call);
+    }
+
+    public <T> CompletableFuture<T> trainingAsync(Supplier<CompletionStage<T>> call) {
+        return guardAsync(asyncTrainingBulkhead, call);
+    }
+
+    /**
+     * Whether deferred work should be resubmitted now: false while the breaker
+     * is open and rejecting calls.
+     */
+    public boolean isAcceptingCalls() {
+        CircuitBreaker.State state = circuitBreaker.getState();
+        return state != CircuitBreaker.State.OPEN && state != CircuitBreaker.State.FORCED_OPEN;
+    }
+
+    /**
+     * True when the exception means the call was shed by the breaker or the
+     * bulkhead rather than attempted and failed.
+     */
+    public static boolean isRejection(Throwable e) {
+        if (e instanceof CompletionException && e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e instanceof CallNotPermittedException || e instanceof BulkheadFullException;
+    }
+
+    // Retry(CircuitBreaker(Bulkhead(call))): every attempt is counted by the breaker
+    private <T> T guard(Bulkhead bulkhead, Supplier<T> call) {
+        Supplier<T> guarded = Bulkhead.decorateSupplier(bulkhead, call);
+        guarded = CircuitBreaker.decorateSupplier(circuitBreaker, guarded);
+        guarded = Retry.decorateSupplier(retry, guarded);
+        return guarded.get();
+    }
+
+    private <T> CompletableFuture<T> guardAsync(Bulkhead bulkhead, Supplier<CompletionStage<T>> call) {
+        Supplier<CompletionStage<T>> guarded = Bulkhead.decorateCompletionStage(bulkhead, call);
+        guarded = CircuitBreaker.decorateCompletionStage(circuitBreaker, guarded);
+        guarded = Retry.decorateCompletionStage(retry, retryScheduler, guarded);
+        return guarded.get().toCompletableFuture();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        retryScheduler.shutdown();
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.transformer.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * When to hedge a detection call and whether the budget allows it. The hedge
+ * delay is a percentile of the latencies of recent successful calls. Every
+ * primary call earns {@code budget} of a hedge token and every hedge spends a
+ * whole one, so hedges stay within that fraction of primary traffic; a small
+ * token cap keeps a quiet spell from saving up a burst.
+ */
+@Component
+public class HedgingPolicy {
+
+    private static final double MAX_TOKENS = 10;
+
+    private final boolean enabled;
+    private final double percentile;
+    private final long minDelayMillis;
+    private final int minSamples;
+    private final double budget;
+
+    private final long[] samples;
+    private int next;
+    private int count;
+    private int sinceRecompute;
+    private long delayMillis = -1;
+    private double tokens;
+
+    private final Counter sent;
+    private final Counter won;
+    private final Counter budgetExhausted;
+
+    public HedgingPolicy(MeterRegistry meterRegistry,
+            @Value("${anomaly.detection.hedge.enabled:true}") boolean enabled,
+            @Value("${anomaly.detection.hedge.percentile:95}") double percentile,
+            @Value("${anomaly.detection.hedge.min-delay:100ms}") Duration minDelay,
+            @Value("${anomaly.detection.hedge.window:200}") int window,
+            @Value("${anomaly.detection.hedge.min-samples:20}") int minSamples,
+            @Value("${anomaly.detection.hedge.budget:0.1}") double budget) {
+        this.enabled = enabled;
+        this.percentile = Math.min(100, Math.max(0, percentile));
+        this.minDelayMillis = minDelay.toMillis();
+        this.samples = new long[Math.max(1, window)];
+        this.minSamples = Math.max(1, Math.min(minSamples, samples.length));
+        this.budget = budget;
+        this.sent = meterRegistry.counter("detection.hedge", "result", "sent");
+        this.won = meterRegistry.counter("detection.hedge", "result", "won");
+        this.budgetExhausted = meterRegistry.counter("detection.hedge", "result", "budget-exhausted");
+        meterRegistry.gauge("detection.hedge.delay", this, p -> p.currentDelayMillis());
+    }
+
+    /** Latency of a successful call, in milliseconds. */
+    public synchronized void record(long millis) {
+        samples[next] = millis;
+        next = (next + 1) % samples.length;
+        count = Math.min(count + 1, samples.length);
+        sinceRecompute++;
+    }
+
+    /**
+     * Delay after which a call still unanswered should be hedged, or -1 when
+     * hedging is off or there are too few samples yet. Also credits the
+     * budget for the primary call being made.
+     */
+    public synchronized long startPrimary() {
+        if (!enabled) {
+            return -1;
+        }
+        tokens = Math.min(MAX_TOKENS, tokens + budget);
+        if (count < minSamples) {
+            return -1;
+        }
+        // Sorting the window is cheap, but no need to do it on every call
+        if (delayMillis < 0 || sinceRecompute >= Math.max(1, samples.length / 10)) {
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile / 100.0 * count) - 1;
+            delayMillis = Math.max(minDelayMillis, sorted[Math.max(0, Math.min(count - 1, index))]);
+            sinceRecompute = 0;
+        }
+        return delayMillis;
+    }
+
+    /** Spend a hedge token; false when the budget is used up. */
+    public synchronized boolean tryAcquireHedge() {
+        if (tokens < 1) {
+            budgetExhausted.increment();
+            return false;
+        }
+        tokens -= 1;
+        sent.increment();
+        return true;
+    }
+
+    /** The hedge answered before the primary call. */
+    public void hedgeWon() {
+        won.increment();
+    }
+
+    private synchronized long currentDelayMillis() {
+        return delayMillis;
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.transformer.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least-recently-used cache of stored image files held in direct (off-heap)
+ * buffers, bounded by total bytes rather than entry count. Stored files are
+ * content-addressed and never rewritten, so entries need no revalidation;
+ * {@link FileStorageService} evicts a file's entry when it deletes or
+ * replaces the file.
+ * Direct buffers are used instead of mapping the files so that releasing a
+ * blob can still delete it on platforms that lock mapped files.
+ */
+@Service
+public class HotImageCache {
+
+    public record Cached(ByteBuffer body, long lastModified) {
+        public long length() {
+            return body.remaining();
+        }
+    }
+
+    private final boolean enabled;
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final LinkedHashMap<Path, Cached> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalBytes;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public HotImageCache(MeterRegistry meterRegistry,
+            @Value("${app.image-cache.enabled:true}") boolean enabled,
+            @Value("${app.image-cache.max-bytes:268435456}") long maxBytes,
+            @Value("${app.image-cache.max-entry-bytes:16777216}") long maxEntryBytes) {
+        this.enabled = enabled;
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = Math.min(maxEntryBytes, maxBytes);
+        this.hits = meterRegistry.counter("image.cache", "result", "hit");
+        this.misses = meterRegistry.counter("image.cache", "result", "miss");
+        this.evictions = meterRegistry.counter("image.cache", "result", "evicted");
+        meterRegistry.gauge("image.cache.bytes", this, c -> c.bytes());
+        meterRegistry.gauge("image.cache.entries", this, c -> c.size());
+    }
+
+    /**
+     * Contents of {@code file}, loading it into the cache on a miss. Returns
+     * null when the cache is disabled or the file is too large to admit; the
+     * caller then serves from disk. The returned buffer is a private
+     * read-only view and may be consumed freely.
+     */
+    public Cached get(Path file) throws IOException {
+        if (!enabled) {
+            return null;
+        }
+        Cached cached;
+        synchronized (entries) {
+            cached = entries.get(file);
+        }
+        if (cached != null) {
+            hits.increment();
+            return view(cached);
+        }
+        misses.increment();
+
+        long size = Files.size(file);
+        if (size > maxEntryBytes) {
+            return null;
+        }
+        try {
+            cached = load(file, size);
+        } catch (OutOfMemoryError e) {
+            // Direct memory limit (-XX:MaxDirectMemorySize) reached; serve this one from disk
+            System.err.println("Hot image cache could not allocate " + size + " bytes: " + e.getMessage());
+            return null;
+        }
+        synchronized (entries) {
+            Cached raced = entries.putIfAbsent(file, cached);
+            if (raced != null) {
+                return view(raced);
+            }
+            totalBytes += cached.length();
+            evictOverflow();
+        }
+        return view(cached);
+    }
+
+    /** Drop the entry for {@code file}, if cached. */
+    public void evict(Path file) {
+        synchronized (entries) {
+            Cached removed = entries.remove(file);
+            if (removed != null) {
+                totalBytes -= removed.length();
+                evictions.increment();
+            }
+        }
+    }
+
+    private static Cached load(Path file, long size) throws IOException {
+        long lastModified = Files.getLastModifiedTime(file).toMillis();
+        ByteBuffer buffer = ByteBuffer.allocateDirect((int) size);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    break;
+                }
+            }
+        }
+        buffer.flip();
+        return new Cached(buffer.asReadOnlyBuffer(), lastModified);
+    }
+
+    // Caller holds the lock
+    private void evictOverflow() {
+        Iterator<Map.Entry<Path, Cached>> it = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            totalBytes -= it.next().getValue().length();
+            it.remove();
+            evictions.increment();
+        }
+    }
+
+    private static Cached view(Cached cached) {
+        return new Cached(cached.body().duplicate(), cached.lastModified());
+    }
+
+    private long bytes() {
+        synchronized (entries) {
+            return totalBytes;
+        }
+    }
+
+    private int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+}
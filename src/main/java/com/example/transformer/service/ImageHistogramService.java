@@ -0,0 +1,141 @@
+package com.example.transformer.service;
+
+import com.example.transformer.imaging.PixelKernels;
+import com.example.transformer.model.AnomalyDetectionConfig;
+import com.example.transformer.model.ImageHueHistogram;
+import com.example.transformer.model.TransformerImage;
+import com.example.transformer.repository.ImageHueHistogramRepository;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Per-image hue histograms, binned with the active config's {@code h_bins}
+ * over pixels passing its {@code roi_s_min}/{@code roi_v_min}. Computed in the
+ * background right after upload and on demand for images that predate it.
+ */
+@Service
+public class ImageHistogramService {
+
+    private final ImageHueHistogramRepository histograms;
+    private final FileStorageService storage;
+    private final PixelKernels kernels;
+    private final DetectionConfigCache configCache;
+    private final TaskExecutor storageExecutor;
+
+    public ImageHistogramService(ImageHueHistogramRepository histograms,
+            FileStorageService storage,
+            PixelKernels kernels,
+            DetectionConfigCache configCache,
+            @Qualifier("storageExecutor") TaskExecutor storageExecutor) {
+        this.histograms = histograms;
+        this.storage = storage;
+        this.kernels = kernels;
+        this.configCache = configCache;
+        this.storageExecutor = storageExecutor;
+    }
+
+    /**
+     * Compute and store histograms for freshly uploaded images once the
+     * caller's transaction (if any) has committed. Failures are logged only;
+     * the histogram is recomputed on demand later.
+     */
+    public void recordAsync(List<TransformerImage> uploaded) {
+        Runnable task = () -> {
+            for (TransformerImage img : uploaded) {
+                storageExecutor.execute(() -> {
+                    try {
+                        getOrCompute(img);
+                    } catch (RuntimeException e) {
+                        System.err.println("Hue histogram failed for image " + img.getId() + ": " + e.getMessage());
+                    }
+                });
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    task.run();
+                }
+            });
+        } else {
+            task.run();
+        }
+    }
+
+    /**
+     * Stored histogram of {@code img} for the active config, computing and
+     * storing it first if needed.
+     */
+    public ImageHueHistogram getOrCompute(TransformerImage img) {
+        return getOrCompute(img, configCache.current().config());
+    }
+
+    /** Stored histogram of {@code img} binned for {@code config}, computing it if needed. */
+    public ImageHueHistogram getOrCompute(TransformerImage img, AnomalyDetectionConfig config) {
+        int bins = Math.max(1, config.getHBins());
+        int sMin = config.getRoiSMin();
+        int vMin = config.getRoiVMin();
+
+        return histograms.findByImageIdAndBinCountAndSaturationMinAndValueMin(img.getId(), bins, sMin, vMin)
+                .orElseGet(() -> store(compute(img, bins, sMin, vMin)));
+    }
+
+    private ImageHueHistogram compute(TransformerImage img, int bins, int sMin, int vMin) {
+        BufferedImage image;
+        try (InputStream in = storage.load(img.getStoragePath()).getInputStream()) {
+            image = ImageIO.read(in);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read image " + img.getId(), e);
+        }
+        if (image == null) {
+            throw new IllegalArgumentException("Unsupported image format for image " + img.getId());
+        }
+
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int n = width * height;
+        int[] rgb = image.getRGB(0, 0, width, height, null, 0, width);
+        byte[] h = new byte[n];
+        byte[] s = new byte[n];
+        byte[] v = new byte[n];
+        kernels.rgbToHsv(rgb, h, s, v, 0, n);
+
+        int[] counts = new int[bins];
+        kernels.hueHistogram(h, s, v, sMin, vMin, counts, 0, n);
+        long counted = 0;
+        for (int c : counts) {
+            counted += c;
+        }
+
+        return ImageHueHistogram.builder()
+                .imageId(img.getId())
+                .binCount(bins)
+                .saturationMin(sMin)
+                .valueMin(vMin)
+                .counts(counts)
+                .countedPixels(counted)
+                .totalPixels((long) n)
+                .meanValue(n == 0 ? 0.0 : (double) kernels.sum(v, 0, n) / n)
+                .build();
+    }
+
+    private ImageHueHistogram store(ImageHueHistogram histogram) {
+        try {
+            return histograms.save(histogram);
+        } catch (DataIntegrityViolationException e) {
+            // Computed concurrently by another worker; theirs is identical
+            return histogram;
+        }
+    }
+}
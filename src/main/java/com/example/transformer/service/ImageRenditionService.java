@@ -0,0 +1,193 @@
+package com.example.transformer.service;
+
+import com.example.transformer.model.TransformerImage;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Downscaled JPEG renditions of stored images (thumbnail for list tiles, screen
+ * size for previews), written next to the original blob. Generated in the
+ * background after upload and on first request for older images.
+ */
+@Service
+public class ImageRenditionService {
+
+    public enum Rendition {
+        THUMBNAIL("thumb"),
+        SCREEN("screen");
+
+        private final String suffix;
+
+        Rendition(String suffix) {
+            this.suffix = suffix;
+        }
+
+        public String suffix() {
+            return suffix;
+        }
+
+        /**
+         * Parse the {@code size} request parameter; null means the original.
+         */
+        public static Rendition fromParam(String size) {
+            if (size == null || size.isBlank()) {
+                return null;
+            }
+            return switch (size.trim().toLowerCase(Locale.ROOT)) {
+                case "original" -> null;
+                case "thumb", "thumbnail" -> THUMBNAIL;
+                case "screen", "preview" -> SCREEN;
+                default -> throw new IllegalArgumentException("size must be one of original, thumbnail, screen");
+            };
+        }
+    }
+
+    private final FileStorageService storage;
+    private final TaskExecutor storageExecutor;
+    private final int thumbnailEdge;
+    private final int screenEdge;
+    private final float jpegQuality;
+
+    public ImageRenditionService(FileStorageService storage,
+            @Qualifier("storageExecutor") TaskExecutor storageExecutor,
+            @Value("${app.renditions.thumbnail-edge:320}") int thumbnailEdge,
+            @Value("${app.renditions.screen-edge:1600}") int screenEdge,
+            @Value("${app.renditions.jpeg-quality:0.85}") float jpegQuality) {
+        this.storage = storage;
+        this.storageExecutor = storageExecutor;
+        this.thumbnailEdge = thumbnailEdge;
+        this.screenEdge = screenEdge;
+        this.jpegQuality = jpegQuality;
+    }
+
+    /**
+     * Generate all renditions of freshly uploaded images once the caller's
+     * transaction (if any) has committed. Failures are logged only; missing
+     * renditions are generated on first request.
+     */
+    public void generateAsync(List<TransformerImage> uploaded) {
+        Runnable task = () -> {
+            for (TransformerImage img : uploaded) {
+                storageExecutor.execute(() -> {
+                    try {
+                        generateMissing(img.getStoragePath());
+                    } catch (Exception e) {
+                        System.err.println("Renditions failed for image " + img.getId() + ": " + e.getMessage());
+                    }
+                });
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    task.run();
+                }
+            });
+        } else {
+            task.run();
+        }
+    }
+
+    /**
+     * RELATIVE path of the requested rendition of {@code img}, generating it
+     * first if it doesn't exist yet.
+     */
+    public String resolve(TransformerImage img, Rendition rendition) throws IOException {
+        String path = storage.renditionPath(img.getStoragePath(), rendition.suffix());
+        if (!storage.load(path).exists()) {
+            generateMissing(img.getStoragePath());
+        }
+        return path;
+    }
+
+    // Decodes the original once and writes every rendition that is missing
+    private void generateMissing(String originalPath) throws IOException {
+        BufferedImage original = null;
+        for (Rendition rendition : Rendition.values()) {
+            String path = storage.renditionPath(originalPath, rendition.suffix());
+            if (storage.load(path).exists()) {
+                continue;
+            }
+            if (original == null) {
+                original = read(originalPath);
+            }
+            BufferedImage scaled = scale(original, rendition == Rendition.THUMBNAIL ? thumbnailEdge : screenEdge);
+            storage.writeDerived(path, out -> writeJpeg(scaled, out));
+        }
+    }
+
+    private BufferedImage read(String relativePath) throws IOException {
+        try (InputStream in = storage.load(relativePath).getInputStream()) {
+            BufferedImage image = ImageIO.read(in);
+            if (image == null) {
+                throw new IOException("Unsupported image format: " + relativePath);
+            }
+            return image;
+        }
+    }
+
+    /**
+     * Fit into a square of {@code maxEdge} pixels, halving with bilinear
+     * filtering first so large downscales don't alias. Never upscales.
+     */
+    private static BufferedImage scale(BufferedImage src, int maxEdge) {
+        int width = src.getWidth();
+        int height = src.getHeight();
+        double factor = Math.min(1.0, (double) maxEdge / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * factor));
+        int targetHeight = Math.max(1, (int) Math.round(height * factor));
+
+        BufferedImage current = draw(src, width, height); // also drops alpha, which JPEG can't hold
+        while (current.getWidth() / 2 >= targetWidth && current.getHeight() / 2 >= targetHeight) {
+            current = draw(current, current.getWidth() / 2, current.getHeight() / 2);
+        }
+        if (current.getWidth() != targetWidth || current.getHeight() != targetHeight) {
+            current = draw(current, targetWidth, targetHeight);
+        }
+        return current;
+    }
+
+    private static BufferedImage draw(BufferedImage src, int width, int height) {
+        BufferedImage out = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = out.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(src, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return out;
+    }
+
+    private void writeJpeg(BufferedImage image, OutputStream out) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(ios);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+}
@@ -0,0 +1,822 @@
+package com.example.transformer.service;
+
+import com.example.transformer.imaging.PixelKernels;
+import com.example.transformer.model.AnomalyDetectionConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * In-JVM implementation of the thermal anomaly pipeline driven by the same
+ * {@link AnomalyDetectionConfig} parameters the Flask detector reads. Produces
+ * a response body in the Flask format ({@code fault_regions},
+ * {@code display_metadata}, {@code timestamp}) so everything downstream of the
+ * detection call stays the same.
+ *
+ * <p>Per-pixel stages (HSV conversion, ΔV statistics, masking, morphology) run
+ * on horizontal tiles in a dedicated fork/join pool; component labelling and
+ * clustering are sequential.
+ *
+ * <p>Hue, saturation and value use the OpenCV 8-bit ranges (H 0-179, S and V
+ * 0-255) so config thresholds mean the same thing as in the Python pipeline.
+ */
+@Service
+public class LocalDetectionEngine {
+
+    // Warm hues on the OpenCV scale: red wraps around 0, yellow/orange up to 35
+    private static final int RED_HUE_MAX = 10;
+    private static final int RED_HUE_WRAP = 160;
+    private static final int YELLOW_HUE_MAX = 35;
+
+    private static final Map<String, int[]> BOX_COLORS = Map.of(
+            "FAULT", new int[] { 255, 0, 0 },
+            "POTENTIAL", new int[] { 255, 255, 0 },
+            "NORMAL", new int[] { 0, 255, 0 });
+
+    private final ObjectMapper objectMapper;
+    private final PixelKernels kernels;
+    private final ForkJoinPool pool;
+    private final int tileRows;
+
+    public LocalDetectionEngine(ObjectMapper objectMapper,
+            PixelKernels kernels,
+            @Value("${anomaly.detection.local.parallelism:0}") int parallelism,
+            @Value("${anomaly.detection.local.tile-rows:64}") int tileRows) {
+        this.objectMapper = objectMapper;
+        this.kernels = kernels;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.tileRows = Math.max(1, tileRows);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Compare the candidate against the baseline and return the detection
+     * response JSON.
+     */
+    public String detect(Resource baselineImage, Resource candidateImage, AnomalyDetectionConfig config) {
+        Pair pair = decode(baselineImage, candidateImage);
+        byte[] roi = roiMask(pair.cand(), config);
+        List<Map<String, Object>> regions = hasChanged(pair.base(), pair.cand(), roi, config)
+                ? findRegions(pair.base(), pair.cand(), pair.candRgb(), roi, config)
+                : List.of();
+
+        Map<String, Object> displayMetadata = new LinkedHashMap<>();
+        displayMetadata.put("box_colors", BOX_COLORS);
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("fault_regions", regions);
+        response.put("display_metadata", displayMetadata);
+        response.put("timestamp", LocalDateTime.now().withNano(0).toString());
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to serialize detection result", e);
+        }
+    }
+
+    /**
+     * Whether {@link #detect} is certain to find no regions: the candidate
+     * passes neither change gate (hue distance over the ROI, red ratio
+     * increase) and no ROI pixel's V moved by {@code delta_abs_min} or more.
+     * That value is the floor of the per-pixel ΔV threshold, so no pixel can
+     * become a hot-spot candidate.
+     */
+    public boolean isUnchanged(Resource baselineImage, Resource candidateImage, AnomalyDetectionConfig config) {
+        Pair pair = decode(baselineImage, candidateImage);
+        byte[] roi = roiMask(pair.cand(), config);
+        return !hasChanged(pair.base(), pair.cand(), roi, config)
+                && maxDeltaV(pair.base(), pair.cand(), roi) < config.getDeltaAbsMin();
+    }
+
+    // ---- Image decoding ----
+
+    private record Pair(Hsv base, Hsv cand, int[] candRgb) {}
+
+    private Pair decode(Resource baselineImage, Resource candidateImage) {
+        BufferedImage candidate = read(candidateImage);
+        BufferedImage baseline = read(baselineImage);
+        int width = candidate.getWidth();
+        int height = candidate.getHeight();
+        if (baseline.getWidth() != width || baseline.getHeight() != height) {
+            baseline = resize(baseline, width, height);
+        }
+
+        int[] candRgb = new int[width * height];
+        Hsv cand = toHsv(candidate, candRgb);
+        Hsv base = toHsv(baseline, new int[width * height]);
+        return new Pair(base, cand, candRgb);
+    }
+
+    private record Hsv(int width, int height, byte[] h, byte[] s, byte[] v) {
+        int h(int i) {
+            return h[i] & 0xFF;
+        }
+
+        int s(int i) {
+            return s[i] & 0xFF;
+        }
+
+        int v(int i) {
+            return v[i] & 0xFF;
+        }
+    }
+
+    private static BufferedImage read(Resource resource) {
+        try (InputStream in = resource.getInputStream()) {
+            BufferedImage image = ImageIO.read(in);
+            if (image == null) {
+                throw new IllegalArgumentException("Unsupported image format: " + resource.getFilename());
+            }
+            return image;
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read image " + resource.getFilename(), e);
+        }
+    }
+
+    private static BufferedImage resize(BufferedImage src, int width, int height) {
+        BufferedImage out = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = out.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(src, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return out;
+    }
+
+    private Hsv toHsv(BufferedImage image, int[] rgb) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        byte[] h = new byte[width * height];
+        byte[] s = new byte[width * height];
+        byte[] v = new byte[width * height];
+        forEachTile(height, (tile, from, to) -> {
+            image.getRGB(0, from, width, to - from, rgb, from * width, width);
+            kernels.rgbToHsv(rgb, h, s, v, from * width, to * width);
+        });
+        return new Hsv(width, height, h, s, v);
+    }
+
+    // ---- Region of interest: sidebar, overlays and white background ----
+
+    private byte[] roiMask(Hsv img, AnomalyDetectionConfig config) {
+        int width = img.width();
+        int height = img.height();
+        byte[] roi = new byte[width * height];
+        Arrays.fill(roi, (byte) 1);
+
+        int bottomBand = (int) Math.round(height * config.getTextBottomBandFrac());
+        clearRect(roi, width, 0, height - bottomBand, width, height);
+
+        if (Boolean.TRUE.equals(config.getMaskTopLeftOverlay()) && config.getTopLeftBox() != null) {
+            String[] parts = config.getTopLeftBox().split(",");
+            if (parts.length == 4) {
+                clearRect(roi, width,
+                        (int) Math.round(Double.parseDouble(parts[0].trim()) * width),
+                        (int) Math.round(Double.parseDouble(parts[1].trim()) * height),
+                        (int) Math.round(Double.parseDouble(parts[2].trim()) * width),
+                        (int) Math.round(Double.parseDouble(parts[3].trim()) * height));
+            }
+        }
+
+        maskSidebar(img, roi, config);
+        maskWhiteBackground(img, roi, config);
+        return roi;
+    }
+
+    /**
+     * Find the temperature colorbar: a band of columns near the left or right
+     * edge that is mostly saturated and spans a wide range of hues top to bottom.
+     */
+    private void maskSidebar(Hsv img, byte[] roi, AnomalyDetectionConfig config) {
+        int width = img.width();
+        int height = img.height();
+        int search = (int) Math.round(width * config.getSidebarSearchFrac());
+        int minWidth = Math.max(1, (int) Math.round(width * config.getSidebarMinWidthFrac()));
+        int maxWidth = (int) Math.round(width * config.getSidebarMaxWidthFrac());
+        int hueSpan = config.getSidebarHueSpanDeg() / 2;
+        int sMin = config.getRoiSMin();
+        int vMin = config.getRoiVMin();
+
+        boolean[] colorbar = new boolean[width];
+        for (int x = 0; x < width; x++) {
+            if (x >= search && x < width - search) {
+                continue;
+            }
+            int valid = 0;
+            int hueLo = 180;
+            int hueHi = -1;
+            for (int y = 0, i = x; y < height; y++, i += width) {
+                if (img.s(i) >= sMin && img.v(i) >= vMin) {
+                    valid++;
+                    hueLo = Math.min(hueLo, img.h(i));
+                    hueHi = Math.max(hueHi, img.h(i));
+                }
+            }
+            colorbar[x] = valid >= config.getSidebarMinValidFrac() * height && hueHi - hueLo >= hueSpan;
+        }
+
+        int margin = config.getSidebarMarginPx();
+        for (int x = 0; x < width;) {
+            if (!colorbar[x]) {
+                x++;
+                continue;
+            }
+            int start = x;
+            while (x < width && colorbar[x]) {
+                x++;
+            }
+            int runWidth = x - start;
+            if (runWidth >= minWidth && runWidth <= maxWidth) {
+                clearRect(roi, width, start - margin, 0, x + margin, height);
+            }
+        }
+    }
+
+    /**
+     * Mask white paper/background: whole rows and columns that are almost all
+     * white, plus isolated white pixels that are not next to a warm area.
+     */
+    private void maskWhiteBackground(Hsv img, byte[] roi, AnomalyDetectionConfig config) {
+        int width = img.width();
+        int height = img.height();
+        int sMax = config.getWhiteBgSMax();
+        int vMin = config.getWhiteBgVMin();
+
+        byte[] white = new byte[width * height];
+        byte[] warm = new byte[width * height];
+        int[] whitePerColumn = new int[width];
+        int[] whitePerRow = new int[height];
+        for (int y = 0, i = 0; y < height; y++) {
+            for (int x = 0; x < width; x++, i++) {
+                if (img.s(i) <= sMax && img.v(i) >= vMin) {
+                    white[i] = 1;
+                    whitePerColumn[x]++;
+                    whitePerRow[y]++;
+                } else if (isWarm(img.h(i)) && img.s(i) >= config.getRoiSMin()) {
+                    warm[i] = 1;
+                }
+            }
+        }
+
+        for (int x = 0; x < width; x++) {
+            if (whitePerColumn[x] >= config.getWhiteBgColumnFrac() * height) {
+                clearRect(roi, width, x, 0, x + 1, height);
+            }
+        }
+        for (int y = 0; y < height; y++) {
+            if (whitePerRow[y] >= config.getWhiteBgRowFrac() * width) {
+                clearRect(roi, width, 0, y, width, y + 1);
+            }
+        }
+
+        // White next to a hotspot is usually its saturated core, not background
+        byte[] nearWarm = dilateBox(warm, width, height, config.getWhiteBgExcludeNearWarmPx());
+        for (int i = 0; i < roi.length; i++) {
+            if (white[i] == 1 && nearWarm[i] == 0) {
+                roi[i] = 0;
+            }
+        }
+    }
+
+    // ---- Change gate: hue histograms and red background ratio ----
+
+    /**
+     * Whether the candidate differs enough from the baseline to be worth
+     * segmenting: either the ROI hue distribution moved by at least
+     * {@code hist_distance_min}, or the share of red pixels rose noticeably.
+     */
+    /** Largest |ΔV| over the ROI. */
+    private int maxDeltaV(Hsv base, Hsv cand, byte[] roi) {
+        int width = cand.width();
+        int[] partial = new int[tileCount(cand.height())];
+        forEachTile(cand.height(), (tile, from, to) -> {
+            int max = 0;
+            for (int i = from * width; i < to * width; i++) {
+                if (roi[i] == 1) {
+                    max = Math.max(max, Math.abs(cand.v(i) - base.v(i)));
+                }
+            }
+            partial[tile] = max;
+        });
+        int max = 0;
+        for (int p : partial) {
+            max = Math.max(max, p);
+        }
+        return max;
+    }
+
+    private boolean hasChanged(Hsv base, Hsv cand, byte[] roi, AnomalyDetectionConfig config) {
+        int bins = Math.max(1, config.getHBins());
+        double[] baseHist = new double[bins];
+        double[] candHist = new double[bins];
+        long baseRed = hueHistogram(base, roi, config, baseHist);
+        long candRed = hueHistogram(cand, roi, config, candHist);
+
+        double baseTotal = sum(baseHist);
+        double candTotal = sum(candHist);
+        double distance = 0;
+        if (baseTotal > 0 && candTotal > 0) {
+            for (int b = 0; b < bins; b++) {
+                distance += Math.abs(baseHist[b] / baseTotal - candHist[b] / candTotal);
+            }
+            distance /= 2;
+        } else if (baseTotal != candTotal) {
+            distance = 1;
+        }
+        if (distance >= config.getHistDistanceMin()) {
+            return true;
+        }
+
+        long roiPixels = 0;
+        for (byte m : roi) {
+            roiPixels += m;
+        }
+        if (roiPixels == 0) {
+            return false;
+        }
+        double baseRedRatio = (double) baseRed / roiPixels;
+        double candRedRatio = (double) candRed / roiPixels;
+        return candRedRatio >= config.getRedBgMinAbs()
+                && candRedRatio - baseRedRatio >= config.getRedBgRatioMinIncrease()
+                        * Math.max(baseRedRatio, config.getRedBgMinAbs());
+    }
+
+    /** Fill {@code hist} with ROI hue counts and return the number of red pixels. */
+    private long hueHistogram(Hsv img, byte[] roi, AnomalyDetectionConfig config, double[] hist) {
+        int width = img.width();
+        int bins = hist.length;
+        int tiles = tileCount(img.height());
+        long[][] partial = new long[tiles][bins + 1];
+        forEachTile(img.height(), (tile, from, to) -> {
+            long[] counts = partial[tile];
+            for (int i = from * width; i < to * width; i++) {
+                if (roi[i] == 0 || img.s(i) < config.getRoiSMin() || img.v(i) < config.getRoiVMin()) {
+                    continue;
+                }
+                int h = img.h(i);
+                counts[Math.min(bins - 1, h * bins / 180)]++;
+                if (isRed(h)) {
+                    counts[bins]++;
+                }
+            }
+        });
+        long red = 0;
+        for (long[] counts : partial) {
+            for (int b = 0; b < bins; b++) {
+                hist[b] += counts[b];
+            }
+            red += counts[bins];
+        }
+        return red;
+    }
+
+    // ---- Segmentation ----
+
+    private List<Map<String, Object>> findRegions(Hsv base, Hsv cand, int[] candRgb, byte[] roi,
+            AnomalyDetectionConfig config) {
+        int width = cand.width();
+        int height = cand.height();
+
+        // ΔV statistics over the ROI, summed per tile
+        int tiles = tileCount(height);
+        double[][] partial = new double[tiles][3];
+        forEachTile(height, (tile, from, to) -> {
+            double n = 0, sum = 0, sumSq = 0;
+            for (int i = from * width; i < to * width; i++) {
+                if (roi[i] == 1) {
+                    int dv = cand.v(i) - base.v(i);
+                    n++;
+                    sum += dv;
+                    sumSq += (double) dv * dv;
+                }
+            }
+            partial[tile][0] = n;
+            partial[tile][1] = sum;
+            partial[tile][2] = sumSq;
+        });
+        double n = 0, sum = 0, sumSq = 0;
+        for (double[] p : partial) {
+            n += p[0];
+            sum += p[1];
+            sumSq += p[2];
+        }
+        if (n == 0) {
+            return List.of();
+        }
+        double mean = sum / n;
+        double std = Math.sqrt(Math.max(0, sumSq / n - mean * mean));
+        double threshold = Math.max(config.getDeltaAbsMin(), mean + config.getDeltaKSigma() * std);
+
+        // Brightened, warm, non-background pixels
+        byte[] candidates = new byte[width * height];
+        forEachTile(height, (tile, from, to) -> {
+            for (int i = from * width; i < to * width; i++) {
+                if (roi[i] == 0 || cand.v(i) - base.v(i) <= threshold) {
+                    continue;
+                }
+                int h = cand.h(i);
+                int s = cand.s(i);
+                int v = cand.v(i);
+                boolean blue = h >= config.getBlueHLo() && h <= config.getBlueHHi()
+                        && s >= config.getBlueSMin() && v >= config.getBlueVMin();
+                boolean black = v <= config.getBlackVHi();
+                if (!blue && !black && s >= config.getRoiSMin() && v >= config.getRoiVMin()) {
+                    candidates[i] = 1;
+                }
+            }
+        });
+
+        byte[] hot = candidates;
+        for (int k = 0; k < config.getOpenIters(); k++) {
+            hot = dilate(erode(hot, width, height), width, height);
+        }
+        for (int k = 0; k < config.getDilateIters(); k++) {
+            hot = dilate(hot, width, height);
+        }
+
+        int minArea = (int) Math.max(config.getMinBlobAreaPx(),
+                Math.ceil(config.getKeepComponentMinRatio() * width * height));
+        List<Blob> blobs = new ArrayList<>();
+        for (Blob blob : label(hot, cand, candRgb)) {
+            if (blob.area >= minArea) {
+                blobs.add(blob);
+            }
+        }
+
+        List<Blob> clusters = mergeClose(blobs, (int) Math.round(config.getMergeCloseFrac() * Math.max(width, height)));
+        clusters.removeIf(c -> c.area < config.getMinClusterAreaPx());
+        clusters.sort(Comparator.comparingInt((Blob b) -> b.area).reversed());
+
+        return describe(clusters, width * height, n, config);
+    }
+
+    /** Pixel statistics for one connected component or merged cluster. */
+    private static final class Blob {
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, maxX = -1, maxY = -1;
+        int area;
+        long sumX, sumY, sumR, sumG, sumB;
+        int red, yellow;
+
+        int boxWidth() {
+            return maxX - minX + 1;
+        }
+
+        int boxHeight() {
+            return maxY - minY + 1;
+        }
+
+        void absorb(Blob o) {
+            minX = Math.min(minX, o.minX);
+            minY = Math.min(minY, o.minY);
+            maxX = Math.max(maxX, o.maxX);
+            maxY = Math.max(maxY, o.maxY);
+            area += o.area;
+            sumX += o.sumX;
+            sumY += o.sumY;
+            sumR += o.sumR;
+            sumG += o.sumG;
+            sumB += o.sumB;
+            red += o.red;
+            yellow += o.yellow;
+        }
+
+        boolean within(Blob o, int gap) {
+            return minX - gap <= o.maxX && o.minX - gap <= maxX
+                    && minY - gap <= o.maxY && o.minY - gap <= maxY;
+        }
+    }
+
+    /** Two-pass 8-connected component labelling with union-find. */
+    private static List<Blob> label(byte[] mask, Hsv img, int[] rgb) {
+        int width = img.width();
+        int height = img.height();
+        int[] labels = new int[width * height];
+        int[] parent = new int[width * height / 2 + 2];
+        int next = 1;
+
+        for (int y = 0, i = 0; y < height; y++) {
+            for (int x = 0; x < width; x++, i++) {
+                if (mask[i] == 0) {
+                    continue;
+                }
+                // Already-visited neighbours: W, NW, N, NE
+                int assigned = 0;
+                if (x > 0) {
+                    assigned = join(parent, assigned, labels[i - 1]);
+                }
+                if (y > 0) {
+                    if (x > 0) {
+                        assigned = join(parent, assigned, labels[i - width - 1]);
+                    }
+                    assigned = join(parent, assigned, labels[i - width]);
+                    if (x < width - 1) {
+                        assigned = join(parent, assigned, labels[i - width + 1]);
+                    }
+                }
+                if (assigned == 0) {
+                    if (next == parent.length) {
+                        parent = Arrays.copyOf(parent, parent.length * 2);
+                    }
+                    parent[next] = next;
+                    assigned = next++;
+                }
+                labels[i] = assigned;
+            }
+        }
+
+        Blob[] byRoot = new Blob[next];
+        List<Blob> blobs = new ArrayList<>();
+        for (int y = 0, i = 0; y < height; y++) {
+            for (int x = 0; x < width; x++, i++) {
+                if (labels[i] == 0) {
+                    continue;
+                }
+                int root = find(parent, labels[i]);
+                Blob b = byRoot[root];
+                if (b == null) {
+                    b = byRoot[root] = new Blob();
+                    blobs.add(b);
+                }
+                b.minX = Math.min(b.minX, x);
+                b.minY = Math.min(b.minY, y);
+                b.maxX = Math.max(b.maxX, x);
+                b.maxY = Math.max(b.maxY, y);
+                b.area++;
+                b.sumX += x;
+                b.sumY += y;
+                b.sumR += (rgb[i] >> 16) & 0xFF;
+                b.sumG += (rgb[i] >> 8) & 0xFF;
+                b.sumB += rgb[i] & 0xFF;
+                int h = img.h(i);
+                if (isRed(h)) {
+                    b.red++;
+                } else if (h <= YELLOW_HUE_MAX) {
+                    b.yellow++;
+                }
+            }
+        }
+        return blobs;
+    }
+
+    private static int find(int[] parent, int x) {
+        while (parent[x] != x) {
+            parent[x] = parent[parent[x]];
+            x = parent[x];
+        }
+        return x;
+    }
+
+    /** Union the neighbour's label into the current one and return the label to use. */
+    private static int join(int[] parent, int current, int neighbour) {
+        if (neighbour == 0) {
+            return current;
+        }
+        if (current == 0) {
+            return neighbour;
+        }
+        int ra = find(parent, current);
+        int rb = find(parent, neighbour);
+        if (ra != rb) {
+            parent[Math.max(ra, rb)] = Math.min(ra, rb);
+        }
+        return current;
+    }
+
+    /** Merge blobs whose boxes are within {@code gap} pixels of each other until none are. */
+    private static List<Blob> mergeClose(List<Blob> blobs, int gap) {
+        List<Blob> clusters = new ArrayList<>(blobs);
+        boolean merged = true;
+        while (merged) {
+            merged = false;
+            outer:
+            for (int a = 0; a < clusters.size(); a++) {
+                for (int b = a + 1; b < clusters.size(); b++) {
+                    if (clusters.get(a).within(clusters.get(b), gap)) {
+                        clusters.get(a).absorb(clusters.remove(b));
+                        merged = true;
+                        break outer;
+                    }
+                }
+            }
+        }
+        return clusters;
+    }
+
+    private static List<Map<String, Object>> describe(List<Blob> clusters, int imageArea, double roiPixels,
+            AnomalyDetectionConfig config) {
+        List<Blob> wires = new ArrayList<>();
+        for (Blob c : clusters) {
+            if (aspect(c) >= config.getElongatedAspectRatio()) {
+                wires.add(c);
+            }
+        }
+
+        List<Map<String, Object>> regions = new ArrayList<>();
+        for (Blob c : clusters) {
+            boolean faulty = c.red >= config.getFaultRedMinPixels()
+                    && (double) c.red / imageArea >= config.getFaultRedRatio();
+            boolean potential = !faulty && (double) (c.red + c.yellow) / imageArea >= config.getPotentialYellowRatio();
+            if (!faulty && !potential) {
+                continue;
+            }
+
+            boolean elongated = wires.contains(c);
+            boolean fullWire = elongated && c.area / roiPixels >= config.getFullwireHotFraction();
+            boolean connectedToWire = !elongated && wires.stream().anyMatch(w -> w.within(c, 1));
+
+            String kind = fullWire ? "Full Wire Overload" : elongated ? "Wire Overload" : "Point Overload";
+            double share = (double) (faulty ? c.red : c.red + c.yellow) / c.area;
+
+            Map<String, Object> box = new LinkedHashMap<>();
+            box.put("x", c.minX);
+            box.put("y", c.minY);
+            box.put("width", c.boxWidth());
+            box.put("height", c.boxHeight());
+            box.put("area_px", c.area);
+
+            Map<String, Object> centroid = new LinkedHashMap<>();
+            centroid.put("x", (int) (c.sumX / c.area));
+            centroid.put("y", (int) (c.sumY / c.area));
+
+            Map<String, Object> region = new LinkedHashMap<>();
+            region.put("id", regions.size() + 1);
+            region.put("type", kind + (faulty ? " (Faulty)" : " (Potential)"));
+            region.put("dominant_color", faulty ? "red" : "yellow");
+            region.put("color_rgb", List.of((int) (c.sumR / c.area), (int) (c.sumG / c.area), (int) (c.sumB / c.area)));
+            region.put("bounding_box", box);
+            region.put("centroid", centroid);
+            region.put("aspect_ratio", Math.round(aspect(c) * 100) / 100.0);
+            region.put("elongated", elongated);
+            region.put("connected_to_wire", connectedToWire);
+            region.put("tag", faulty ? "FAULT" : "POTENTIAL");
+            region.put("confidence", Math.round(Math.min(1.0, (faulty ? 0.5 : 0.4) + 0.5 * share) * 100) / 100.0);
+            regions.add(region);
+        }
+        return regions;
+    }
+
+    private static double aspect(Blob c) {
+        int w = c.boxWidth();
+        int h = c.boxHeight();
+        return (double) Math.max(w, h) / Math.min(w, h);
+    }
+
+    // ---- Morphology (3x3 structuring element) ----
+
+    private byte[] erode(byte[] src, int width, int height) {
+        return morph(src, width, height, true);
+    }
+
+    private byte[] dilate(byte[] src, int width, int height) {
+        return morph(src, width, height, false);
+    }
+
+    private byte[] morph(byte[] src, int width, int height, boolean erode) {
+        byte[] dst = new byte[src.length];
+        forEachTile(height, (tile, from, to) -> {
+            for (int y = from; y < to; y++) {
+                int y0 = Math.max(0, y - 1);
+                int y1 = Math.min(height - 1, y + 1);
+                for (int x = 0; x < width; x++) {
+                    int x0 = Math.max(0, x - 1);
+                    int x1 = Math.min(width - 1, x + 1);
+                    // Out-of-image neighbours are ignored, as with OpenCV's default border
+                    byte out = erode ? (byte) 1 : (byte) 0;
+                    scan:
+                    for (int yy = y0; yy <= y1; yy++) {
+                        for (int xx = x0; xx <= x1; xx++) {
+                            if (src[yy * width + xx] == (erode ? 0 : 1)) {
+                                out = erode ? (byte) 0 : (byte) 1;
+                                break scan;
+                            }
+                        }
+                    }
+                    dst[y * width + x] = out;
+                }
+            }
+        });
+        return dst;
+    }
+
+    /** Square dilation with the given radius, as two separable running-count passes. */
+    private static byte[] dilateBox(byte[] src, int width, int height, int radius) {
+        if (radius <= 0) {
+            return src.clone();
+        }
+        byte[] rows = new byte[src.length];
+        for (int y = 0; y < height; y++) {
+            int base = y * width;
+            int count = 0;
+            for (int x = 0; x < Math.min(radius, width); x++) {
+                count += src[base + x];
+            }
+            for (int x = 0; x < width; x++) {
+                if (x + radius < width) {
+                    count += src[base + x + radius];
+                }
+                if (x - radius - 1 >= 0) {
+                    count -= src[base + x - radius - 1];
+                }
+                rows[base + x] = (byte) (count > 0 ? 1 : 0);
+            }
+        }
+        byte[] out = new byte[src.length];
+        for (int x = 0; x < width; x++) {
+            int count = 0;
+            for (int y = 0; y < Math.min(radius, height); y++) {
+                count += rows[y * width + x];
+            }
+            for (int y = 0; y < height; y++) {
+                if (y + radius < height) {
+                    count += rows[(y + radius) * width + x];
+                }
+                if (y - radius - 1 >= 0) {
+                    count -= rows[(y - radius - 1) * width + x];
+                }
+                out[y * width + x] = (byte) (count > 0 ? 1 : 0);
+            }
+        }
+        return out;
+    }
+
+    // ---- Helpers ----
+
+    private static boolean isRed(int hue) {
+        return hue <= RED_HUE_MAX || hue >= RED_HUE_WRAP;
+    }
+
+    private static boolean isWarm(int hue) {
+        return isRed(hue) || hue <= YELLOW_HUE_MAX;
+    }
+
+    private static void clearRect(byte[] mask, int width, int x0, int y0, int x1, int y1) {
+        int height = mask.length / width;
+        x0 = Math.max(0, x0);
+        y0 = Math.max(0, y0);
+        x1 = Math.min(width, x1);
+        y1 = Math.min(height, y1);
+        for (int y = y0; y < y1; y++) {
+            Arrays.fill(mask, y * width + x0, Math.max(y * width + x0, y * width + x1), (byte) 0);
+        }
+    }
+
+    private static double sum(double[] values) {
+        double total = 0;
+        for (double v : values) {
+            total += v;
+        }
+        return total;
+    }
+
+    @FunctionalInterface
+    private interface TileTask {
+        void run(int tile, int fromRow, int toRow);
+    }
+
+    private int tileCount(int height) {
+        return (height + tileRows - 1) / tileRows;
+    }
+
+    /** Run {@code task} over horizontal bands of {@code tileRows} rows on the engine's pool. */
+    private void forEachTile(int height, TileTask task) {
+        int tiles = tileCount(height);
+        if (tiles <= 1) {
+            task.run(0, 0, height);
+            return;
+        }
+        List<ForkJoinTask<?>> running = new ArrayList<>(tiles);
+        for (int t = 0; t < tiles; t++) {
+            int tile = t;
+            int from = t * tileRows;
+            int to = Math.min(height, from + tileRows);
+            running.add(pool.submit(() -> task.run(tile, from, to)));
+        }
+        for (ForkJoinTask<?> f : running) {
+            f.join();
+        }
+    }
+}
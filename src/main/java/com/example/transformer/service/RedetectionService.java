@@ -0,0 +1,313 @@
+package com.example.transformer.service;
+
+import com.example.transformer.dto.RedetectionRequestDTO;
+import com.example.transformer.exception.NotFoundException;
+import com.example.transformer.model.DetectionJobStatus;
+import com.example.transformer.model.DetectionPriority;
+import com.example.transformer.model.ImageType;
+import com.example.transformer.model.RedetectionRun;
+import com.example.transformer.model.RedetectionStatus;
+import com.example.transformer.model.TransformerImage;
+import com.example.transformer.repository.AnomalyDetectionConfigRepository;
+import com.example.transformer.repository.DetectionJobRepository;
+import com.example.transformer.repository.InspectionRepository;
+import com.example.transformer.repository.RedetectionRunRepository;
+import com.example.transformer.repository.TransformerImageRepository;
+import com.example.transformer.repository.TransformerRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Re-runs anomaly detection over the historical maintenance images of a scope
+ * (fleet, transformer, inspection or upload date range) with a chosen config,
+ * e.g. after training activated a new one.
+ * <p>
+ * A run is fed by a scheduled tick: it walks the images in id order with a
+ * keyset cursor, one page per tick, and creates detection jobs in the
+ * background lane, grouped by baseline so they go out as batch calls. A page
+ * is only taken while the background lane has drained below
+ * {@code max-queued} and the circuit breaker is closed, so a run soaks up
+ * spare detection capacity instead of flooding it. The cursor is saved in the
+ * same transaction as the page's jobs; after a restart the run carries on
+ * from there, and jobs the old process held are handed back to the deferred
+ * sweep once their lease lapses (see {@link DetectionJobService}).
+ */
+@Service
+public class RedetectionService {
+
+    private static final List<DetectionJobStatus> PENDING =
+            List.of(DetectionJobStatus.QUEUED, DetectionJobStatus.RUNNING, DetectionJobStatus.DEFERRED);
+
+    private final RedetectionRunRepository runs;
+    private final DetectionJobRepository jobs;
+    private final TransformerImageRepository images;
+    private final TransformerRepository transformers;
+    private final InspectionRepository inspections;
+    private final AnomalyDetectionConfigRepository configRepository;
+    private final DetectionConfigCache configCache;
+    private final DetectionJobService detectionJobService;
+    private final DetectionScheduler scheduler;
+    private final FlaskCallGuard callGuard;
+    private final TransactionTemplate tx;
+    private final int pageSize;
+    private final int maxQueued;
+
+    public RedetectionService(RedetectionRunRepository runs,
+            DetectionJobRepository jobs,
+            TransformerImageRepository images,
+            TransformerRepository transformers,
+            InspectionRepository inspections,
+            AnomalyDetectionConfigRepository configRepository,
+            DetectionConfigCache configCache,
+            DetectionJobService detectionJobService,
+            DetectionScheduler scheduler,
+            FlaskCallGuard callGuard,
+            PlatformTransactionManager transactionManager,
+            @Value("${anomaly.redetection.page-size:100}") int pageSize,
+            @Value("${anomaly.redetection.max-queued:20}") int maxQueued) {
+        this.runs = runs;
+        this.jobs = jobs;
+        this.images = images;
+        this.transformers = transformers;
+        this.inspections = inspections;
+        this.configRepository = configRepository;
+        this.configCache = configCache;
+        this.detectionJobService = detectionJobService;
+        this.scheduler = scheduler;
+        this.callGuard = callGuard;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.pageSize = Math.max(1, pageSize);
+        this.maxQueued = Math.max(1, maxQueued);
+    }
+
+    /**
+     * Record a new run; the scheduled tick picks it up.
+     *
+     * @param request     Scope and config of the run
+     * @param requestedBy Name of the user starting it
+     */
+    public RedetectionRun start(RedetectionRequestDTO request, String requestedBy) {
+        RedetectionRun.RedetectionRunBuilder run = RedetectionRun.builder()
+                .scope(request.scope())
+                .status(RedetectionStatus.RUNNING)
+                .requestedBy(requestedBy);
+
+        switch (request.scope()) {
+            case FLEET -> { }
+            case TRANSFORMER -> {
+                if (request.transformerId() == null) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "transformerId is required for TRANSFORMER scope");
+                }
+                if (!transformers.existsById(request.transformerId())) {
+                    throw new NotFoundException("Transformer " + request.transformerId() + " not found");
+                }
+                run.transformerId(request.transformerId());
+            }
+            case INSPECTION -> {
+                if (request.inspectionId() == null) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "inspectionId is required for INSPECTION scope");
+                }
+                if (!inspections.existsById(request.inspectionId())) {
+                    throw new NotFoundException("Inspection " + request.inspectionId() + " not found");
+                }
+                run.inspectionId(request.inspectionId());
+            }
+            case DATE_RANGE -> {
+                if (request.from() == null || request.to() == null || !request.from().isBefore(request.to())) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                            "DATE_RANGE scope needs from and to, with from before to");
+                }
+                run.createdFrom(request.from()).createdTo(request.to());
+            }
+        }
+
+        // Pin the config now, so activating another one mid-run doesn't change what the run detects with
+        Long configId = request.configId();
+        if (configId == null) {
+            configId = configCache.current().configId();
+        } else if (!configRepository.existsById(configId)) {
+            throw new NotFoundException("Detection config " + configId + " not found");
+        }
+        RedetectionRun saved = runs.save(run.configId(configId).build());
+        System.out.println("Re-detection run " + saved.getId() + " started by " + requestedBy + ": "
+                + saved.getScope() + " with config " + configId);
+        return saved;
+    }
+
+    public Optional<RedetectionRun> find(Long runId) {
+        return runs.findById(runId);
+    }
+
+    public List<RedetectionRun> findRecent(int limit) {
+        return runs.findAllByOrderByIdDesc(PageRequest.of(0, limit));
+    }
+
+    /** Number of the run's detection jobs in each status. */
+    public Map<DetectionJobStatus, Long> jobCounts(Long runId) {
+        Map<DetectionJobStatus, Long> counts = new EnumMap<>(DetectionJobStatus.class);
+        for (Object[] row : jobs.countByStatusForRedetectionRun(runId)) {
+            counts.put((DetectionJobStatus) row[0], (Long) row[1]);
+        }
+        return counts;
+    }
+
+    /**
+     * Stop feeding a running run and fail its jobs that haven't started.
+     * Jobs already in flight finish normally.
+     *
+     * @return the cancelled run, or empty if it wasn't running
+     */
+    public Optional<RedetectionRun> cancel(Long runId) {
+        RedetectionRun run = runs.findById(runId)
+                .orElseThrow(() -> new NotFoundException("Re-detection run " + runId + " not found"));
+        if (run.getStatus() != RedetectionStatus.RUNNING) {
+            return Optional.empty();
+        }
+        run.setStatus(RedetectionStatus.CANCELLED);
+        run.setFinishedAt(LocalDateTime.now());
+        RedetectionRun saved = runs.save(run);
+        jobs.cancelPending(runId, "Re-detection run " + runId + " cancelled", LocalDateTime.now());
+        return Optional.of(saved);
+    }
+
+    @Scheduled(fixedDelayString = "${anomaly.redetection.feed-interval:5s}")
+    void feed() {
+        for (RedetectionRun run : runs.findByStatusOrderByIdAsc(RedetectionStatus.RUNNING)) {
+            try {
+                advance(run);
+            } catch (ObjectOptimisticLockingFailureException e) {
+                // Another node advanced or cancelled the run first; its page stands and ours rolled back
+            } catch (Exception e) {
+                System.err.println("Re-detection run " + run.getId() + " could not advance: " + e.getMessage());
+            }
+        }
+    }
+
+    private void advance(RedetectionRun run) {
+        if (run.isExhausted()) {
+            if (!jobs.existsByRedetectionRunIdAndStatusIn(run.getId(), PENDING)) {
+                run.setStatus(RedetectionStatus.COMPLETED);
+                run.setFinishedAt(LocalDateTime.now());
+                runs.save(run);
+                System.out.println("Re-detection run " + run.getId() + " completed: " + jobCounts(run.getId()));
+            }
+            return;
+        }
+
+        if (!callGuard.isAcceptingCalls() || scheduler.queued(DetectionPriority.BACKGROUND) >= maxQueued) {
+            return;
+        }
+        tx.executeWithoutResult(status -> enqueuePage(run));
+    }
+
+    // One page of images: create their jobs and move the cursor past them, atomically
+    private void enqueuePage(RedetectionRun run) {
+        List<TransformerImage> page = nextPage(run);
+
+        Map<Long, TransformerImage> baselines = baselinesFor(page);
+        Map<Long, TransformerImage> byId = new HashMap<>();
+        baselines.values().forEach(baseline -> byId.put(baseline.getId(), baseline));
+        Map<Long, List<TransformerImage>> byBaseline = new LinkedHashMap<>();
+        int skipped = 0;
+        for (TransformerImage img : page) {
+            TransformerImage baseline = baselines.get(img.getId());
+            if (baseline == null) {
+                skipped++;
+                continue;
+            }
+            byBaseline.computeIfAbsent(baseline.getId(), id -> new ArrayList<>()).add(img);
+        }
+
+        int enqueued = 0;
+        for (Map.Entry<Long, List<TransformerImage>> group : byBaseline.entrySet()) {
+            enqueued += detectionJobService.submitAll(group.getValue(), byId.get(group.getKey()),
+                    DetectionPriority.BACKGROUND, run.getConfigId(), run.getId()).size();
+        }
+
+        if (!page.isEmpty()) {
+            run.setCursorImageId(page.get(page.size() - 1).getId());
+        }
+        run.setEnqueued(run.getEnqueued() + enqueued);
+        run.setSkipped(run.getSkipped() + skipped);
+        run.setExhausted(page.size() < pageSize);
+        runs.save(run);
+    }
+
+    private List<TransformerImage> nextPage(RedetectionRun run) {
+        PageRequest page = PageRequest.of(0, pageSize);
+        long after = run.getCursorImageId();
+        return switch (run.getScope()) {
+            case FLEET -> images.findByImageTypeAndIdGreaterThanOrderByIdAsc(ImageType.MAINTENANCE, after, page);
+            case TRANSFORMER -> images.findByTransformerIdAndImageTypeAndIdGreaterThanOrderByIdAsc(
+                    run.getTransformerId(), ImageType.MAINTENANCE, after, page);
+            case INSPECTION -> images.findByInspectionIdAndImageTypeAndIdGreaterThanOrderByIdAsc(
+                    run.getInspectionId(), ImageType.MAINTENANCE, after, page);
+            case DATE_RANGE -> images.findByImageTypeAndCreatedAtGreaterThanEqualAndCreatedAtLessThanAndIdGreaterThanOrderByIdAsc(
+                    ImageType.MAINTENANCE, run.getCreatedFrom(), run.getCreatedTo(), after, page);
+        };
+    }
+
+    /**
+     * Baseline for each image of the page, by image id: the one it was last
+     * detected against, so the re-run compares the same pair; failing that, its
+     * transformer's latest baseline, as for a new upload. Images whose
+     * transformer has no baseline are left out. Three queries per page.
+     */
+    private Map<Long, TransformerImage> baselinesFor(List<TransformerImage> page) {
+        if (page.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, Long> previousIds = new HashMap<>();
+        for (Object[] row : jobs.findLatestBaselineIds(page.stream().map(TransformerImage::getId).toList())) {
+            if (row[1] != null) {
+                previousIds.put((Long) row[0], (Long) row[1]);
+            }
+        }
+        Map<Long, TransformerImage> previous = new HashMap<>();
+        images.findAllById(new HashSet<>(previousIds.values()))
+                .forEach(baseline -> previous.put(baseline.getId(), baseline));
+
+        Set<Long> transformerIds = new HashSet<>();
+        for (TransformerImage img : page) {
+            if (!previous.containsKey(previousIds.get(img.getId()))) {
+                transformerIds.add(img.getTransformer().getId());
+            }
+        }
+        Map<Long, TransformerImage> latestByTransformer = new HashMap<>();
+        if (!transformerIds.isEmpty()) {
+            // Newest first, so the first baseline seen per transformer is its latest
+            images.findByTransformerIdInAndImageTypeOrderByCreatedAtDesc(transformerIds, ImageType.BASELINE)
+                    .forEach(baseline -> latestByTransformer.putIfAbsent(baseline.getTransformer().getId(), baseline));
+        }
+
+        Map<Long, TransformerImage> baselines = new HashMap<>();
+        for (TransformerImage img : page) {
+            TransformerImage baseline = previous.get(previousIds.get(img.getId()));
+            if (baseline == null) {
+                baseline = latestByTransformer.get(img.getTransformer().getId());
+            }
+            if (baseline != null) {
+                baselines.put(img.getId(), baseline);
+            }
+        }
+        return baselines;
+    }
+}
@@ -0,0 +1,15 @@
+CREATE TABLE IF NOT EXISTS detection_jobs (
+    id BIGSERIAL PRIMARY KEY,
+    image_id BIGINT NOT NULL,
+    baseline_image_id BIGINT NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    error TEXT,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    started_at TIMESTAMP,
+    finished_at TIMESTAMP,
+    CHECK (status IN ('QUEUED','RUNNING','COMPLETED','FAILED')),
+    FOREIGN KEY (image_id) REFERENCES transformer_images(id) ON DELETE CASCADE,
+    FOREIGN KEY (baseline_image_id) REFERENCES transformer_images(id) ON DELETE CASCADE
+);
+
+CREATE INDEX idx_detection_jobs_image_id ON detection_jobs(image_id);
@@ -0,0 +1,11 @@
+CREATE TABLE IF NOT EXISTS stored_blobs (
+    content_hash VARCHAR(64) PRIMARY KEY,
+    storage_path VARCHAR(255) NOT NULL,
+    size_bytes BIGINT,
+    ref_count INTEGER NOT NULL DEFAULT 1,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+ALTER TABLE transformer_images ADD COLUMN IF NOT EXISTS content_hash VARCHAR(64);
+
+CREATE INDEX idx_transformer_images_content_hash ON transformer_images(content_hash);
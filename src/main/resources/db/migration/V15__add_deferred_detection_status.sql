@@ -0,0 +1,5 @@
+ALTER TABLE detection_jobs DROP CONSTRAINT IF EXISTS detection_jobs_status_check;
+ALTER TABLE detection_jobs ADD CONSTRAINT detection_jobs_status_check
+    CHECK (status IN ('QUEUED','RUNNING','DEFERRED','COMPLETED','FAILED'));
+
+CREATE INDEX idx_detection_jobs_status ON detection_jobs(status, created_at);
@@ -0,0 +1,10 @@
+CREATE TABLE IF NOT EXISTS detection_result_cache (
+    id BIGSERIAL PRIMARY KEY,
+    baseline_hash VARCHAR(64) NOT NULL,
+    candidate_hash VARCHAR(64) NOT NULL,
+    config_id BIGINT NOT NULL,
+    response_json TEXT NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE (baseline_hash, candidate_hash, config_id),
+    FOREIGN KEY (config_id) REFERENCES anomaly_detection_config(id) ON DELETE CASCADE
+);
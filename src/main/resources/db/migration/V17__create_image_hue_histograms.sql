@@ -0,0 +1,14 @@
+CREATE TABLE IF NOT EXISTS image_hue_histograms (
+    id BIGSERIAL PRIMARY KEY,
+    image_id BIGINT NOT NULL,
+    bin_count INTEGER NOT NULL,
+    saturation_min INTEGER NOT NULL,
+    value_min INTEGER NOT NULL,
+    counts INTEGER[] NOT NULL,
+    counted_pixels BIGINT NOT NULL,
+    total_pixels BIGINT NOT NULL,
+    mean_value DOUBLE PRECISION NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE (image_id, bin_count, saturation_min, value_min),
+    FOREIGN KEY (image_id) REFERENCES transformer_images(id) ON DELETE CASCADE
+);
@@ -0,0 +1,24 @@
+-- Fault regions and display metadata switch from IDENTITY to pooled sequences so
+-- Hibernate can batch their inserts. The sequences hand out blocks of 50 and
+-- Hibernate uses the block ending at the value it fetched, so each sequence starts
+-- at MAX(id) + 50: the first block begins at MAX(id) + 1.
+DO $$
+DECLARE
+    next_block BIGINT;
+BEGIN
+    SELECT COALESCE(MAX(db_id), 0) + 50 INTO next_block FROM fault_regions;
+    EXECUTE format('CREATE SEQUENCE IF NOT EXISTS fault_regions_seq START WITH %s INCREMENT BY 50', next_block);
+
+    SELECT COALESCE(MAX(id), 0) + 50 INTO next_block FROM display_metadata;
+    EXECUTE format('CREATE SEQUENCE IF NOT EXISTS display_metadata_seq START WITH %s INCREMENT BY 50', next_block);
+END $$;
+
+-- Rows inserted outside JPA draw from the same sequences. A raw nextval() returns a
+-- block end Hibernate never hands out, so the two can't collide.
+ALTER TABLE fault_regions ALTER COLUMN db_id DROP IDENTITY IF EXISTS;
+ALTER TABLE fault_regions ALTER COLUMN db_id SET DEFAULT nextval('fault_regions_seq');
+ALTER SEQUENCE fault_regions_seq OWNED BY fault_regions.db_id;
+
+ALTER TABLE display_metadata ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE display_metadata ALTER COLUMN id SET DEFAULT nextval('display_metadata_seq');
+ALTER SEQUENCE display_metadata_seq OWNED BY display_metadata.id;
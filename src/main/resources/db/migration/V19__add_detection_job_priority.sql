@@ -0,0 +1,3 @@
+ALTER TABLE detection_jobs ADD COLUMN IF NOT EXISTS priority VARCHAR(20) NOT NULL DEFAULT 'INTERACTIVE';
+ALTER TABLE detection_jobs ADD CONSTRAINT detection_jobs_priority_check
+    CHECK (priority IN ('INTERACTIVE','BULK','BACKGROUND'));
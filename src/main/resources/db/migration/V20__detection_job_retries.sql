@@ -0,0 +1,9 @@
+-- Failed detections are retried with backoff; jobs that run out of attempts are dead-lettered
+ALTER TABLE detection_jobs ADD COLUMN IF NOT EXISTS attempts INT NOT NULL DEFAULT 0;
+ALTER TABLE detection_jobs ADD COLUMN IF NOT EXISTS next_attempt_at TIMESTAMP;
+
+ALTER TABLE detection_jobs DROP CONSTRAINT IF EXISTS detection_jobs_status_check;
+ALTER TABLE detection_jobs ADD CONSTRAINT detection_jobs_status_check
+    CHECK (status IN ('QUEUED','RUNNING','DEFERRED','COMPLETED','FAILED','DEAD_LETTER'));
+
+CREATE INDEX idx_detection_jobs_next_attempt ON detection_jobs(status, next_attempt_at);
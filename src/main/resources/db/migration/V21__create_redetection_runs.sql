@@ -0,0 +1,32 @@
+-- Bulk re-detection of historical maintenance images with a chosen config.
+-- cursor_image_id is the checkpoint: images up to it have had their jobs created.
+CREATE TABLE IF NOT EXISTS redetection_runs (
+    id BIGSERIAL PRIMARY KEY,
+    scope VARCHAR(20) NOT NULL,
+    transformer_id BIGINT,
+    inspection_id BIGINT,
+    created_from TIMESTAMP,
+    created_to TIMESTAMP,
+    config_id BIGINT NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    cursor_image_id BIGINT NOT NULL DEFAULT 0,
+    enqueued INT NOT NULL DEFAULT 0,
+    skipped INT NOT NULL DEFAULT 0,
+    exhausted BOOLEAN NOT NULL DEFAULT FALSE,
+    requested_by VARCHAR(255),
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    finished_at TIMESTAMP,
+    version BIGINT NOT NULL DEFAULT 0,
+    CHECK (scope IN ('FLEET','TRANSFORMER','INSPECTION','DATE_RANGE')),
+    CHECK (status IN ('RUNNING','COMPLETED','CANCELLED')),
+    FOREIGN KEY (config_id) REFERENCES anomaly_detection_config(id)
+);
+
+CREATE INDEX idx_redetection_runs_status ON redetection_runs(status);
+
+-- Jobs remember the config they run with (null = the active one) and the run that created them
+ALTER TABLE detection_jobs ADD COLUMN IF NOT EXISTS config_id BIGINT;
+ALTER TABLE detection_jobs ADD COLUMN IF NOT EXISTS redetection_run_id BIGINT
+    REFERENCES redetection_runs(id) ON DELETE SET NULL;
+
+CREATE INDEX idx_detection_jobs_redetection ON detection_jobs(redetection_run_id, status);
@@ -0,0 +1,7 @@
+-- Jobs in QUEUED/RUNNING are leased by the node that holds them in memory. The node
+-- refreshes heartbeat_at while it holds the job; a job whose heartbeat has lapsed
+-- belongs to a node that stopped or restarted and is handed back to the deferred sweep.
+ALTER TABLE detection_jobs ADD COLUMN IF NOT EXISTS owner_id VARCHAR(64);
+ALTER TABLE detection_jobs ADD COLUMN IF NOT EXISTS heartbeat_at TIMESTAMP;
+
+CREATE INDEX idx_detection_jobs_owner ON detection_jobs(owner_id, status);
@@ -0,0 +1,3 @@
+-- Optimistic lock on detection jobs: a node saving the outcome of a job that was reclaimed,
+-- cancelled or requeued meanwhile fails instead of overwriting it
+ALTER TABLE detection_jobs ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
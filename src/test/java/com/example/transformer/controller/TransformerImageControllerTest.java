@@ -0,0 +1,177 @@
+package com.example.transformer.controller;
+
+import com.example.transformer.dto.ImageUploadDTO;
+import com.example.transformer.model.EnvCondition;
+import com.example.transformer.model.ImageType;
+import com.example.transformer.model.Transformer;
+import com.example.transformer.model.TransformerImage;
+import com.example.transformer.model.Weather;
+import com.example.transformer.repository.InspectionRepository;
+import com.example.transformer.repository.TransformerImageRepository;
+import com.example.transformer.repository.TransformerRepository;
+import com.example.transformer.service.DetectionJobService;
+import com.example.transformer.service.FileStorageService;
+import com.example.transformer.service.HotImageCache;
+import com.example.transformer.service.ImageHistogramService;
+import com.example.transformer.service.ImageRenditionService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class TransformerImageControllerTest {
+
+    // 0, 1, ..., 9
+    private static final byte[] IMAGE = { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9 };
+
+    @TempDir
+    Path root;
+
+    private final TransformerRepository transformers = mock(TransformerRepository.class);
+    private final TransformerImageRepository images = mock(TransformerImageRepository.class);
+    private final FileStorageService storage = mock(FileStorageService.class);
+    private TransformerImageController controller;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        when(transformers.findById(1L)).thenReturn(Optional.of(new Transformer()));
+        when(storage.saveTransformerImage(eq(1L), anyString(), any()))
+                .thenReturn(new FileStorageService.StoredFile("blobs/ab/cd/abcd.jpg", "abcd", 4));
+        controller = controller(mock(HotImageCache.class));
+
+        Files.write(root.resolve("abcd.png"), IMAGE);
+        when(storage.load("abcd.png")).thenReturn(new FileSystemResource(root.resolve("abcd.png")));
+        when(images.findById(5L)).thenReturn(Optional.of(TransformerImage.builder()
+                .id(5L).storagePath("abcd.png").contentHash("abcd").contentType("image/png").filename("t.png")
+                .build()));
+    }
+
+    @Test
+    void failedImageSaveReleasesTheBlob() {
+        when(images.save(any())).thenThrow(new DataIntegrityViolationException("insert failed"));
+
+        assertThatThrownBy(() -> controller.upload(1L, file(), baseline(), null))
+                .isInstanceOf(DataIntegrityViolationException.class);
+        verify(storage).release("abcd");
+    }
+
+    @Test
+    void failedBatchSaveReleasesEveryBlob() {
+        when(images.saveAll(anyList())).thenThrow(new DataIntegrityViolationException("insert failed"));
+
+        assertThatThrownBy(() -> controller.uploadBatch(1L, List.of(file(), file()), List.of(baseline(), baseline()), null))
+                .isInstanceOf(DataIntegrityViolationException.class);
+        verify(storage, times(2)).release("abcd");
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { false, true })
+    void singleRangeIsServedAsPartialContent(boolean cached) throws Exception {
+        mockMvc(cached).perform(get("/api/transformers/images/5/raw").header(HttpHeaders.RANGE, "bytes=2-5"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 2-5/10"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 4))
+                .andExpect(content().bytes(Arrays.copyOfRange(IMAGE, 2, 6)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { false, true })
+    void cachedBufferIsNotConsumedByARangeRequest(boolean cached) throws Exception {
+        MockMvc mvc = mockMvc(cached);
+        mvc.perform(get("/api/transformers/images/5/raw").header(HttpHeaders.RANGE, "bytes=7-"))
+                .andExpect(content().bytes(Arrays.copyOfRange(IMAGE, 7, 10)));
+
+        mvc.perform(get("/api/transformers/images/5/raw"))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(IMAGE));
+    }
+
+    @Test
+    void unsatisfiableRangeIsRejected() throws Exception {
+        mockMvc(false).perform(get("/api/transformers/images/5/raw").header(HttpHeaders.RANGE, "bytes=100-200"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */10"));
+    }
+
+    @Test
+    void matchingIfNoneMatchIsNotModified() throws Exception {
+        mockMvc(false).perform(get("/api/transformers/images/5/raw").header(HttpHeaders.IF_NONE_MATCH, "\"abcd\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"abcd\""))
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    void staleIfRangeReturnsTheFullBody() throws Exception {
+        mockMvc(false).perform(get("/api/transformers/images/5/raw")
+                        .header(HttpHeaders.RANGE, "bytes=2-5")
+                        .header(HttpHeaders.IF_RANGE, "\"stale\""))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_RANGE))
+                .andExpect(content().bytes(IMAGE));
+    }
+
+    @Test
+    void multiRangeRequestReturnsTheFullBody() throws Exception {
+        mockMvc(false).perform(get("/api/transformers/images/5/raw").header(HttpHeaders.RANGE, "bytes=0-1,4-5"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_RANGE))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 10))
+                .andExpect(content().bytes(IMAGE));
+    }
+
+    @Test
+    void unknownSizeIsABadRequest() throws Exception {
+        mockMvc(false).perform(get("/api/transformers/images/5/raw").param("size", "bogus"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private MockMvc mockMvc(boolean cached) {
+        HotImageCache hotImages = new HotImageCache(new SimpleMeterRegistry(), cached, 1 << 20, 1 << 20);
+        return MockMvcBuilders.standaloneSetup(controller(hotImages)).build();
+    }
+
+    private TransformerImageController controller(HotImageCache hotImages) {
+        return new TransformerImageController(transformers, images, storage, mock(InspectionRepository.class),
+                mock(DetectionJobService.class), mock(ImageHistogramService.class), mock(ImageRenditionService.class),
+                hotImages, new SyncTaskExecutor(), 500);
+    }
+
+    private static MockMultipartFile file() {
+        return new MockMultipartFile("file", "baseline.jpg", "image/jpeg", new byte[] {1, 2, 3, 4});
+    }
+
+    private static ImageUploadDTO baseline() {
+        return new ImageUploadDTO(ImageType.BASELINE, EnvCondition.builder().weather(Weather.SUNNY).build(), "tester", null);
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.transformer.imaging;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class PixelKernelsTest {
+
+    // Odd bounds so both implementations run their loop tails
+    private static final int SIZE = 10_007;
+    private static final int FROM = 3;
+    private static final int TO = SIZE - 5;
+
+    private final PixelKernels scalar = new ScalarPixelKernels();
+    private PixelKernels vector;
+    private int[] rgb;
+
+    @BeforeEach
+    void setUp() {
+        vector = PixelKernels.best();
+        assumeTrue(vector instanceof VectorPixelKernels, "Vector kernels not supported on this JVM/CPU");
+
+        Random random = new Random(7);
+        rgb = new int[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            rgb[i] = random.nextInt(0x1000000);
+        }
+        // Greys, primaries and the extremes where hue and saturation divide by zero or wrap
+        int[] edges = { 0x000000, 0xFFFFFF, 0x808080, 0xFF0000, 0x00FF00, 0x0000FF, 0xFFFF00, 0xFF00FF,
+                0x00FFFF, 0xFF0001, 0x010000, 0xFE0000 };
+        System.arraycopy(edges, 0, rgb, FROM, edges.length);
+    }
+
+    @Test
+    void rgbToHsvMatchesScalar() {
+        byte[][] expected = hsv(scalar);
+        byte[][] actual = hsv(vector);
+
+        for (int c = 0; c < 3; c++) {
+            assertThat(actual[c]).isEqualTo(expected[c]);
+        }
+    }
+
+    @Test
+    void absDiffAndSumMatchScalar() {
+        byte[] a = new byte[SIZE];
+        byte[] b = new byte[SIZE];
+        Random random = new Random(11);
+        random.nextBytes(a);
+        random.nextBytes(b);
+        byte[] expected = new byte[SIZE];
+        byte[] actual = new byte[SIZE];
+
+        scalar.absDiff(a, b, expected, FROM, TO);
+        vector.absDiff(a, b, actual, FROM, TO);
+
+        assertThat(actual).isEqualTo(expected);
+        assertThat(vector.sum(a, FROM, TO)).isEqualTo(scalar.sum(a, FROM, TO));
+    }
+
+    @Test
+    void hueHistogramMatchesScalar() {
+        byte[][] planes = hsv(scalar);
+        int[] expected = new int[36];
+        int[] actual = new int[36];
+
+        scalar.hueHistogram(planes[0], planes[1], planes[2], 40, 35, expected, FROM, TO);
+        vector.hueHistogram(planes[0], planes[1], planes[2], 40, 35, actual, FROM, TO);
+
+        assertThat(actual).isEqualTo(expected);
+    }
+
+    private byte[][] hsv(PixelKernels kernels) {
+        byte[][] planes = new byte[3][SIZE];
+        kernels.rgbToHsv(rgb, planes[0], planes[1], planes[2], FROM, TO);
+        return planes;
+    }
+}
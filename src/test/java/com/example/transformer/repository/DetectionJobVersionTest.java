@@ -0,0 +1,85 @@
+package com.example.transformer.repository;
+
+import com.example.transformer.model.DetectionJob;
+import com.example.transformer.model.DetectionJobStatus;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+class DetectionJobVersionTest {
+
+    @Autowired
+    private DetectionJobRepository jobs;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void outcomeOfAReclaimedJobCannotOverwriteIt() {
+        DetectionJob held = running();
+        entityManager.detach(held);
+
+        // The holder's lease lapsed and another node's sweep took the job back
+        assertThat(jobs.reclaimOrphaned(LocalDateTime.now())).isEqualTo(1);
+        entityManager.clear();
+
+        held.setStatus(DetectionJobStatus.COMPLETED);
+        assertThatThrownBy(() -> jobs.save(held)).isInstanceOf(ObjectOptimisticLockingFailureException.class);
+        assertThat(jobs.findById(held.getId())).get()
+                .extracting(DetectionJob::getStatus).isEqualTo(DetectionJobStatus.DEFERRED);
+    }
+
+    @Test
+    void heartbeatKeepsTheHoldersCopyCurrent() {
+        DetectionJob held = running();
+        entityManager.detach(held);
+
+        assertThat(jobs.heartbeat("node-a", LocalDateTime.now())).isEqualTo(1);
+        entityManager.clear();
+
+        held.setStatus(DetectionJobStatus.COMPLETED);
+        jobs.save(held);
+        entityManager.flush();
+        entityManager.clear();
+        assertThat(jobs.findById(held.getId())).get()
+                .extracting(DetectionJob::getStatus).isEqualTo(DetectionJobStatus.COMPLETED);
+    }
+
+    @Test
+    void startBumpsTheVersion() {
+        DetectionJob queued = jobs.saveAndFlush(DetectionJob.builder()
+                .imageId(1L)
+                .baselineImageId(2L)
+                .status(DetectionJobStatus.QUEUED)
+                .build());
+        entityManager.detach(queued);
+
+        assertThat(jobs.start(queued.getId(), "node-a", LocalDateTime.now())).isEqualTo(1);
+        assertThat(jobs.start(queued.getId(), "node-b", LocalDateTime.now())).isZero();
+        entityManager.clear();
+
+        DetectionJob started = jobs.findById(queued.getId()).orElseThrow();
+        assertThat(started.getVersion()).isEqualTo(queued.getVersion() + 1);
+        assertThat(started.getOwnerId()).isEqualTo("node-a");
+        assertThat(started.getStartedAt()).isNotNull();
+    }
+
+    // Started a while ago by node-a, whose heartbeats have stopped
+    private DetectionJob running() {
+        return jobs.saveAndFlush(DetectionJob.builder()
+                .imageId(1L)
+                .baselineImageId(2L)
+                .status(DetectionJobStatus.RUNNING)
+                .ownerId("node-a")
+                .heartbeatAt(LocalDateTime.now().minusMinutes(10))
+                .build());
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.transformer.repository;
+
+import com.example.transformer.model.FaultRegion;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class FaultRegionBatchInsertTest {
+
+    private static final int REGIONS = 40;
+
+    @Autowired
+    private FaultRegionRepository faultRegions;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void regionsOfADetectionAreInsertedInBatches() {
+        List<FaultRegion> regions = new ArrayList<>();
+        for (int i = 0; i < REGIONS; i++) {
+            FaultRegion region = new FaultRegion();
+            region.setRegionId(i);
+            region.setType("Loose Joint");
+            region.setColorRgb(List.of(255, i, 0));
+            regions.add(region);
+        }
+
+        faultRegions.saveAll(regions);
+        entityManager.flush();
+
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(REGIONS);
+        assertThat(regions).allSatisfy(region -> assertThat(region.getDbId()).isNotNull());
+        // Two sequence calls to open the first block of ids on a fresh sequence, one batched insert
+        // for the regions and one for their colors; with IDENTITY keys every region would be a
+        // statement of its own
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(4);
+    }
+}
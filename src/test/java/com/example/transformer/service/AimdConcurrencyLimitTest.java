@@ -0,0 +1,80 @@
+package com.example.transformer.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AimdConcurrencyLimitTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(400);
+
+    @Test
+    void fastCallsUnderLoadGrowTheLimitAdditively() {
+        AimdConcurrencyLimit limit = new AimdConcurrencyLimit(10, 2, 100, 0.9, 2.0);
+
+        // Each call adds 1/limit, so two full rounds of ten calls add just under two slots
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < 10; i++) {
+                limit.tryAcquire();
+            }
+            for (int i = 0; i < 10; i++) {
+                limit.release(10, FAST, false);
+            }
+        }
+
+        assertThat(limit.getLimit()).isEqualTo(11);
+    }
+
+    @Test
+    void fastCallsWithFewInFlightDontGrowTheLimit() {
+        AimdConcurrencyLimit limit = new AimdConcurrencyLimit(10, 2, 100, 0.9, 2.0);
+
+        for (int i = 0; i < 50; i++) {
+            limit.release(limit.tryAcquire(), FAST, false);
+        }
+
+        assertThat(limit.getLimit()).isEqualTo(10);
+    }
+
+    @Test
+    void slowOrFailedCallsCutTheLimitMultiplicatively() {
+        AimdConcurrencyLimit limit = new AimdConcurrencyLimit(20, 2, 100, 0.5, 2.0);
+        limit.release(limit.tryAcquire(), FAST, false);
+
+        limit.release(limit.tryAcquire(), SLOW, false);
+        assertThat(limit.getLimit()).isEqualTo(10);
+
+        limit.release(limit.tryAcquire(), FAST, true);
+        assertThat(limit.getLimit()).isEqualTo(5);
+    }
+
+    @Test
+    void limitIsClampedToItsBounds() {
+        AimdConcurrencyLimit limit = new AimdConcurrencyLimit(4, 2, 4, 0.5, 2.0);
+        for (int i = 0; i < 10; i++) {
+            limit.release(limit.tryAcquire(), FAST, true);
+        }
+        assertThat(limit.getLimit()).isEqualTo(2);
+
+        assertThat(limit.tryAcquire()).isEqualTo(1);
+        assertThat(limit.tryAcquire()).isEqualTo(2);
+        assertThat(limit.tryAcquire()).isEqualTo(-1);
+    }
+
+    @Test
+    void releaseWithoutSampleLeavesTheBaselineAlone() {
+        AimdConcurrencyLimit limit = new AimdConcurrencyLimit(10, 2, 100, 0.5, 2.0);
+        limit.release(limit.tryAcquire(), FAST, false);
+
+        // A rejected request answers in microseconds; if it counted, every real call would look slow
+        limit.tryAcquire();
+        limit.release();
+        limit.release(limit.tryAcquire(), FAST, false);
+
+        assertThat(limit.getLimit()).isEqualTo(10);
+        assertThat(limit.getInFlight()).isZero();
+    }
+}
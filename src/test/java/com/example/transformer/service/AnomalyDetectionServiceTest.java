@@ -0,0 +1,91 @@
+package com.example.transformer.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AnomalyDetectionServiceTest {
+
+    private static final String WORKER = "http://flask:5000";
+    private static final DetectionConfigCache.Snapshot CONFIG =
+            new DetectionConfigCache.Snapshot(1, 1L, null, "{}".getBytes());
+
+    private final RestTemplate restTemplate = mock(RestTemplate.class);
+    private final List<Resource> candidates = List.of(image("a"), image("b"));
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        when(restTemplate.postForEntity(eq(WORKER + "/detect-anomalies"), any(), eq(String.class)))
+                .thenReturn(ResponseEntity.ok("{\"fault_regions\":[]}"));
+    }
+
+    @Test
+    void batchIsOffByDefault() {
+        AnomalyDetectionService service = service(false);
+
+        List<AnomalyDetectionService.BatchResult> results = service.detectAnomaliesBatch(image("base"), candidates, CONFIG);
+
+        assertThat(service.maxBatchCandidates()).isEqualTo(1);
+        assertThat(results).extracting(AnomalyDetectionService.BatchResult::json)
+                .containsExactly("{\"fault_regions\":[]}", "{\"fault_regions\":[]}");
+        verify(restTemplate, never()).postForEntity(eq(WORKER + "/detect-anomalies-batch"), any(), eq(String.class));
+    }
+
+    @Test
+    void fallsBackToSingleCallsWhenServerHasNoBatchEndpoint() {
+        when(restTemplate.postForEntity(eq(WORKER + "/detect-anomalies-batch"), any(), eq(String.class)))
+                .thenThrow(HttpClientErrorException.create(HttpStatus.NOT_FOUND, "Not Found", null, null, null));
+        AnomalyDetectionService service = service(true);
+        assertThat(service.maxBatchCandidates()).isEqualTo(16);
+
+        List<AnomalyDetectionService.BatchResult> results = service.detectAnomaliesBatch(image("base"), candidates, CONFIG);
+
+        assertThat(results).allSatisfy(result -> assertThat(result.error()).isNull());
+        verify(restTemplate, times(2)).postForEntity(eq(WORKER + "/detect-anomalies"), any(), eq(String.class));
+        // Later chunks skip the batch endpoint altogether
+        assertThat(service.maxBatchCandidates()).isEqualTo(1);
+        service.detectAnomaliesBatch(image("base"), candidates, CONFIG);
+        verify(restTemplate, times(1)).postForEntity(eq(WORKER + "/detect-anomalies-batch"), any(), eq(String.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private AnomalyDetectionService service(boolean batchEnabled) {
+        FlaskCallGuard callGuard = mock(FlaskCallGuard.class);
+        when(callGuard.detection(any())).thenAnswer(invocation -> ((Supplier<Object>) invocation.getArgument(0)).get());
+        DetectionWorkerPool workerPool = mock(DetectionWorkerPool.class);
+        when(workerPool.call(any())).thenAnswer(invocation ->
+                ((Function<String, Object>) invocation.getArgument(0)).apply(WORKER));
+        return new AnomalyDetectionService(restTemplate, mock(DetectionConfigCache.class), callGuard,
+                mock(FlaskAsyncClient.class), workerPool, new ObjectMapper(), mock(LocalDetectionEngine.class),
+                "flask", batchEnabled, 16);
+    }
+
+    private static Resource image(String name) {
+        return new ByteArrayResource(new byte[] {1, 2, 3}) {
+            @Override
+            public String getFilename() {
+                return name + ".jpg";
+            }
+        };
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.transformer.service;
+
+import com.example.transformer.model.DetectionJob;
+import com.example.transformer.model.DetectionJobStatus;
+import com.example.transformer.model.TransformerImage;
+import com.example.transformer.repository.DetectionJobRepository;
+import com.example.transformer.repository.TransformerImageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DetectionJobServiceTest {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private DetectionJobRepository jobs;
+    private TransformerImageRepository images;
+    private AnomalyDetectionService anomalyDetectionService;
+    private AnomalyResultService anomalyResultService;
+    private PlatformTransactionManager transactionManager;
+    private DetectionJobService service;
+
+    @BeforeEach
+    void setUp() {
+        jobs = mock(DetectionJobRepository.class);
+        images = mock(TransformerImageRepository.class);
+        anomalyDetectionService = mock(AnomalyDetectionService.class);
+        anomalyResultService = mock(AnomalyResultService.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        DetectionConfigCache configCache = mock(DetectionConfigCache.class);
+        when(configCache.forConfig(any())).thenReturn(new DetectionConfigCache.Snapshot(1, 1L, null, new byte[0]));
+        when(jobs.claim(anyLong(), any(), any(), any(), any())).thenReturn(1);
+        when(jobs.start(anyLong(), any(), any())).thenReturn(1);
+        when(jobs.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(images.findById(anyLong())).thenAnswer(invocation ->
+                Optional.of(TransformerImage.builder().id(invocation.getArgument(0)).build()));
+
+        service = new DetectionJobService(jobs, images, mock(FileStorageService.class), anomalyDetectionService,
+                anomalyResultService, configCache, mock(DetectionResultCache.class),
+                mock(DetectionScheduler.class), mock(FlaskCallGuard.class), mock(DetectionPreScreen.class),
+                transactionManager, 50, MAX_ATTEMPTS, Duration.ofSeconds(30), Duration.ofMinutes(30), Duration.ofMinutes(2));
+    }
+
+    @Test
+    void wrappedServerErrorIsDeferredWithBackoff() {
+        DetectionJob job = queuedJob(1L, 0);
+        failAsyncWith(wrapped(HttpServerErrorException.create(HttpStatus.BAD_GATEWAY, "Bad Gateway",
+                HttpHeaders.EMPTY, new byte[0], StandardCharsets.UTF_8)));
+
+        settle(service.run(job.getId()));
+
+        assertThat(job.getStatus()).isEqualTo(DetectionJobStatus.DEFERRED);
+        assertThat(job.getAttempts()).isEqualTo(1);
+        assertThat(job.getNextAttemptAt()).isAfter(LocalDateTime.now().plusSeconds(20));
+        assertThat(job.getFinishedAt()).isNull();
+    }
+
+    @Test
+    void wrappedIoErrorIsDeadLetteredAfterMaxAttempts() {
+        DetectionJob job = queuedJob(1L, MAX_ATTEMPTS - 1);
+        failAsyncWith(wrapped(new ResourceAccessException("Connection refused", new IOException("refused"))));
+
+        settle(service.run(job.getId()));
+
+        assertThat(job.getStatus()).isEqualTo(DetectionJobStatus.DEAD_LETTER);
+        assertThat(job.getAttempts()).isEqualTo(MAX_ATTEMPTS);
+        assertThat(job.getFinishedAt()).isNotNull();
+    }
+
+    @Test
+    void wrappedClientErrorFailsAtOnce() {
+        DetectionJob job = queuedJob(1L, 0);
+        failAsyncWith(wrapped(HttpClientErrorException.create(HttpStatus.BAD_REQUEST, "Bad Request",
+                HttpHeaders.EMPTY, new byte[0], StandardCharsets.UTF_8)));
+
+        settle(service.run(job.getId()));
+
+        assertThat(job.getStatus()).isEqualTo(DetectionJobStatus.FAILED);
+        assertThat(job.getNextAttemptAt()).isNull();
+    }
+
+    @Test
+    void batchCandidateErrorIsRetried() {
+        DetectionJob failing = queuedJob(1L, 0);
+        DetectionJob deadLettered = queuedJob(2L, MAX_ATTEMPTS - 1);
+        when(anomalyDetectionService.detectAnomaliesBatch(any(), anyList(), any())).thenReturn(List.of(
+                new AnomalyDetectionService.BatchResult(null, "cannot decode image"),
+                new AnomalyDetectionService.BatchResult(null, "cannot decode image")));
+
+        service.runBatch(List.of(failing.getId(), deadLettered.getId()));
+
+        assertThat(failing.getStatus()).isEqualTo(DetectionJobStatus.DEFERRED);
+        assertThat(failing.getNextAttemptAt()).isNotNull();
+        assertThat(deadLettered.getStatus()).isEqualTo(DetectionJobStatus.DEAD_LETTER);
+    }
+
+    @Test
+    void thrownBatchCallIsTransientForEveryJob() {
+        DetectionJob first = queuedJob(1L, 0);
+        DetectionJob second = queuedJob(2L, 0);
+        when(anomalyDetectionService.detectAnomaliesBatch(any(), anyList(), any()))
+                .thenThrow(new RuntimeException("Failed to call Flask API for batch detection: malformed response"));
+
+        service.runBatch(List.of(first.getId(), second.getId()));
+
+        assertThat(List.of(first, second)).allSatisfy(job -> {
+            assertThat(job.getStatus()).isEqualTo(DetectionJobStatus.DEFERRED);
+            assertThat(job.getAttempts()).isEqualTo(1);
+            assertThat(job.getNextAttemptAt()).isNotNull();
+        });
+    }
+
+    @Test
+    void resultOfAJobReclaimedMeanwhileIsRolledBack() throws IOException {
+        DetectionJob job = queuedJob(1L, 0);
+        when(anomalyDetectionService.detectAnomaliesAsync(any(), any(), any()))
+                .thenReturn(CompletableFuture.completedFuture("{\"fault_regions\":[]}"));
+        when(jobs.save(job)).thenThrow(new ObjectOptimisticLockingFailureException(DetectionJob.class, 1L));
+
+        settle(service.run(job.getId()));
+
+        // The job save and the results share a transaction, which is rolled back, and the outcome isn't retried
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
+        verify(jobs, times(1)).save(any());
+        verify(anomalyResultService, never()).saveResults(anyLong(), anyString());
+    }
+
+    @Test
+    void failureOfAJobCancelledMeanwhileIsDropped() throws IOException {
+        DetectionJob job = queuedJob(1L, 0);
+        failAsyncWith(wrapped(new ResourceAccessException("Connection refused")));
+        when(jobs.save(job)).thenThrow(new ObjectOptimisticLockingFailureException(DetectionJob.class, 1L));
+
+        settle(service.run(job.getId()));
+
+        verify(jobs, times(1)).save(any());
+        verify(anomalyResultService, never()).saveResults(anyLong(), anyString());
+    }
+
+    @Test
+    void jobClaimedElsewhereIsNotRun() {
+        DetectionJob job = queuedJob(1L, 0);
+        when(jobs.start(eq(1L), any(), any())).thenReturn(0);
+
+        settle(service.run(job.getId()));
+
+        verify(jobs, never()).save(any());
+        verify(anomalyDetectionService, never()).detectAnomaliesAsync(any(), any(), any());
+    }
+
+    @Test
+    void isTransientWalksTheCauseChain() {
+        assertThat(DetectionJobService.isTransient(wrapped(wrapped(new ResourceAccessException("timeout"))))).isTrue();
+        assertThat(DetectionJobService.isTransient(wrapped(new IllegalArgumentException("bad config")))).isFalse();
+    }
+
+    private DetectionJob queuedJob(Long id, int attempts) {
+        DetectionJob job = DetectionJob.builder()
+                .id(id)
+                .imageId(100 + id)
+                .baselineImageId(1L)
+                .status(DetectionJobStatus.QUEUED)
+                .attempts(attempts)
+                .build();
+        when(jobs.findById(eq(id))).thenReturn(Optional.of(job));
+        return job;
+    }
+
+    private void failAsyncWith(Throwable error) {
+        when(anomalyDetectionService.detectAnomaliesAsync(any(), any(), any()))
+                .thenReturn(CompletableFuture.failedFuture(error));
+    }
+
+    // The future carries the detection error through; the job has settled once it completes either way
+    private static void settle(CompletableFuture<?> run) {
+        run.handle((result, error) -> null).join();
+    }
+
+    // As AnomalyDetectionService reports Flask errors
+    private static RuntimeException wrapped(Throwable cause) {
+        return new RuntimeException("Failed to call Flask API for anomaly detection: " + cause.getMessage(), cause);
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.transformer.service;
+
+import com.example.transformer.imaging.ScalarPixelKernels;
+import com.example.transformer.model.AnomalyDetectionConfig;
+import com.example.transformer.model.ImageHueHistogram;
+import com.example.transformer.model.TransformerImage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DetectionPreScreenTest {
+
+    @TempDir
+    Path dir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ImageHistogramService histograms = mock(ImageHistogramService.class);
+    private final FileStorageService storage = mock(FileStorageService.class);
+    private final LocalDetectionEngine engine = new LocalDetectionEngine(objectMapper, new ScalarPixelKernels(), 2, 64);
+    private final DetectionConfigCache.Snapshot config =
+            new DetectionConfigCache.Snapshot(1, 1L, new AnomalyDetectionConfig(), "{}".getBytes());
+
+    private DetectionPreScreen preScreen;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        copy("detection/baseline.png", "baseline.png");
+        copy("detection/candidate.png", "candidate.png");
+        when(storage.load(anyString())).thenAnswer(inv -> new FileSystemResource(dir.resolve(inv.<String>getArgument(0))));
+        // Identical whole-image histograms, so only the pixel check decides
+        when(histograms.getOrCompute(any(TransformerImage.class), any(AnomalyDetectionConfig.class)))
+                .thenAnswer(inv -> histogram());
+        preScreen = new DetectionPreScreen(histograms, storage, engine, objectMapper, meterRegistry, true, true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.shutdown();
+    }
+
+    @Test
+    void identicalPairIsScreenedClear() throws IOException {
+        String result = preScreen.screen(image("baseline.png"), image("baseline.png"), config,
+                DetectionPreScreen.Mode.NORMAL);
+
+        assertThat(result).isNotNull();
+        assertThat(objectMapper.readTree(result).get("fault_regions")).isEmpty();
+        assertThat(counted("clear")).isEqualTo(1);
+    }
+
+    @Test
+    void localizedHotspotIsNotScreenedClear() {
+        String result = preScreen.screen(image("baseline.png"), image("candidate.png"), config,
+                DetectionPreScreen.Mode.NORMAL);
+
+        assertThat(result).isNull();
+        assertThat(counted("needs-detection")).isEqualTo(1);
+    }
+
+    @Test
+    void smallSameHueBrighteningIsNotScreenedClear() throws IOException {
+        // A 4x4 patch brightened in the baseline's own hue: the hue histogram and red
+        // ratio barely move, but those pixels clear the ΔV floor
+        BufferedImage candidate = ImageIO.read(dir.resolve("baseline.png").toFile());
+        for (int y = 120; y < 124; y++) {
+            for (int x = 150; x < 154; x++) {
+                candidate.setRGB(x, y, 0x3C3CF0);
+            }
+        }
+        ImageIO.write(candidate, "png", dir.resolve("patch.png").toFile());
+
+        String result = preScreen.screen(image("baseline.png"), image("patch.png"), config,
+                DetectionPreScreen.Mode.NORMAL);
+
+        assertThat(result).isNull();
+    }
+
+    @Test
+    void differingStoredHistogramsSkipThePixelCheck() {
+        ImageHueHistogram shifted = histogram();
+        shifted.setMeanValue(shifted.getMeanValue() + 50);
+        when(histograms.getOrCompute(any(TransformerImage.class), any(AnomalyDetectionConfig.class)))
+                .thenReturn(histogram(), shifted);
+
+        String result = preScreen.screen(image("baseline.png"), image("missing.png"), config,
+                DetectionPreScreen.Mode.NORMAL);
+
+        assertThat(result).isNull();
+        assertThat(counted("needs-detection")).isEqualTo(1);
+    }
+
+    private void copy(String resource, String name) throws IOException {
+        try (InputStream in = new ClassPathResource(resource).getInputStream()) {
+            Files.copy(in, dir.resolve(name));
+        }
+    }
+
+    private static TransformerImage image(String storagePath) {
+        return TransformerImage.builder().id((long) storagePath.hashCode()).storagePath(storagePath).build();
+    }
+
+    private static ImageHueHistogram histogram() {
+        return ImageHueHistogram.builder()
+                .counts(new int[36])
+                .countedPixels(0L)
+                .totalPixels(76_800L)
+                .meanValue(120.0)
+                .build();
+    }
+
+    private double counted(String result) {
+        return meterRegistry.counter("detection.prescreen", "mode", "normal", "result", result).count();
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.transformer.service;
+
+import com.example.transformer.model.FaultRegion;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DetectionResponseParserTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @ParameterizedTest
+    @ValueSource(strings = { "flask-mock-response.json", "legacy-variants-response.json" })
+    void streamingParserMatchesTreeModelParsing(String fixture) throws IOException {
+        String json = fixture(fixture);
+
+        DetectionResponseParser.Parsed streamed = DetectionResponseParser.parse(objectMapper.getFactory(), json);
+        TreeModelDetectionParser.Parsed tree = TreeModelDetectionParser.parse(objectMapper, json);
+
+        assertThat(streamed.faultRegions()).isNotEmpty();
+        assertThat(streamed.faultRegions())
+                .usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyElementsOf(tree.faultRegions());
+        assertThat(streamed.displayMetadata()).usingRecursiveComparison().isEqualTo(tree.displayMetadata());
+    }
+
+    @Test
+    void readsEveryFieldOfTheFlaskMockResponse() throws IOException {
+        DetectionResponseParser.Parsed parsed =
+                DetectionResponseParser.parse(objectMapper.getFactory(), fixture("flask-mock-response.json"));
+
+        FaultRegion fault = parsed.faultRegions().get(0);
+        assertThat(fault.getRegionId()).isEqualTo(1);
+        assertThat(fault.getType()).isEqualTo("Point Overload (Faulty)");
+        assertThat(fault.getColorRgb()).containsExactly(255, 0, 0);
+        assertThat(fault.getBoundingBox().getAreaPx()).isEqualTo(1218);
+        assertThat(fault.getCentroid().getY()).isEqualTo(297);
+        assertThat(fault.getTag()).isEqualTo("FAULT");
+        assertThat(parsed.displayMetadata().getBoxColors()).containsEntry("POTENTIAL", "255,255,0");
+        assertThat(parsed.displayMetadata().getTimestamp()).isEqualTo(LocalDateTime.parse("2025-10-05T14:30:15"));
+    }
+
+    @Test
+    void rejectsNonObjectResponses() {
+        assertThatThrownBy(() -> DetectionResponseParser.parse(objectMapper.getFactory(), "[]"))
+                .isInstanceOf(IOException.class);
+    }
+
+    private static String fixture(String name) throws IOException {
+        try (InputStream in = DetectionResponseParserTest.class.getResourceAsStream("/detection/" + name)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.transformer.service;
+
+import com.example.transformer.model.CachedDetectionResult;
+import com.example.transformer.repository.CachedDetectionResultRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DetectionResultCacheTest {
+
+    private static final DetectionResultCache.Key KEY = new DetectionResultCache.Key("base", "cand", 1L);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService callers = Executors.newFixedThreadPool(2);
+    private CachedDetectionResultRepository repository;
+    private DetectionResultCache cache;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(CachedDetectionResultRepository.class);
+        when(repository.findByBaselineHashAndCandidateHashAndConfigId(anyString(), anyString(), anyLong()))
+                .thenReturn(Optional.empty());
+        cache = new DetectionResultCache(repository, meterRegistry, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+    }
+
+    @Test
+    void concurrentCallersOnOneKeyShareOneDetectionCall() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<String> detection = () -> {
+            calls.incrementAndGet();
+            started.countDown();
+            await(release);
+            return "{\"fault_regions\":[]}";
+        };
+
+        Future<String> first = callers.submit(() -> cache.getOrCompute(KEY, detection));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        Future<String> second = callers.submit(() -> cache.getOrCompute(KEY, detection));
+        awaitCoalesced(1);
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("{\"fault_regions\":[]}");
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("{\"fault_regions\":[]}");
+        assertThat(calls).hasValue(1);
+        verify(repository, times(1)).save(any());
+    }
+
+    @Test
+    void failureReachesEveryWaiterAndClearsTheInFlightEntry() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<String> failing = () -> {
+            calls.incrementAndGet();
+            started.countDown();
+            await(release);
+            throw new IllegalStateException("detection down");
+        };
+
+        Future<String> first = callers.submit(() -> cache.getOrCompute(KEY, failing));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        Future<String> second = callers.submit(() -> cache.getOrCompute(KEY, failing));
+        awaitCoalesced(1);
+        release.countDown();
+
+        assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS)).hasRootCauseMessage("detection down");
+        assertThatThrownBy(() -> second.get(5, TimeUnit.SECONDS)).hasRootCauseMessage("detection down");
+        assertThat(calls).hasValue(1);
+        verify(repository, never()).save(any());
+
+        // Nothing cached and no stale in-flight entry: the next caller runs detection again
+        assertThat(cache.getOrCompute(KEY, () -> "retry")).isEqualTo("retry");
+    }
+
+    @Test
+    void asyncCallersShareOneCallAndItsFailure() {
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<String> call = new CompletableFuture<>();
+        Supplier<CompletableFuture<String>> detection = () -> {
+            calls.incrementAndGet();
+            return call;
+        };
+
+        CompletableFuture<String> first = cache.getOrComputeAsync(KEY, detection);
+        CompletableFuture<String> second = cache.getOrComputeAsync(KEY, detection);
+        assertThat(first).isNotDone();
+        call.completeExceptionally(new IllegalStateException("detection down"));
+
+        assertThat(first).isCompletedExceptionally();
+        assertThat(second).isCompletedExceptionally();
+        assertThatThrownBy(first::join).hasCauseInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(second::join).hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(calls).hasValue(1);
+
+        assertThat(cache.getOrComputeAsync(KEY, () -> CompletableFuture.completedFuture("retry")).join())
+                .isEqualTo("retry");
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void asyncResultIsCachedForLaterCallers() {
+        CompletableFuture<String> call = new CompletableFuture<>();
+        CompletableFuture<String> first = cache.getOrComputeAsync(KEY, () -> call);
+        CompletableFuture<String> second = cache.getOrComputeAsync(KEY, () -> CompletableFuture.completedFuture("other"));
+
+        call.complete("result");
+
+        assertThat(first.join()).isEqualTo("result");
+        assertThat(second.join()).isEqualTo("result");
+        assertThat(cache.peek(KEY)).isEqualTo("result");
+        verify(repository, times(1)).save(any());
+    }
+
+    @Test
+    void persistentStoreHitSkipsDetectionAndIsKeptInMemory() {
+        when(repository.findByBaselineHashAndCandidateHashAndConfigId("base", "cand", 1L))
+                .thenReturn(Optional.of(CachedDetectionResult.builder().responseJson("stored").build()));
+
+        assertThat(cache.getOrCompute(KEY, () -> {
+            throw new AssertionError("detection must not run on a store hit");
+        })).isEqualTo("stored");
+        assertThat(cache.peek(KEY)).isEqualTo("stored");
+
+        verify(repository, times(1)).findByBaselineHashAndCandidateHashAndConfigId("base", "cand", 1L);
+        assertThat(meterRegistry.counter("detection.result.cache", "result", "store-hit").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("detection.result.cache", "result", "memory-hit").count()).isEqualTo(1);
+    }
+
+    @Test
+    void memoryHoldsOnlyTheMostRecentlyUsedEntries() {
+        DetectionResultCache.Key a = new DetectionResultCache.Key("base", "a", 1L);
+        DetectionResultCache.Key b = new DetectionResultCache.Key("base", "b", 1L);
+        DetectionResultCache.Key c = new DetectionResultCache.Key("base", "c", 1L);
+        cache.put(a, "A");
+        cache.put(b, "B");
+        cache.peek(a); // a is now more recent than b
+        cache.put(c, "C");
+
+        assertThat(cache.peek(a)).isEqualTo("A");
+        assertThat(cache.peek(c)).isEqualTo("C");
+        // b was evicted from memory and the (empty) store is consulted instead
+        assertThat(cache.peek(b)).isNull();
+        verify(repository).findByBaselineHashAndCandidateHashAndConfigId("base", "b", 1L);
+        verify(repository, never()).findByBaselineHashAndCandidateHashAndConfigId(eq("base"), eq("a"), anyLong());
+    }
+
+    private void awaitCoalesced(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.counter("detection.result.cache", "result", "coalesced").count() < expected
+                && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(meterRegistry.counter("detection.result.cache", "result", "coalesced").count())
+                .isEqualTo(expected);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.transformer.service;
+
+import com.example.transformer.model.DetectionPriority;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DetectionSchedulerTest {
+
+    private final ThreadPoolTaskExecutor shared = executor("detection-", 2);
+    private final ThreadPoolTaskExecutor interactive = executor("detection-interactive-", 1);
+    private final CountDownLatch releaseBlocked = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        releaseBlocked.countDown();
+        shared.shutdown();
+        interactive.shutdown();
+    }
+
+    @Test
+    void interactiveStartsWhileBlockingLanesHoldEverySharedWorker() throws InterruptedException {
+        DetectionScheduler scheduler = new DetectionScheduler(new SimpleMeterRegistry(), interactive, shared,
+                32, 100, 8, 2, 16, 1, 8);
+        CountDownLatch blockedStarted = new CountDownLatch(2);
+        // Far more blocking batch work than the shared pool has threads
+        for (int i = 0; i < 20; i++) {
+            DetectionPriority lane = i % 2 == 0 ? DetectionPriority.BULK : DetectionPriority.BACKGROUND;
+            scheduler.submit(lane, () -> {
+                blockedStarted.countDown();
+                await(releaseBlocked);
+                return CompletableFuture.completedFuture(null);
+            });
+        }
+        assertThat(blockedStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        CountDownLatch interactiveStarted = new CountDownLatch(1);
+        scheduler.submit(DetectionPriority.INTERACTIVE, () -> {
+            interactiveStarted.countDown();
+            return CompletableFuture.completedFuture(null);
+        });
+
+        assertThat(interactiveStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(releaseBlocked.getCount()).isEqualTo(1);
+    }
+
+    @Test
+    void slotIsHeldUntilTheWorkCompletes() throws InterruptedException {
+        DetectionScheduler scheduler = new DetectionScheduler(new SimpleMeterRegistry(), interactive, shared,
+                32, 100, 8, 2, 1, 1, 1);
+        CompletableFuture<Void> inFlight = new CompletableFuture<>();
+        scheduler.submit(DetectionPriority.BULK, () -> inFlight);
+        scheduler.submit(DetectionPriority.BULK, () -> CompletableFuture.completedFuture(null));
+
+        assertThat(scheduler.queued(DetectionPriority.BULK)).isEqualTo(1);
+        inFlight.complete(null);
+        // The worker registers its completion callback asynchronously
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (scheduler.queued(DetectionPriority.BULK) > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(scheduler.queued(DetectionPriority.BULK)).isZero();
+    }
+
+    private static ThreadPoolTaskExecutor executor(String prefix, int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(500);
+        executor.setThreadNamePrefix(prefix);
+        executor.initialize();
+        return executor;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
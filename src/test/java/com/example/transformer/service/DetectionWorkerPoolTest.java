@@ -0,0 +1,96 @@
+package com.example.transformer.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DetectionWorkerPoolTest {
+
+    private static final long DELAY_MILLIS = 300;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final HedgingPolicy hedging =
+            new HedgingPolicy(meterRegistry, true, 95, Duration.ofMillis(10), 200, 20, 0.1);
+    private final DetectionWorkerPool pool = new DetectionWorkerPool(meterRegistry, hedging,
+            new String[] {"http://worker-a:5000", "http://worker-b:5000"}, 3, "/health", Duration.ofSeconds(1));
+
+    private record Call(String url, long atNanos, CompletableFuture<String> response) {}
+
+    private final ConcurrentLinkedQueue<Call> calls = new ConcurrentLinkedQueue<>();
+
+    @Test
+    void hedgeGoesToTheOtherWorkerOnlyAfterTheDelay() throws Exception {
+        warmUp(false);
+        long start = System.nanoTime();
+        CompletableFuture<String> result = pool.callHedgedAsync(this::record);
+
+        Thread.sleep(DELAY_MILLIS / 2);
+        assertThat(calls).hasSize(1);
+        awaitCalls(2);
+
+        List<Call> made = new ArrayList<>(calls);
+        assertThat(made.get(1).url()).isNotEqualTo(made.get(0).url());
+        assertThat(TimeUnit.NANOSECONDS.toMillis(made.get(1).atNanos() - start)).isGreaterThanOrEqualTo(DELAY_MILLIS);
+
+        made.get(1).response().complete("from hedge");
+        assertThat(result.get(1, TimeUnit.SECONDS)).isEqualTo("from hedge");
+        assertThat(meterRegistry.counter("detection.hedge", "result", "won").count()).isEqualTo(1);
+    }
+
+    @Test
+    void noHedgeWhenThePrimaryAnswersInTime() throws Exception {
+        warmUp(false);
+        CompletableFuture<String> result = pool.callHedgedAsync(this::record);
+        calls.peek().response().complete("from primary");
+
+        assertThat(result.get(1, TimeUnit.SECONDS)).isEqualTo("from primary");
+        Thread.sleep(DELAY_MILLIS * 2);
+        assertThat(calls).hasSize(1);
+    }
+
+    @Test
+    void hedgingStopsOnceTheBudgetIsUsedUp() throws Exception {
+        warmUp(true);
+        // All primaries start before the first hedge is due; the token cap allows ten hedges
+        for (int i = 0; i < 15; i++) {
+            pool.callHedgedAsync(this::record);
+        }
+        awaitCalls(25);
+        Thread.sleep(DELAY_MILLIS);
+
+        assertThat(calls).hasSize(25);
+        assertThat(meterRegistry.counter("detection.hedge", "result", "sent").count()).isEqualTo(10);
+        assertThat(meterRegistry.counter("detection.hedge", "result", "budget-exhausted").count()).isEqualTo(5);
+    }
+
+    // Latency samples put the hedge delay at DELAY_MILLIS; a long quiet spell fills the token bucket
+    private void warmUp(boolean fillBudget) {
+        for (int i = 0; i < 20; i++) {
+            hedging.record(DELAY_MILLIS);
+        }
+        for (int i = 0; i < (fillBudget ? 1000 : 10); i++) {
+            hedging.startPrimary();
+        }
+    }
+
+    private CompletableFuture<String> record(String url) {
+        CompletableFuture<String> response = new CompletableFuture<>();
+        calls.add(new Call(url, System.nanoTime(), response));
+        return response;
+    }
+
+    private void awaitCalls(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (calls.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.transformer.service;
+
+import com.example.transformer.model.StoredBlob;
+import com.example.transformer.repository.StoredBlobRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FileStorageServiceTest {
+
+    @TempDir
+    Path root;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final StoredBlobRepository blobs = mock(StoredBlobRepository.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private HotImageCache hotImages;
+    private FileStorageService storage;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        hotImages = new HotImageCache(meterRegistry, true, 1 << 20, 1 << 20);
+        storage = new FileStorageService(root.toString(), blobs, hotImages, transactionManager);
+        when(blobs.acquire(anyString(), anyString(), anyLong())).thenReturn(1);
+    }
+
+    @Test
+    void releasingTheLastReferenceEvictsTheBlobAndItsRenditions() throws IOException {
+        FileStorageService.StoredFile stored = storage.saveTransformerImage(1L, "maintenance",
+                new MockMultipartFile("file", "thermal.jpg", "image/jpeg", new byte[] {1, 2, 3, 4}));
+        String thumbnailPath = storage.renditionPath(stored.relativePath(), "thumb");
+        storage.writeDerived(thumbnailPath, out -> out.write(new byte[] {5, 6}));
+
+        Path original = storage.load(stored.relativePath()).getFile().toPath();
+        Path thumbnail = storage.load(thumbnailPath).getFile().toPath();
+        assertThat(hotImages.get(original).length()).isEqualTo(4);
+        assertThat(hotImages.get(thumbnail).length()).isEqualTo(2);
+
+        when(blobs.findById(eq(stored.contentHash()))).thenReturn(Optional.of(StoredBlob.builder()
+                .contentHash(stored.contentHash()).storagePath(stored.relativePath()).build()));
+        when(blobs.deleteIfUnreferenced(stored.contentHash())).thenReturn(1);
+        storage.release(stored.contentHash());
+
+        assertThat(original).doesNotExist();
+        assertThat(thumbnail).doesNotExist();
+        assertThat(meterRegistry.get("image.cache.entries").gauge().value()).isZero();
+        assertThat(meterRegistry.get("image.cache.bytes").gauge().value()).isZero();
+    }
+
+    @Test
+    void rewrittenRenditionIsNotServedStale() throws IOException {
+        String thumbnailPath = "blobs/ab/cd/abcd.thumb.jpg";
+        storage.writeDerived(thumbnailPath, out -> out.write(new byte[] {1}));
+        Path thumbnail = storage.load(thumbnailPath).getFile().toPath();
+        assertThat(hotImages.get(thumbnail).length()).isEqualTo(1);
+
+        storage.writeDerived(thumbnailPath, out -> out.write(new byte[] {1, 2, 3}));
+
+        assertThat(hotImages.get(thumbnail).length()).isEqualTo(3);
+        assertThat(Files.size(thumbnail)).isEqualTo(3);
+    }
+
+    @Test
+    void uploadLooksUpAndAcquiresTheBlobUnderTheHashLock() throws IOException {
+        FileStorageService.StoredFile stored = storage.saveTransformerImage(1L, "baseline",
+                new MockMultipartFile("file", "thermal.jpg", "image/jpeg", new byte[] {1, 2, 3}));
+
+        InOrder order = inOrder(transactionManager, blobs);
+        order.verify(transactionManager).getTransaction(any());
+        order.verify(blobs).lock(stored.contentHash());
+        order.verify(blobs).findById(stored.contentHash());
+        order.verify(blobs).acquire(stored.contentHash(), stored.relativePath(), 3L);
+        order.verify(transactionManager).commit(any());
+        assertThat(storage.load(stored.relativePath()).getFile()).exists();
+    }
+
+    @Test
+    void fileIsDeletedOnlyAfterTheRowDeletionCommitted() throws IOException {
+        FileStorageService.StoredFile stored = storage.saveTransformerImage(1L, "baseline",
+                new MockMultipartFile("file", "thermal.jpg", "image/jpeg", new byte[] {1, 2, 3}));
+        unreferenced(stored);
+
+        storage.release(stored.contentHash());
+
+        InOrder order = inOrder(transactionManager, blobs);
+        order.verify(blobs).lock(stored.contentHash());
+        order.verify(blobs).decrementRefCount(stored.contentHash());
+        order.verify(blobs).deleteIfUnreferenced(stored.contentHash());
+        order.verify(transactionManager).commit(any());
+        // Second transaction re-checks under the lock before touching the file
+        order.verify(blobs).lock(stored.contentHash());
+        order.verify(blobs).existsById(stored.contentHash());
+        assertThat(storage.load(stored.relativePath()).getFile()).doesNotExist();
+    }
+
+    @Test
+    void blobReacquiredByAnotherNodeKeepsItsFile() throws IOException {
+        FileStorageService.StoredFile stored = storage.saveTransformerImage(1L, "baseline",
+                new MockMultipartFile("file", "thermal.jpg", "image/jpeg", new byte[] {1, 2, 3}));
+        unreferenced(stored);
+        // Another node acquired the hash between the row deletion and the file cleanup
+        when(blobs.existsById(stored.contentHash())).thenReturn(true);
+
+        storage.release(stored.contentHash());
+
+        assertThat(storage.load(stored.relativePath()).getFile()).exists();
+    }
+
+    private void unreferenced(FileStorageService.StoredFile stored) {
+        when(blobs.findById(eq(stored.contentHash()))).thenReturn(Optional.of(StoredBlob.builder()
+                .contentHash(stored.contentHash()).storagePath(stored.relativePath()).build()));
+        when(blobs.deleteIfUnreferenced(stored.contentHash())).thenReturn(1);
+    }
+}
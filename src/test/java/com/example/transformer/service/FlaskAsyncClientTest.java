@@ -0,0 +1,105 @@
+package com.example.transformer.service;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FlaskAsyncClientTest {
+
+    private final CountDownLatch releaseResponses = new CountDownLatch(1);
+    private final AtomicInteger received = new AtomicInteger();
+    private HttpServer server;
+    private String url;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/detect-anomalies", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            received.incrementAndGet();
+            try {
+                releaseResponses.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = "{\"fault_regions\":[]}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/detect-anomalies";
+    }
+
+    @AfterEach
+    void tearDown() {
+        releaseResponses.countDown();
+        server.stop(0);
+    }
+
+    @Test
+    void requestsOverThePerRouteLimitWaitForAConnection() throws Exception {
+        FlaskAsyncClient client = client(10, 1, Duration.ofSeconds(10));
+
+        CompletableFuture<String> first = client.postMultipart(url, parts());
+        CompletableFuture<String> second = client.postMultipart(url, parts());
+        awaitReceived(1);
+        Thread.sleep(200);
+        assertThat(received.get()).isEqualTo(1);
+
+        releaseResponses.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS)).contains("fault_regions");
+        assertThat(second.get(5, TimeUnit.SECONDS)).contains("fault_regions");
+        assertThat(received.get()).isEqualTo(2);
+    }
+
+    @Test
+    void waitingForAConnectionTimesOut() throws Exception {
+        FlaskAsyncClient client = client(1, 1, Duration.ofMillis(200));
+
+        CompletableFuture<String> first = client.postMultipart(url, parts());
+        CompletableFuture<String> second = client.postMultipart(url, parts());
+
+        assertThatThrownBy(() -> second.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(ResourceAccessException.class);
+        releaseResponses.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS)).contains("fault_regions");
+        assertThat(received.get()).isEqualTo(1);
+    }
+
+    private FlaskAsyncClient client(int maxTotal, int maxPerRoute, Duration acquireTimeout) {
+        return new FlaskAsyncClient(new SimpleMeterRegistry(), 2, maxTotal, maxPerRoute, acquireTimeout,
+                Duration.ofSeconds(5), Duration.ofSeconds(30));
+    }
+
+    private static List<FlaskAsyncClient.Part> parts() {
+        return List.of(FlaskAsyncClient.Part.of("config", "config.json", "{}".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private void awaitReceived(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (received.get() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
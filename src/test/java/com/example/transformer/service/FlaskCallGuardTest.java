@@ -0,0 +1,50 @@
+package com.example.transformer.service;
+
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FlaskCallGuardTest {
+
+    private final FlaskCallGuard guard = new FlaskCallGuard(new SimpleMeterRegistry(),
+            50, Duration.ofSeconds(30), 80, 20, 10, Duration.ofSeconds(30), 3,
+            8, 1, 64, Duration.ofSeconds(2), 3, Duration.ofMillis(500), 2.0, 0.5);
+
+    @AfterEach
+    void tearDown() {
+        guard.shutdown();
+    }
+
+    @Test
+    void asyncTrainingOverTheLimitIsRejectedWithoutWaiting() {
+        CompletableFuture<String> inFlight = new CompletableFuture<>();
+        guard.trainingAsync(() -> inFlight);
+
+        long start = System.nanoTime();
+        CompletableFuture<String> rejected = guard.trainingAsync(() -> CompletableFuture.completedFuture("ok"));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // The blocking training bulkhead would have parked this thread for bulkhead-max-wait (2s)
+        assertThat(elapsedMillis).isLessThan(1000);
+        assertThatThrownBy(rejected::get)
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(BulkheadFullException.class);
+        inFlight.complete("done");
+    }
+
+    @Test
+    void asyncTrainingDoesNotTakeBlockingTrainingSlots() {
+        guard.trainingAsync(CompletableFuture::new);
+
+        assertThat(guard.training(() -> "ok")).isEqualTo("ok");
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.transformer.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HedgingPolicyTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void noHedgeUntilThereAreEnoughSamples() {
+        HedgingPolicy policy = policy(true, 0.1);
+        for (int i = 0; i < 19; i++) {
+            policy.record(100);
+        }
+        assertThat(policy.startPrimary()).isEqualTo(-1);
+
+        policy.record(100);
+        assertThat(policy.startPrimary()).isEqualTo(100);
+    }
+
+    @Test
+    void delayIsThePercentileOfRecentLatencies() {
+        HedgingPolicy policy = policy(true, 0.1);
+        for (int millis = 1; millis <= 100; millis++) {
+            policy.record(millis * 10L);
+        }
+
+        assertThat(policy.startPrimary()).isEqualTo(950);
+    }
+
+    @Test
+    void delayIsNeverBelowTheMinimum() {
+        HedgingPolicy policy = policy(true, 0.1);
+        for (int i = 0; i < 20; i++) {
+            policy.record(5);
+        }
+
+        assertThat(policy.startPrimary()).isEqualTo(50);
+    }
+
+    @Test
+    void disabledPolicyNeverHedges() {
+        HedgingPolicy policy = policy(false, 1.0);
+        for (int i = 0; i < 20; i++) {
+            policy.record(100);
+        }
+
+        assertThat(policy.startPrimary()).isEqualTo(-1);
+    }
+
+    @Test
+    void hedgesStayWithinTheBudget() {
+        HedgingPolicy policy = policy(true, 0.25);
+
+        // Four primaries earn one hedge
+        for (int i = 0; i < 3; i++) {
+            policy.startPrimary();
+        }
+        assertThat(policy.tryAcquireHedge()).isFalse();
+        policy.startPrimary();
+        assertThat(policy.tryAcquireHedge()).isTrue();
+        assertThat(policy.tryAcquireHedge()).isFalse();
+    }
+
+    @Test
+    void quietSpellSavesUpAtMostTenHedges() {
+        HedgingPolicy policy = policy(true, 0.25);
+        for (int i = 0; i < 1000; i++) {
+            policy.startPrimary();
+        }
+
+        int hedges = 0;
+        while (policy.tryAcquireHedge()) {
+            hedges++;
+        }
+
+        assertThat(hedges).isEqualTo(10);
+        assertThat(meterRegistry.counter("detection.hedge", "result", "sent").count()).isEqualTo(10);
+        assertThat(meterRegistry.counter("detection.hedge", "result", "budget-exhausted").count()).isEqualTo(1);
+    }
+
+    private HedgingPolicy policy(boolean enabled, double budget) {
+        return new HedgingPolicy(meterRegistry, enabled, 95, Duration.ofMillis(50), 200, 20, budget);
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.transformer.service;
+
+import com.example.transformer.model.StoredBlob;
+import com.example.transformer.model.TransformerImage;
+import com.example.transformer.repository.StoredBlobRepository;
+import com.example.transformer.service.ImageRenditionService.Rendition;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ImageRenditionServiceTest {
+
+    private static final int THUMBNAIL_EDGE = 64;
+    private static final int SCREEN_EDGE = 1600;
+
+    @TempDir
+    Path root;
+
+    private final StoredBlobRepository blobs = mock(StoredBlobRepository.class);
+    private FileStorageService storage;
+    private ImageRenditionService renditions;
+    private TransformerImage image;
+    private String contentHash;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        when(blobs.acquire(anyString(), anyString(), anyLong())).thenReturn(1);
+        storage = new FileStorageService(root.toString(), blobs,
+                new HotImageCache(new SimpleMeterRegistry(), true, 1 << 20, 1 << 20),
+                mock(PlatformTransactionManager.class));
+        renditions = new ImageRenditionService(storage, new SyncTaskExecutor(), THUMBNAIL_EDGE, SCREEN_EDGE, 0.85f);
+
+        // Smaller than the screen edge, so the screen rendition must keep its size
+        FileStorageService.StoredFile stored = storage.saveTransformerImage(1L, "maintenance",
+                new MockMultipartFile("file", "thermal.png", "image/png", png(300, 200)));
+        contentHash = stored.contentHash();
+        image = TransformerImage.builder().id(7L).storagePath(stored.relativePath()).build();
+    }
+
+    @Test
+    void uploadGetsBothRenditionsWithinTheirEdgeAndNeverUpscaled() throws IOException {
+        renditions.generateAsync(List.of(image));
+
+        BufferedImage thumbnail = read(Rendition.THUMBNAIL);
+        assertThat(thumbnail.getWidth()).isEqualTo(THUMBNAIL_EDGE);
+        assertThat(thumbnail.getHeight()).isBetween(42, 43); // aspect ratio kept
+
+        BufferedImage screen = read(Rendition.SCREEN);
+        assertThat(screen.getWidth()).isEqualTo(300);
+        assertThat(screen.getHeight()).isEqualTo(200);
+    }
+
+    @Test
+    void missingRenditionIsGeneratedOnFirstRequest() throws IOException {
+        String path = renditions.resolve(image, Rendition.SCREEN);
+
+        assertThat(path).isEqualTo(storage.renditionPath(image.getStoragePath(), "screen"));
+        assertThat(storage.load(path).exists()).isTrue();
+        // Both are written from the one decode of the original
+        assertThat(storage.load(storage.renditionPath(image.getStoragePath(), "thumb")).exists()).isTrue();
+    }
+
+    @Test
+    void releasingTheLastReferenceDeletesTheRenditions() throws IOException {
+        renditions.generateAsync(List.of(image));
+        Path thumbnail = storage.load(storage.renditionPath(image.getStoragePath(), "thumb")).getFile().toPath();
+        Path screen = storage.load(storage.renditionPath(image.getStoragePath(), "screen")).getFile().toPath();
+        assertThat(thumbnail).exists();
+        assertThat(screen).exists();
+
+        when(blobs.findById(contentHash)).thenReturn(Optional.of(StoredBlob.builder()
+                .contentHash(contentHash).storagePath(image.getStoragePath()).build()));
+        when(blobs.deleteIfUnreferenced(contentHash)).thenReturn(1);
+        storage.release(contentHash);
+
+        assertThat(thumbnail).doesNotExist();
+        assertThat(screen).doesNotExist();
+        assertThat(storage.load(image.getStoragePath()).exists()).isFalse();
+    }
+
+    @Test
+    void sizeParamIsParsedLeniently() {
+        assertThat(Rendition.fromParam(null)).isNull();
+        assertThat(Rendition.fromParam(" ")).isNull();
+        assertThat(Rendition.fromParam("original")).isNull();
+        assertThat(Rendition.fromParam("thumb")).isEqualTo(Rendition.THUMBNAIL);
+        assertThat(Rendition.fromParam(" Thumbnail ")).isEqualTo(Rendition.THUMBNAIL);
+        assertThat(Rendition.fromParam("screen")).isEqualTo(Rendition.SCREEN);
+        assertThat(Rendition.fromParam("PREVIEW")).isEqualTo(Rendition.SCREEN);
+        assertThatThrownBy(() -> Rendition.fromParam("huge")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private BufferedImage read(Rendition rendition) throws IOException {
+        String path = storage.renditionPath(image.getStoragePath(), rendition.suffix());
+        return ImageIO.read(storage.load(path).getFile());
+    }
+
+    private static byte[] png(int width, int height) throws IOException {
+        BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                img.setRGB(x, y, (x * 255 / width) << 16 | (y * 255 / height) << 8);
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(img, "png", out);
+        return out.toByteArray();
+    }
+}
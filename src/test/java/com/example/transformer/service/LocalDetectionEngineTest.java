@@ -0,0 +1,140 @@
+package com.example.transformer.service;
+
+import com.example.transformer.imaging.PixelKernels;
+import com.example.transformer.imaging.ScalarPixelKernels;
+import com.example.transformer.model.AnomalyDetectionConfig;
+import com.example.transformer.model.FaultRegion;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the in-JVM engine on the image pair the Flask mock response in
+ * {@code detection/flask-mock-detection.json} was recorded for. The pair is a
+ * cool background with a red and a yellow hot spot painted into the candidate.
+ * The mock derives its regions from a SHA-256 of the uploaded bytes, so the
+ * recording is only valid for these exact files; regenerate it with
+ * {@code mock_detection(baseline, candidate)} from mock_classification_server.py
+ * whenever the images change.
+ */
+class LocalDetectionEngineTest {
+
+    private static final Resource BASELINE = new ClassPathResource("detection/baseline.png");
+    private static final Resource CANDIDATE = new ClassPathResource("detection/candidate.png");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<LocalDetectionEngine> engines = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        engines.forEach(LocalDetectionEngine::shutdown);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "scalar", "best" })
+    void findsTheSameRegionsAsTheFlaskMock(String kernels) throws IOException {
+        JsonNode flask = flaskResponse();
+        JsonNode local = objectMapper.readTree(engine(kernels).detect(BASELINE, CANDIDATE, new AnomalyDetectionConfig()));
+
+        assertThat(local.get("fault_regions")).hasSize(flask.get("fault_regions").size());
+        assertThat(typesAndTags(local)).containsExactlyElementsOf(typesAndTags(flask));
+    }
+
+    @Test
+    void faultRegionJsonHasTheFlaskShape() throws IOException {
+        JsonNode flask = flaskResponse();
+        JsonNode local = objectMapper.readTree(engine("scalar").detect(BASELINE, CANDIDATE, new AnomalyDetectionConfig()));
+
+        assertThat(fieldNames(local)).isEqualTo(fieldNames(flask));
+        assertThat(local.get("display_metadata")).isEqualTo(flask.get("display_metadata"));
+
+        JsonNode flaskRegion = flask.get("fault_regions").get(0);
+        for (JsonNode region : local.get("fault_regions")) {
+            assertThat(fieldNames(region)).isEqualTo(fieldNames(flaskRegion));
+            assertThat(fieldNames(region.get("bounding_box")))
+                    .containsExactly("area_px", "height", "width", "x", "y");
+            assertThat(fieldNames(region.get("centroid"))).containsExactly("x", "y");
+            assertThat(region.get("tag").asText()).isIn("FAULT", "POTENTIAL");
+            assertThat(region.get("color_rgb")).hasSize(3);
+        }
+    }
+
+    @Test
+    void responseParsesIntoLocatedFaultRegions() throws IOException {
+        String json = engine("scalar").detect(BASELINE, CANDIDATE, new AnomalyDetectionConfig());
+
+        List<FaultRegion> regions = DetectionResponseParser.parse(objectMapper.getFactory(), json).faultRegions();
+
+        // Painted as a 36px red disk at (80, 80) and a 26px yellow disk at (200, 100)
+        FaultRegion fault = regions.get(0);
+        assertThat(fault.getTag()).isEqualTo("FAULT");
+        assertThat(fault.getBoundingBox().getX()).isBetween(76, 84);
+        assertThat(fault.getBoundingBox().getY()).isBetween(76, 84);
+        assertThat(fault.getCentroid().getX()).isBetween(94, 102);
+        FaultRegion potential = regions.get(1);
+        assertThat(potential.getTag()).isEqualTo("POTENTIAL");
+        assertThat(potential.getCentroid().getX()).isBetween(209, 217);
+        assertThat(potential.getCentroid().getY()).isBetween(109, 117);
+    }
+
+    @Test
+    void unchangedImageHasNoRegions() throws IOException {
+        JsonNode local = objectMapper.readTree(engine("scalar").detect(BASELINE, BASELINE, new AnomalyDetectionConfig()));
+
+        assertThat(local.get("fault_regions")).isEmpty();
+    }
+
+    @Test
+    void recordedFlaskResponseBelongsToTheImagePair() throws Exception {
+        MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+        sha256.update(BASELINE.getContentAsByteArray());
+        byte[] digest = sha256.digest(CANDIDATE.getContentAsByteArray());
+
+        // Same derivation as mock_detection: region count, then FAULT/POTENTIAL per region
+        JsonNode regions = flaskResponse().get("fault_regions");
+        assertThat(regions).hasSize((digest[0] & 0xFF) % 3);
+        for (int i = 0; i < regions.size(); i++) {
+            String tag = (digest[13 + i] & 0xFF) % 2 == 0 ? "FAULT" : "POTENTIAL";
+            assertThat(regions.get(i).get("tag").asText()).isEqualTo(tag);
+        }
+    }
+
+    private LocalDetectionEngine engine(String kernels) {
+        PixelKernels impl = "best".equals(kernels) ? PixelKernels.best() : new ScalarPixelKernels();
+        LocalDetectionEngine engine = new LocalDetectionEngine(objectMapper, impl, 2, 64);
+        engines.add(engine);
+        return engine;
+    }
+
+    private JsonNode flaskResponse() throws IOException {
+        return objectMapper.readTree(new ClassPathResource("detection/flask-mock-detection.json").getInputStream());
+    }
+
+    private static List<String> typesAndTags(JsonNode response) {
+        List<String> result = new ArrayList<>();
+        for (JsonNode region : response.get("fault_regions")) {
+            result.add(region.get("type").asText() + "/" + region.get("tag").asText());
+        }
+        return result;
+    }
+
+    private static Set<String> fieldNames(JsonNode node) {
+        Set<String> names = new TreeSet<>();
+        node.fieldNames().forEachRemaining(names::add);
+        return names;
+    }
+}
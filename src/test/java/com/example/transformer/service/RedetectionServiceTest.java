@@ -0,0 +1,218 @@
+package com.example.transformer.service;
+
+import com.example.transformer.model.DetectionJob;
+import com.example.transformer.model.DetectionJobStatus;
+import com.example.transformer.model.DetectionPriority;
+import com.example.transformer.model.ImageType;
+import com.example.transformer.model.RedetectionRun;
+import com.example.transformer.model.RedetectionScope;
+import com.example.transformer.model.RedetectionStatus;
+import com.example.transformer.model.Transformer;
+import com.example.transformer.model.TransformerImage;
+import com.example.transformer.model.TransformerType;
+import com.example.transformer.repository.AnomalyDetectionConfigRepository;
+import com.example.transformer.repository.DetectionJobRepository;
+import com.example.transformer.repository.InspectionRepository;
+import com.example.transformer.repository.RedetectionRunRepository;
+import com.example.transformer.repository.TransformerImageRepository;
+import com.example.transformer.repository.TransformerRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest
+class RedetectionServiceTest {
+
+    private static final int PAGE_SIZE = 2;
+
+    @Autowired
+    private RedetectionRunRepository runs;
+
+    @Autowired
+    private DetectionJobRepository jobs;
+
+    @Autowired
+    private TransformerImageRepository images;
+
+    @Autowired
+    private TransformerRepository transformers;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final DetectionJobService detectionJobService = mock(DetectionJobService.class);
+    private final DetectionScheduler scheduler = mock(DetectionScheduler.class);
+    private final FlaskCallGuard callGuard = mock(FlaskCallGuard.class);
+
+    private RedetectionService service;
+
+    @BeforeEach
+    void setUp() {
+        when(callGuard.isAcceptingCalls()).thenReturn(true);
+        when(scheduler.queued(DetectionPriority.BACKGROUND)).thenReturn(0);
+        when(detectionJobService.submitAll(anyList(), any(), any(), any(), any())).thenAnswer(inv -> {
+            List<DetectionJob> created = new ArrayList<>();
+            for (int i = 0; i < inv.<List<?>>getArgument(0).size(); i++) {
+                created.add(new DetectionJob());
+            }
+            return created;
+        });
+        service = new RedetectionService(runs, jobs, images, transformers, mock(InspectionRepository.class),
+                mock(AnomalyDetectionConfigRepository.class), mock(DetectionConfigCache.class),
+                detectionJobService, scheduler, callGuard, transactionManager, PAGE_SIZE, 20);
+    }
+
+    @Test
+    void fleetRunPagesThroughImagesAndPicksTheirBaselines() {
+        Transformer detectedBefore = transformer("T-1");
+        Transformer neverDetected = transformer("T-2");
+        Transformer withoutBaseline = transformer("T-3");
+        TransformerImage previousBaseline = image(detectedBefore, ImageType.BASELINE);
+        image(detectedBefore, ImageType.BASELINE); // newer, but the image was last compared to the other
+        TransformerImage olderBaseline = image(neverDetected, ImageType.BASELINE);
+        TransformerImage latestBaseline = image(neverDetected, ImageType.BASELINE);
+        TransformerImage redetected = image(detectedBefore, ImageType.MAINTENANCE);
+        TransformerImage firstDetection = image(neverDetected, ImageType.MAINTENANCE);
+        TransformerImage skipped = image(withoutBaseline, ImageType.MAINTENANCE);
+        createdAt(olderBaseline, LocalDateTime.now().minusDays(2));
+        createdAt(latestBaseline, LocalDateTime.now().minusDays(1));
+        jobs.save(DetectionJob.builder()
+                .imageId(redetected.getId())
+                .baselineImageId(previousBaseline.getId())
+                .status(DetectionJobStatus.COMPLETED)
+                .build());
+        RedetectionRun run = runs.save(RedetectionRun.builder()
+                .scope(RedetectionScope.FLEET)
+                .configId(1L)
+                .status(RedetectionStatus.RUNNING)
+                .build());
+
+        service.feed();
+
+        assertThat(run.getCursorImageId()).isEqualTo(firstDetection.getId());
+        assertThat(run.getEnqueued()).isEqualTo(2);
+        assertThat(run.getSkipped()).isZero();
+        assertThat(run.isExhausted()).isFalse();
+        assertThat(submittedBaselines()).containsExactlyInAnyOrderEntriesOf(Map.of(
+                redetected.getId(), previousBaseline.getId(),
+                firstDetection.getId(), latestBaseline.getId()));
+
+        service.feed();
+
+        // Short second page: the cursor is past the last image and its transformer had no baseline
+        assertThat(run.getCursorImageId()).isEqualTo(skipped.getId());
+        assertThat(run.getEnqueued()).isEqualTo(2);
+        assertThat(run.getSkipped()).isEqualTo(1);
+        assertThat(run.isExhausted()).isTrue();
+        verify(detectionJobService, times(2)).submitAll(anyList(), any(), any(), eq(1L), eq(run.getId()));
+
+        // No pending jobs of the run remain, so the next tick completes it
+        service.feed();
+
+        assertThat(runs.findById(run.getId())).get()
+                .extracting(RedetectionRun::getStatus).isEqualTo(RedetectionStatus.COMPLETED);
+    }
+
+    @Test
+    void cancelFailsOnlyJobsThatHaveNotStarted() {
+        RedetectionRun run = runs.save(RedetectionRun.builder()
+                .scope(RedetectionScope.FLEET)
+                .configId(1L)
+                .status(RedetectionStatus.RUNNING)
+                .build());
+        Map<DetectionJobStatus, Long> jobIds = Map.of(
+                DetectionJobStatus.QUEUED, job(run, DetectionJobStatus.QUEUED),
+                DetectionJobStatus.DEFERRED, job(run, DetectionJobStatus.DEFERRED),
+                DetectionJobStatus.RUNNING, job(run, DetectionJobStatus.RUNNING),
+                DetectionJobStatus.COMPLETED, job(run, DetectionJobStatus.COMPLETED));
+
+        assertThat(service.cancel(run.getId())).get()
+                .extracting(RedetectionRun::getStatus).isEqualTo(RedetectionStatus.CANCELLED);
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(status(jobIds.get(DetectionJobStatus.QUEUED))).isEqualTo(DetectionJobStatus.FAILED);
+        assertThat(status(jobIds.get(DetectionJobStatus.DEFERRED))).isEqualTo(DetectionJobStatus.FAILED);
+        assertThat(status(jobIds.get(DetectionJobStatus.RUNNING))).isEqualTo(DetectionJobStatus.RUNNING);
+        assertThat(status(jobIds.get(DetectionJobStatus.COMPLETED))).isEqualTo(DetectionJobStatus.COMPLETED);
+        // A second cancel finds the run no longer running
+        assertThat(service.cancel(run.getId())).isEmpty();
+    }
+
+    // Image id -> baseline id of every image handed to submitAll
+    private Map<Long, Long> submittedBaselines() {
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<TransformerImage>> imagesCaptor = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<TransformerImage> baselineCaptor = ArgumentCaptor.forClass(TransformerImage.class);
+        verify(detectionJobService, times(2)).submitAll(imagesCaptor.capture(), baselineCaptor.capture(),
+                eq(DetectionPriority.BACKGROUND), eq(1L), any());
+        Map<Long, Long> submitted = new HashMap<>();
+        for (int i = 0; i < imagesCaptor.getAllValues().size(); i++) {
+            Long baselineId = baselineCaptor.getAllValues().get(i).getId();
+            imagesCaptor.getAllValues().get(i).forEach(img -> submitted.put(img.getId(), baselineId));
+        }
+        return submitted;
+    }
+
+    private Transformer transformer(String number) {
+        return transformers.save(Transformer.builder()
+                .transformerNo(number)
+                .poleNo("P-" + number)
+                .region("North")
+                .transformerType(TransformerType.DISTRIBUTION)
+                .build());
+    }
+
+    private TransformerImage image(Transformer transformer, ImageType type) {
+        return images.save(TransformerImage.builder()
+                .transformer(transformer)
+                .imageType(type)
+                .uploader("tester")
+                .build());
+    }
+
+    // created_at is database-assigned, so set it directly to order the baselines
+    private void createdAt(TransformerImage image, LocalDateTime createdAt) {
+        entityManager.flush();
+        entityManager.createNativeQuery("UPDATE transformer_images SET created_at = :createdAt WHERE id = :id")
+                .setParameter("createdAt", createdAt)
+                .setParameter("id", image.getId())
+                .executeUpdate();
+    }
+
+    private Long job(RedetectionRun run, DetectionJobStatus status) {
+        return jobs.save(DetectionJob.builder()
+                .imageId(1L)
+                .baselineImageId(2L)
+                .status(status)
+                .priority(DetectionPriority.BACKGROUND)
+                .redetectionRunId(run.getId())
+                .build()).getId();
+    }
+
+    private DetectionJobStatus status(Long jobId) {
+        return jobs.findById(jobId).orElseThrow().getStatus();
+    }
+}
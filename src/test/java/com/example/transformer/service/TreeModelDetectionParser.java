@@ -0,0 +1,119 @@
+package com.example.transformer.service;
+
+import com.example.transformer.model.DisplayMetadata;
+import com.example.transformer.model.FaultRegion;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The JsonNode-based parsing AnomalyResultService.saveResults did before
+ * {@link DetectionResponseParser}, kept as the reference the streaming parser
+ * is checked and benchmarked against.
+ */
+final class TreeModelDetectionParser {
+
+    record Parsed(List<FaultRegion> faultRegions, DisplayMetadata displayMetadata) {}
+
+    private TreeModelDetectionParser() {
+    }
+
+    static Parsed parse(ObjectMapper objectMapper, String json) throws IOException {
+        JsonNode root = objectMapper.readTree(json);
+        List<FaultRegion> regions = new ArrayList<>();
+        if (root.has("fault_regions")) {
+            for (JsonNode fr : root.get("fault_regions")) {
+                FaultRegion region = new FaultRegion();
+                region.setRegionId(present(fr, "id") ? fr.get("id").asInt() : null);
+                region.setType(present(fr, "type") ? fr.get("type").asText() : null);
+                region.setDominantColor(present(fr, "dominant_color") ? fr.get("dominant_color").asText() : null);
+
+                List<Integer> rgb = new ArrayList<>();
+                if (present(fr, "color_rgb")) {
+                    for (JsonNode c : fr.get("color_rgb")) {
+                        if (!c.isNull())
+                            rgb.add(c.asInt());
+                    }
+                }
+                region.setColorRgb(rgb);
+
+                if (present(fr, "boundingBox")) {
+                    JsonNode bbNode = fr.get("boundingBox");
+                    FaultRegion.BoundingBox bb = box(bbNode);
+                    bb.setAreaPx(present(bbNode, "areaPx") ? bbNode.get("areaPx").asInt() : null);
+                    region.setBoundingBox(bb);
+                } else if (present(fr, "bounding_box")) {
+                    JsonNode bbNode = fr.get("bounding_box");
+                    FaultRegion.BoundingBox bb = box(bbNode);
+                    Integer areaPx = null;
+                    if (present(bbNode, "area_px")) {
+                        areaPx = bbNode.get("area_px").asInt();
+                    } else if (present(bbNode, "areaPx")) {
+                        areaPx = bbNode.get("areaPx").asInt();
+                    }
+                    bb.setAreaPx(areaPx);
+                    region.setBoundingBox(bb);
+                }
+
+                if (present(fr, "centroid")) {
+                    FaultRegion.Centroid cent = new FaultRegion.Centroid();
+                    JsonNode centNode = fr.get("centroid");
+                    cent.setX(present(centNode, "x") ? centNode.get("x").asInt() : null);
+                    cent.setY(present(centNode, "y") ? centNode.get("y").asInt() : null);
+                    region.setCentroid(cent);
+                }
+
+                region.setAspectRatio(present(fr, "aspect_ratio") ? fr.get("aspect_ratio").asDouble() : null);
+                region.setElongated(present(fr, "elongated") ? fr.get("elongated").asBoolean() : null);
+                region.setConnectedToWire(
+                        present(fr, "connected_to_wire") ? fr.get("connected_to_wire").asBoolean() : null);
+                region.setTag(present(fr, "tag") ? fr.get("tag").asText() : null);
+                region.setConfidence(present(fr, "confidence") ? fr.get("confidence").asDouble() : null);
+                regions.add(region);
+            }
+        }
+
+        DisplayMetadata dm = null;
+        if (present(root, "display_metadata")) {
+            dm = new DisplayMetadata();
+            JsonNode dmNode = root.get("display_metadata");
+            if (present(dmNode, "box_colors")) {
+                Map<String, String> boxColors = new HashMap<>();
+                JsonNode bcNode = dmNode.get("box_colors");
+                Iterator<String> keys = bcNode.fieldNames();
+                while (keys.hasNext()) {
+                    String key = keys.next();
+                    JsonNode val = bcNode.get(key);
+                    if (val != null && val.isArray() && val.size() >= 3) {
+                        boxColors.put(key, val.get(0).asInt() + "," + val.get(1).asInt() + "," + val.get(2).asInt());
+                    }
+                }
+                dm.setBoxColors(boxColors);
+            }
+            if (present(root, "timestamp")) {
+                dm.setTimestamp(LocalDateTime.parse(root.get("timestamp").asText()));
+            }
+        }
+        return new Parsed(regions, dm);
+    }
+
+    private static FaultRegion.BoundingBox box(JsonNode bbNode) {
+        FaultRegion.BoundingBox bb = new FaultRegion.BoundingBox();
+        bb.setX(present(bbNode, "x") ? bbNode.get("x").asInt() : null);
+        bb.setY(present(bbNode, "y") ? bbNode.get("y").asInt() : null);
+        bb.setWidth(present(bbNode, "width") ? bbNode.get("width").asInt() : null);
+        bb.setHeight(present(bbNode, "height") ? bbNode.get("height").asInt() : null);
+        return bb;
+    }
+
+    private static boolean present(JsonNode node, String field) {
+        return node.has(field) && !node.get(field).isNull();
+    }
+}